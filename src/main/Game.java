@@ -4,70 +4,111 @@ import main.buildings.Barbershop;
 import main.buildings.Cafe;
 import main.buildings.Castle;
 import main.buildings.Hotel;
+import main.buildings.Visit;
+import main.engine.Action;
+import main.engine.ActionJournal;
+import main.engine.GameInput;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.MctsInput;
+import main.engine.SearchInput;
 import main.map.GameMap;
 import main.map.Tile;
+import main.rating.Leaderboard;
+import main.save.CsvSave;
+import main.save.SaveJournal;
+import main.save.SaveService;
+import main.sim.EventScheduler;
 import main.ui.Menu;
+import main.util.GameRandom;
 import main.units.*;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
 
 public class Game {
     private Scanner scanner;
-    private Random random;
+    private final GameRandom gameRandom; // Зерно партии и потоки случайности подсистем
+    private static final long COMPUTER_TURN_MILLIS = 500; // Время на обдумывание хода компьютера
+    private static final int COMPUTER_TABLE_MB = 16;      // Таблица перестановок соперника-перебора
+    private static final int UNDO_DEPTH = 1000;           // Сколько последних действий можно отменить
+    private static final int TOP_PLAYERS = 10;            // Сколько рекордов показывать при входе
+    private static final int NPC_COUNT = 10;              // Жителей города
+    private static final long TOWN_WAIT_MILLIS = 180_000; // Сколько игрок ждёт места в очереди: дольше любого визита
+    private static final long CAPTURE_BONUS_MILLIS = 3000; // Действие модной стрижки: 30 минут игрового времени
+    private GameInput computerInput;     // Соперник-компьютер
+    private GameState state;             // Партия; map и замки ниже — её же объекты
     public GameMap map;
     public Castle playerCastle;
     private Castle computerCastle;
-    private boolean isPlayerTurn;
     private boolean castleCaptured;
     public String username;
     private String mapName;
-    private final Hotel hotel = new Hotel();
-    private final Cafe cafe = new Cafe();
-    private final Barbershop barbershop = new Barbershop();
-    private final List<Npc> npcs = new ArrayList<>();
+    private final EventScheduler town = new EventScheduler(); // Часы города: визиты NPC и игрока
+    private final Hotel hotel;
+    private final Cafe cafe;
+    private final Barbershop barbershop;
+    private final NpcPopulation npcs;                    // Жители города
+    private final Set<CompletableFuture<Visit>> waits = ConcurrentHashMap.newKeySet(); // Очереди, где стоит игрок
+    private final Queue<Action> townBonuses = new ConcurrentLinkedQueue<>(); // Бонусы визитов, ждущие хода игрока
+    private final SaveService saves = new SaveService(); // Фоновая запись сохранений
+    private SaveJournal saveJournal;                     // Журнал изменений для автосохранений
+    private Leaderboard leaderboard;                     // Таблица рекордов
 
     private void initNpcs() {
-        for (int i = 0; i < 10; i++) {
-            Npc npc = new Npc(i, hotel, cafe, barbershop);
-            new Thread(npc).start();
-            npcs.add(npc);
-        }
+        npcs.spawn(NPC_COUNT, gameRandom, town);
+        town.startRealTime();
     }
 
     public Game() {
+        this(new GameRandom());
+    }
+
+    // Партия с заданным зерном: при тех же ходах игрока случайность повторяется
+    public Game(long seed) {
+        this(new GameRandom(seed));
+    }
+
+    private Game(GameRandom gameRandom) {
+        this.gameRandom = gameRandom;
+        hotel = new Hotel(town::now);
+        cafe = new Cafe(gameRandom.split(GameRandom.Stream.FACILITIES), town::now);
+        barbershop = new Barbershop(gameRandom.split(GameRandom.Stream.FACILITIES), town::now);
+        npcs = new NpcPopulation(hotel, cafe, barbershop);
         initNpcs();
         initializeGame();
     }
 
     private void initializeGame() {
         scanner = new Scanner(System.in);
-        random = new Random();
         askForUsername();
+        askForOpponent();
 
         boolean proceed = false;
         while (!proceed) {
             proceed = showMapMenu();
         }
 
-        // Find castle positions from loaded map
-        int[] playerCastlePos = findCastlePosition(Tile.Type.CASTLE_PLAYER);
-        int[] computerCastlePos = findCastlePosition(Tile.Type.CASTLE_COMP);
+        setState(GameState.newGame(map, username, GameOutput.CONSOLE));
+        castleCaptured = false;
+    }
 
-        // Use default positions if not found
-        if (playerCastlePos == null) {
-            playerCastlePos = new int[]{0, 0};
+    private void setState(GameState state) {
+        this.state = state;
+        ActionJournal.attach(state, UNDO_DEPTH);
+        if (saveJournal != null) {
+            saveJournal.close();
         }
-        if (computerCastlePos == null) {
-            computerCastlePos = new int[]{GameMap.WIDTH - 1, GameMap.HEIGHT - 1};
-        }
-
-        playerCastle = new Castle(username, playerCastlePos[0], playerCastlePos[1]);
-        computerCastle = new Castle("Компьютер", computerCastlePos[0], computerCastlePos[1]);
-        initializeStartingUnits();
-
-        isPlayerTurn = true;
-        castleCaptured = false;
+        saveJournal = SaveJournal.attach(state, Path.of(savePath(".sav")), Path.of(savePath(".journal")), saves);
+        this.map = state.getMap();
+        this.playerCastle = state.getPlayerCastle();
+        this.computerCastle = state.getComputerCastle();
     }
 
     private void askForUsername() {
@@ -80,114 +121,99 @@ public class Game {
         System.out.println("Начинаем игру...");
     }
 
-    public void savePlayerRating() {
-        File ratingFile = new File("rating.csv");
-        boolean fileExists = ratingFile.exists();
-
-        try (FileWriter fw = new FileWriter("rating.csv", true);
-             BufferedWriter bw = new BufferedWriter(fw);
-             PrintWriter out = new PrintWriter(bw)) {
-
-            // Write header if file is new
-            if (!fileExists) {
-                out.println("username;points;map");
+    private void askForOpponent() {
+        while (true) {
+            System.out.println("Выберите соперника:");
+            System.out.println("1. Обычный (перебор альфа-бета)");
+            System.out.println("2. Сильный (Монте-Карло на всех ядрах)");
+            System.out.print("Ваш выбор: ");
+            String choice = scanner.nextLine().trim();
+            switch (choice) {
+                case "1" -> computerInput = new SearchInput(COMPUTER_TURN_MILLIS, 64, COMPUTER_TABLE_MB);
+                case "2" -> computerInput = new MctsInput(COMPUTER_TURN_MILLIS);
+                default -> {
+                    System.out.println("Неверный ввод, попробуйте снова.");
+                    continue;
+                }
             }
+            return;
+        }
+    }
 
-            out.println(username + ";" + playerCastle.getPoints() + ";" + mapName);
-
+    public void savePlayerRating() {
+        int points = playerCastle.getPoints();
+        try {
+            Leaderboard scores = leaderboard();
+            scores.record(username, points, mapName);
+            System.out.printf("Результат на карте %s: %d место из %d партий (не хуже %.1f%% партий)%n",
+                    mapName, scores.rank(mapName, points), scores.getGameCount(mapName),
+                    scores.percentile(mapName, points));
         } catch (IOException e) {
             System.out.println("Не удалось сохранить рейтинг: " + e.getMessage());
         }
     }
 
-    private int[] findCastlePosition(Tile.Type castleType) {
-        for (int y = 0; y < GameMap.HEIGHT; y++) {
-            for (int x = 0; x < GameMap.WIDTH; x++) {
-                if (map.getTile(x, y).getType() == castleType) {
-                    return new int[]{x, y};
-                }
-            }
+    // Таблица рекордов открывается при первом обращении: читается компактный индекс, а не вся история
+    private Leaderboard leaderboard() throws IOException {
+        if (leaderboard == null) {
+            leaderboard = Leaderboard.open(Path.of("rating.csv"), Path.of("rating.idx"));
         }
-        return null;
-    }
-
-    private void initializeStartingUnits() {
-        Spearman spearman1 = new Spearman(playerCastle.getX(), playerCastle.getY(), true, playerCastle);
-        playerCastle.buyUnit(spearman1);
-        map.addUnit(spearman1);
-
-        Spearman spearman2 = new Spearman(computerCastle.getX(), computerCastle.getY(), false, computerCastle);
-        computerCastle.buyUnit(spearman2);
-        map.addUnit(spearman2);
+        return leaderboard;
     }
 
     public void start() {
         try {
             while (true) {
+                if (state.isPlayerTurn()) {
+                    applyTownBonuses();
+                }
                 updateGameState();
 
-                if (checkGameEndConditions()) {
+                if (state.isOver() || checkCastleCapturedCondition()) {
+                    saves.flush(); // Последнее сохранение партии должно дойти до диска
                     savePlayerRating();
                     break;
                 }
 
-                if (isPlayerTurn) {
+                if (state.isPlayerTurn()) {
                     playerTurn();
                 } else {
-                    computerTurn();
+                    state.playTurn(computerInput);
                 }
 
-                isPlayerTurn = !isPlayerTurn;
                 Menu.printTurnSeparator();
             }
         } finally {
+            waits.forEach(wait -> wait.cancel(false));
+            computerInput.close();
+            npcs.close();
+            town.close();
+            saves.close();
             scanner.close();
         }
     }
 
     public void displayBestScores() {
-        File ratingFile = new File("rating.csv");
-        if (!ratingFile.exists()) {
-            System.out.println("Рейтинговая таблица пока пуста.");
-            return;
-        }
-
-        Map<String, Integer> bestScores = new HashMap<>();
-
-        try (Scanner fileScanner = new Scanner(ratingFile)) {
-            // Skip header line
-            if (fileScanner.hasNextLine()) {
-                fileScanner.nextLine();
-            }
-
-            while (fileScanner.hasNextLine()) {
-                String line = fileScanner.nextLine();
-                String[] parts = line.split(";");
-                if (parts.length >= 2) {
-                    String username = parts[0];
-                    try {
-                        int points = Integer.parseInt(parts[1]);
-                        // Update best score for this user
-                        bestScores.merge(username, points, Math::max);
-                    } catch (NumberFormatException e) {
-                        System.err.println("Ошибка формата очков в строке: " + line);
-                    }
-                }
-            }
+        Leaderboard scores;
+        try {
+            scores = leaderboard();
         } catch (IOException e) {
             System.out.println("Не удалось прочитать рейтинговую таблицу: " + e.getMessage());
             return;
         }
 
-        if (bestScores.isEmpty()) {
+        if (scores.getPlayerCount() == 0) {
             System.out.println("Рейтинговая таблица пока пуста.");
             return;
         }
 
         System.out.println("\nЛучшие результаты игроков:");
-        bestScores.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .forEach(entry -> System.out.println(entry.getKey() + ": " + entry.getValue()));
+        for (Leaderboard.Score score : scores.topPlayers(TOP_PLAYERS)) {
+            System.out.println(score.user() + ": " + score.points());
+        }
+        if (scores.getPlayerCount() > TOP_PLAYERS) {
+            System.out.println("... и ещё игроков: " + (scores.getPlayerCount() - TOP_PLAYERS));
+        }
         System.out.println();
     }
 
@@ -197,58 +223,6 @@ public class Game {
         computerCastle.printCastleInfo();
     }
 
-    private boolean checkGameEndConditions() {
-        return checkPlayerVictoryConditions() ||
-                checkPlayerDefeatConditions() ||
-                checkCastleCapturedCondition();
-    }
-
-    private boolean checkPlayerVictoryConditions() {
-        // Check if player's hero reached enemy castle
-        for (Unit unit : playerCastle.getUnits()) {
-            if (unit instanceof Hero &&
-                    unit.getX() == computerCastle.getX() &&
-                    unit.getY() == computerCastle.getY()) {
-                playerCastle.addPoints(20);
-                System.out.println("🎉 Герой игрока достиг вражеского замка! Победа!");
-                System.out.println("+ 20 очков за победу!");
-                return true;
-            }
-        }
-
-        // Check if all enemy units are destroyed
-        if (computerCastle.getUnits().isEmpty()) {
-            playerCastle.addPoints(15);
-            System.out.println("🎉 Все вражеские юниты уничтожены! Победа!");
-            System.out.println("+ 15 очков за победу!");
-            return true;
-        }
-
-        return false;
-    }
-
-    private boolean checkPlayerDefeatConditions() {
-        // Check if player has no units
-        if (playerCastle.getUnits().isEmpty()) {
-            System.out.println("💀 Все ваши юниты уничтожены! Поражение...");
-            savePlayerRating();
-            return true;
-        }
-
-        // Check if enemy hero reached player's castle
-        for (Unit unit : computerCastle.getUnits()) {
-            if (unit instanceof Hero &&
-                    unit.getX() == playerCastle.getX() &&
-                    unit.getY() == playerCastle.getY()) {
-                System.out.println("💀 Вражеский герой достиг вашего замка! Поражение...");
-                savePlayerRating();
-                return true;
-            }
-        }
-
-        return false;
-    }
-
     private boolean checkCastleCapturedCondition() {
         if (castleCaptured) {
             computerCastle.resetSteps();
@@ -261,33 +235,33 @@ public class Game {
 
     // =========== Меню игрока ===========
 
+    // Выбор в меню превращается в действия движка; любой выбор завершает ход
     private void playerTurn() {
         Menu.showMainMenu();
-        playerCastle.resetSteps();
         System.out.print("Ваш выбор: ");
         int choice = scanner.nextInt();
 
         switch (choice) {
             case 1:
-                moveUnits(playerCastle);
+                moveUnits();
                 break;
             case 2:
-                recruitUnit(playerCastle, true);
+                recruitUnit();
                 break;
             case 3:
                 System.out.println("Игрок пропускает ход.");
                 break;
             case 4:
-                attackWithUnits(playerCastle);
+                attackWithUnits();
                 break;
             case 5:
-                buildBuilding(playerCastle);
+                buildBuilding();
                 break;
             case 6:
-                moveAndAttackUnits(playerCastle);
+                moveAndAttackUnits();
                 break;
             case 7:
-                saveGameState();
+                saveGame();
                 break;
             case 8:
                 loadGame();
@@ -301,215 +275,134 @@ public class Game {
             case 11:
                  visitBarbershop();
                 break;
+            case 12:
+                undoTurn();
+                return; // Ход не заканчивается: игрок ходит заново
+            case 13:
+                redoTurn();
+                return;
+            case 14:
+                saveGameState();
+                return;
             default:
                 System.out.println("Неверный ввод, попробуйте снова.");
         }
+        state.applyAction(new Action.EndTurn());
     }
 
     // =========== Меню игрока ===========
 
-    private void computerTurn() {
-        computerCastle.resetSteps();
-        int aiChoice = random.nextInt(5) + 1;
-        System.out.println("Ход компьютера. Компьютер выбирает: " + aiChoice);
-
-        switch (aiChoice) {
-            case 1:
-                moveUnits(computerCastle);
-                break;
-            case 2:
-                recruitUnit(computerCastle, false);
-                break;
-            case 3:
-                System.out.println("Компьютер пропускает ход.");
-                break;
-            case 4:
-                attackWithUnits(computerCastle);
-                break;
-            case 5:
-                buildBuilding(computerCastle);
-                break;
+    // Отмена своего прошлого хода вместе с ответом компьютера (например, после опечатки в координатах)
+    private void undoTurn() {
+        ActionJournal journal = state.getJournal();
+        int turn = state.getTurn() - 2;
+        if (turn < 0 || !journal.canRewindTo(turn)) {
+            System.out.println("Нечего отменять.");
+            return;
         }
+        journal.rewindTo(turn);
+        System.out.println("Прошлый ход отменён.");
     }
 
-    private void moveUnits(Castle castle) {
-        if (castle.getUnits().isEmpty()) {
-            System.out.println("Нет юнитов для перемещения!");
+    private void redoTurn() {
+        if (!state.getJournal().replayTo(state.getTurn() + 2)) {
+            System.out.println("Нечего возвращать.");
             return;
         }
-
-        for (Unit unit : castle.getUnits()) {
-            int newX, newY;
-            if (castle == playerCastle) {
-                System.out.println("Выберите новую позицию для " + unit.getSymbol());
-                System.out.print("Введите X: ");
-                newX = scanner.nextInt();
-                System.out.print("Введите Y: ");
-                newY = scanner.nextInt();
-            } else {
-                newX = random.nextInt(GameMap.WIDTH);
-                newY = random.nextInt(GameMap.HEIGHT);
-                System.out.println("Компьютер вводит X: " + newX + ", Y: " + newY);
-            }
-            unit.move(newX, newY, map, castle);
-        }
-
-        // Remove units with zero HP
-        castle.getUnits().removeIf(unit -> unit.hp == 0);
+        System.out.println("Отменённый ход возвращён.");
     }
 
-    private void recruitUnit(Castle castle, boolean isPlayer) {
-        Unit unit;
-        if (isPlayer) {
-            Menu.showUnitsMenu();
-            System.out.print("Ваш выбор: ");
-            int choiceUnit = scanner.nextInt();
-            unit = createPlayerUnit(choiceUnit, castle);
-        } else {
-            int aiChoiceUnit = random.nextInt(6) + 1;
-            unit = createComputerUnit(aiChoiceUnit, castle);
+    private void moveUnits() {
+        if (playerCastle.getUnits().isEmpty()) {
+            System.out.println("Нет юнитов для перемещения!");
+            return;
         }
 
-        if (unit != null) {
-            boolean ok = castle.buyUnit(unit);
-            if (ok) {
-                map.addUnit(unit);
-                if (isPlayer) saveGameState();
-            }
+        for (Unit unit : new ArrayList<>(playerCastle.getUnits())) {
+            System.out.println("Выберите новую позицию для " + unit.getSymbol());
+            System.out.print("Введите X: ");
+            int newX = scanner.nextInt();
+            System.out.print("Введите Y: ");
+            int newY = scanner.nextInt();
+            applyToUnit(unit, index -> new Action.Move(index, newX, newY));
         }
     }
 
-    private Unit createPlayerUnit(int choice, Castle castle) {
-        return switch (choice) {
-            case 1 -> new Spearman(castle.getX(), castle.getY(), true, castle);
-            case 2 -> new Crossbowman(castle.getX(), castle.getY(), true, castle);
-            case 3 -> new Swordsman(castle.getX(), castle.getY(), true, castle);
-            case 4 -> new Cavalryman(castle.getX(), castle.getY(), true, castle);
-            case 5 -> new Paladin(castle.getX(), castle.getY(), true, castle);
-            case 6 -> new Hero(castle.getX(), castle.getY(), true, castle);
-            default -> {
-                System.out.println("Неверный ввод, попробуйте снова.");
-                yield null;
-            }
-        };
-    }
-
-    private Unit createComputerUnit(int choice, Castle castle) {
-        return switch (choice) {
-            case 1 -> new Spearman(castle.getX(), castle.getY(), false, castle);
-            case 2 -> new Crossbowman(castle.getX(), castle.getY(), false, castle);
-            case 3 -> new Swordsman(castle.getX(), castle.getY(), false, castle);
-            case 4 -> new Cavalryman(castle.getX(), castle.getY(), false, castle);
-            case 5 -> new Paladin(castle.getX(), castle.getY(), false, castle);
-            case 6 -> new Hero(castle.getX(), castle.getY(), false, castle);
-            default -> null;
-        };
+    private void recruitUnit() {
+        Menu.showUnitsMenu();
+        System.out.print("Ваш выбор: ");
+        int choiceUnit = scanner.nextInt();
+        if (state.applyAction(new Action.Recruit(choiceUnit))) {
+            autosave();
+        }
     }
 
-    private void attackWithUnits(Castle castle) {
-        if (castle.getUnits().isEmpty()) {
+    private void attackWithUnits() {
+        if (playerCastle.getUnits().isEmpty()) {
             System.out.println("Нет юнитов!");
             return;
         }
 
-        for (Unit unit : castle.getUnits()) {
-            int newX, newY;
-            if (castle == playerCastle) {
-                System.out.println("Выберите новую позицию для " + unit.getSymbol());
-                System.out.print("Введите X: ");
-                newX = scanner.nextInt();
-                System.out.print("Введите Y: ");
-                newY = scanner.nextInt();
-            } else {
-                newX = random.nextInt(GameMap.WIDTH);
-                newY = random.nextInt(GameMap.HEIGHT);
-                System.out.println("Компьютер вводит X: " + newX + ", Y: " + newY);
-            }
-            unit.attack(newX, newY, map);
+        for (Unit unit : new ArrayList<>(playerCastle.getUnits())) {
+            System.out.println("Выберите новую позицию для " + unit.getSymbol());
+            System.out.print("Введите X: ");
+            int newX = scanner.nextInt();
+            System.out.print("Введите Y: ");
+            int newY = scanner.nextInt();
+            applyToUnit(unit, index -> new Action.Attack(index, newX, newY));
         }
     }
 
-    private void moveAndAttackUnits(Castle castle) {
-        if (castle.getUnits().isEmpty()) {
+    private void moveAndAttackUnits() {
+        if (playerCastle.getUnits().isEmpty()) {
             System.out.println("Нет юнитов для перемещения!");
             return;
         }
 
-        for (Unit unit : castle.getUnits()) {
+        for (Unit unit : new ArrayList<>(playerCastle.getUnits())) {
             System.out.println("Выберите новую позицию для " + unit.getSymbol());
             System.out.print("Введите X: ");
             int newX = scanner.nextInt();
             System.out.print("Введите Y: ");
             int newY = scanner.nextInt();
-            unit.move(newX, newY, map, castle);
+            applyToUnit(unit, index -> new Action.Move(index, newX, newY));
 
             System.out.print("Введите X для атаки: ");
             int targetX = scanner.nextInt();
             System.out.print("Введите Y для атаки: ");
             int targetY = scanner.nextInt();
-            unit.attack(targetX, targetY, map);
+            applyToUnit(unit, index -> new Action.Attack(index, targetX, targetY));
         }
     }
 
-    private void buildBuilding(Castle castle) {
-        String building;
-        if (castle == playerCastle) {
-            Menu.showBuildingsMenu();
-            System.out.print("Ваш выбор: ");
-            int choiceBuilding = scanner.nextInt();
-            building = getBuildingName(choiceBuilding);
-        } else {
-            int aiChoiceBuilding = random.nextInt(7) + 1;
-            building = getBuildingName(aiChoiceBuilding);
+    // Действия ссылаются на юнита по номеру в замке; номер берётся заново, так как юниты могут погибнуть
+    private void applyToUnit(Unit unit, IntFunction<Action> action) {
+        int index = playerCastle.getUnits().indexOf(unit);
+        if (index >= 0) {
+            state.applyAction(action.apply(index));
         }
+    }
 
-        if (building != null) {
-            if (castle.build(building)) {
-                if (building.equals("Таверна") && castle == playerCastle) {
-                    playDrunkardGame();
-                }
-                if (castle == playerCastle) saveGameState();
-            }
+    private void buildBuilding() {
+        Menu.showBuildingsMenu();
+        System.out.print("Ваш выбор: ");
+        int choiceBuilding = scanner.nextInt();
+        if (choiceBuilding < 1 || choiceBuilding > GameState.BUILDINGS.size()) {
+            System.out.println("Неверный ввод, попробуйте снова.");
+            return;
         }
-    }
 
-    private String getBuildingName(int choice) {
-        return switch (choice) {
-            case 1 -> "Таверна";
-            case 2 -> "Конюшня";
-            case 3 -> "Сторожевой пост";
-            case 4 -> "Башня арбалетчиков";
-            case 5 -> "Оружейная";
-            case 6 -> "Арена";
-            case 7 -> "Собор";
-            default -> {
-                System.out.println("Неверный ввод, попробуйте снова.");
-                yield null;
+        String building = GameState.BUILDINGS.get(choiceBuilding - 1);
+        if (state.applyAction(new Action.Build(building))) {
+            if (building.equals("Таверна")) {
+                playDrunkardGame();
             }
-        };
+            autosave();
+        }
     }
 
     private void performCapturedCastleTurn() {
-        int aiChoice = random.nextInt(5) + 1;
-        System.out.println("Ход компьютера. Компьютер выбирает: " + aiChoice);
-
-        switch (aiChoice) {
-            case 1:
-                moveUnits(computerCastle);
-                break;
-            case 2:
-                recruitUnit(computerCastle, false);
-                break;
-            case 3:
-                System.out.println("Компьютер пропускает ход.");
-                break;
-            case 4:
-                attackWithUnits(computerCastle);
-                break;
-            case 5:
-                buildBuilding(computerCastle);
-                break;
-        }
+        state.playTurn(computerInput);
     }
 
     private boolean showMapMenu() {
@@ -601,25 +494,14 @@ public class Game {
         }
 
         try (Scanner fileScanner = new Scanner(mapFile)) {
-            GameMap newMap = new GameMap(true); // Create empty map
-
-            int y = 0;
-            while (fileScanner.hasNextLine() && y < GameMap.HEIGHT) {
-                String line = fileScanner.nextLine();
-                String[] tiles = line.split(";");
-
-                for (int x = 0; x < tiles.length && x < GameMap.WIDTH; x++) {
-                    try {
-                        Tile.Type type = Tile.Type.valueOf(tiles[x]);
-                        newMap.setTile(x, y, type);
-                    } catch (IllegalArgumentException e) {
-                        System.out.println("Неверный тип клетки в файле карты: " + tiles[x]);
-                    }
-                }
-                y++;
+            List<String> rows = new ArrayList<>();
+            while (fileScanner.hasNextLine()) {
+                String line = fileScanner.nextLine().trim();
+                if (line.isEmpty()) break;
+                rows.add(line);
             }
 
-            return newMap;
+            return CsvSave.parseMapRows(rows, gameRandom, "Неверный тип клетки в файле карты: ");
         } catch (IOException e) {
             System.out.println("Ошибка при загрузке карты: " + e.getMessage());
             return null;
@@ -632,7 +514,7 @@ public class Game {
         System.out.println("\nРедактор карт");
 
         // Create default 10x10 grass map
-        GameMap newMap = new GameMap(true); // We'll modify GameMap constructor
+        GameMap newMap = new GameMap(GameMap.WIDTH, GameMap.HEIGHT, true, gameRandom); // We'll modify GameMap constructor
 
         // Ask for map name
         System.out.print("Введите название карты: ");
@@ -683,13 +565,13 @@ public class Game {
     }
 
     private void addTileToMap(GameMap map, Tile.Type tileType) {
-        System.out.print("Введите координату X (0-9): ");
+        System.out.print("Введите координату X (0-" + (map.getWidth() - 1) + "): ");
         int x = scanner.nextInt();
-        System.out.print("Введите координату Y (0-9): ");
+        System.out.print("Введите координату Y (0-" + (map.getHeight() - 1) + "): ");
         int y = scanner.nextInt();
         scanner.nextLine(); // consume newline
 
-        if (x >= 0 && x < GameMap.WIDTH && y >= 0 && y < GameMap.HEIGHT) {
+        if (map.inBounds(x, y)) {
             map.setTile(x, y, tileType);
             System.out.println("Тип клетки изменен на: " + tileType);
         } else {
@@ -708,185 +590,77 @@ public class Game {
         }
 
         try (FileWriter writer = new FileWriter("maps/" + mapName + ".csv")) {
-            for (int y = 0; y < GameMap.HEIGHT; y++) {
-                for (int x = 0; x < GameMap.WIDTH; x++) {
-                    writer.write(map.getTile(x, y).getType().name());
-                    if (x < GameMap.WIDTH - 1) writer.write(";");
-                }
-                writer.write("\n");
-            }
+            CsvSave.writeMapRows(writer, map);
             System.out.println("Карта успешно сохранена!");
         } catch (IOException e) {
             System.out.println("Ошибка при сохранении карты: " + e.getMessage());
         }
     }
 
+    // Обычное сохранение — двоичный снимок (BinarySave): пишется и читается быстро даже на больших картах.
+    // Сохранение из меню дожидается записи, чтобы сообщить о результате
+    public void saveGame() {
+        new File("saves").mkdirs(); // Create saves directory if not exists
+        saveJournal.checkpoint();
+        saves.flush();
+        if (saves.getLastError() == null) {
+            System.out.printf("Игра успешно сохранена: %s (записей %d из %d запросов, запись в среднем %.1f мс)%n",
+                    savePath(".sav"), saves.getWrites(), saves.getRequests(), saves.getAverageWriteMillis());
+        }
+    }
+
+    // Автосохранение после найма и постройки: в журнал дописываются только изменения с прошлого раза,
+    // снимок целиком пишется в фоне, когда журнал перерастает его
+    private void autosave() {
+        new File("saves").mkdirs(); // Create saves directory if not exists
+        saveJournal.sync();
+    }
+
+    // Экспорт в текстовый CSV, который можно читать и править руками
     public void saveGameState() {
         new File("saves").mkdirs(); // Create saves directory if not exists
-        String filename = "saves/game." + username + ".csv";
-
-        try (FileWriter writer = new FileWriter(filename)) {
-            // Save castles state
-            writer.write("[Castles]\n");
-            saveCastleState(writer, playerCastle);
-            saveCastleState(writer, computerCastle);
-
-            // Save units state
-            writer.write("\n[Units]\n");
-            saveUnitsState(writer, playerCastle);
-            saveUnitsState(writer, computerCastle);
-
-            // Save map state
-            writer.write("\n[Map]\n");
-            for (int y = 0; y < GameMap.HEIGHT; y++) {
-                for (int x = 0; x < GameMap.WIDTH; x++) {
-                    writer.write(map.getTile(x, y).getType().name());
-                    if (x < GameMap.WIDTH - 1) writer.write(";");
-                }
-                writer.write("\n");
-            }
+        String filename = savePath(".csv");
 
+        try {
+            CsvSave.write(state, Path.of(filename));
             System.out.println("Игра успешно сохранена: " + filename);
         } catch (IOException e) {
             System.out.println("Ошибка сохранения: " + e.getMessage());
         }
     }
 
-    private void saveCastleState(FileWriter writer, Castle castle) throws IOException {
-        writer.write(String.format("%s;%d;%d;%d;%d;%s;%d;%d\n",
-                castle.getOwner(),
-                castle.getGold(),
-                castle.getPoints(),
-                castle.getX(),
-                castle.getY(),
-                String.join(",", castle.getBuildings()),
-                castle.getSteps(),
-                castle == playerCastle ? 1 : 0
-        ));
-    }
-
-    private void saveUnitsState(FileWriter writer, Castle castle) throws IOException {
-        for (Unit unit : castle.getUnits()) {
-            writer.write(String.format("%s;%d;%d;%d;%s\n",
-                    unit.getClass().getSimpleName(),
-                    unit.getX(),
-                    unit.getY(),
-                    unit.hp,
-                    castle.getOwner()
-            ));
-        }
+    private String savePath(String extension) {
+        return "saves/game." + username + extension;
     }
 
     // =========== Сохранение карты ===========
 
     // =========== Загрузка карты ===========
 
+    // Загружается более свежее из двоичного сохранения (снимок и журнал изменений за ним) и CSV:
+    // так CSV, поправленный руками, импортируется
     public void loadGame() {
-        String filename = "saves/game." + username + ".csv";
-        File saveFile = new File(filename);
+        saves.flush(); // Читать нужно последнее сохранение, а не то, что успело записаться
+        File binaryFile = new File(savePath(".sav"));
+        File journalFile = new File(savePath(".journal"));
+        File csvFile = new File(savePath(".csv"));
 
-        if (!saveFile.exists()) {
+        if (!binaryFile.exists() && !csvFile.exists()) {
             System.out.println("Сохранение не найдено!");
             return;
         }
+        long binaryModified = Math.max(binaryFile.lastModified(), journalFile.lastModified());
+        boolean binary = binaryFile.exists()
+                && (!csvFile.exists() || binaryModified >= csvFile.lastModified());
 
-        try (Scanner fileScanner = new Scanner(saveFile)) {
-            Castle loadedPlayerCastle = null;
-            Castle loadedComputerCastle = null;
-            GameMap loadedMap = null;
-            List<Unit> loadedUnits = new ArrayList<>();
-
-            while (fileScanner.hasNextLine()) {
-                String line = fileScanner.nextLine().trim();
-
-                if (line.equals("[Castles]")) {
-                    // Parse castles
-                    while (fileScanner.hasNextLine()) {
-                        line = fileScanner.nextLine().trim();
-                        if (line.isEmpty()) break;
-
-                        String[] parts = line.split(";");
-                        if (parts.length < 8) continue;
-
-                        String owner = parts[0];
-                        int gold = Integer.parseInt(parts[1]);
-                        int points = Integer.parseInt(parts[2]);
-                        int x = Integer.parseInt(parts[3]);
-                        int y = Integer.parseInt(parts[4]);
-                        List<String> buildings = new ArrayList<>(Arrays.asList(parts[5].split(",")));
-                        int steps = Integer.parseInt(parts[6]);
-                        boolean isPlayer = parts[7].equals("1");
-
-                        Castle castle = new Castle(owner, x, y);
-                        castle.setGold(gold);
-                        castle.setPoints(points);
-                        castle.getBuildings().addAll(buildings);
-                        castle.setSteps(steps);
-
-                        if (isPlayer) {
-                            loadedPlayerCastle = castle;
-                        } else {
-                            loadedComputerCastle = castle;
-                        }
-                    }
-                } else if (line.equals("[Units]")) {
-                    // Parse units
-                    while (fileScanner.hasNextLine()) {
-                        line = fileScanner.nextLine().trim();
-                        if (line.isEmpty()) break;
-
-                        String[] parts = line.split(";");
-                        if (parts.length < 5) continue;
-
-                        String className = parts[0];
-                        int x = Integer.parseInt(parts[1]);
-                        int y = Integer.parseInt(parts[2]);
-                        int hp = Integer.parseInt(parts[3]);
-                        String unitOwner = parts[4];
-
-                        Castle ownerCastle = unitOwner.equals(loadedPlayerCastle.getOwner()) ?
-                                loadedPlayerCastle : loadedComputerCastle;
-                        Unit unit = createUnitFromClassName(className, x, y,
-                                ownerCastle == loadedPlayerCastle, ownerCastle);
-
-                        if (unit != null) {
-                            unit.hp = hp;
-                            ownerCastle.getUnits().add(unit);
-                            loadedUnits.add(unit);
-                        }
-                    }
-                } else if (line.equals("[Map]")) {
-                    // Parse map
-                    loadedMap = new GameMap(true);
-                    int yCoord = 0;
-                    while (fileScanner.hasNextLine() && yCoord < GameMap.HEIGHT) {
-                        line = fileScanner.nextLine().trim();
-                        if (line.isEmpty()) break;
-
-                        String[] tiles = line.split(";");
-                        for (int x = 0; x < tiles.length && x < GameMap.WIDTH; x++) {
-                            try {
-                                Tile.Type type = Tile.Type.valueOf(tiles[x]);
-                                loadedMap.setTile(x, yCoord, type);
-                            } catch (IllegalArgumentException e) {
-                                System.out.println("Неверный тип клетки при загрузке: " + tiles[x]);
-                            }
-                        }
-                        yCoord++;
-                    }
-                }
-            }
+        try {
+            GameState loaded = binary
+                    ? SaveJournal.load(binaryFile.toPath(), journalFile.toPath(), gameRandom, GameOutput.CONSOLE)
+                    : CsvSave.read(csvFile.toPath(), gameRandom, GameOutput.CONSOLE);
 
             // Update game state
-            if (loadedPlayerCastle != null && loadedComputerCastle != null && loadedMap != null) {
-                this.playerCastle = loadedPlayerCastle;
-                this.computerCastle = loadedComputerCastle;
-                this.map = loadedMap;
-
-                // Add loaded units to the map
-                for (Unit unit : loadedUnits) {
-                    this.map.addUnit(unit);
-                }
+            if (loaded != null) {
+                setState(loaded);
 
                 System.out.println("Игра успешно загружена!");
                 updateGameState();
@@ -900,21 +674,6 @@ public class Game {
 
     // =========== Загрузка карты ===========
 
-    private Unit createUnitFromClassName(String className, int x, int y, boolean isPlayer, Castle castle) {
-        return switch (className) {
-            case "Spearman" -> new Spearman(x, y, isPlayer, castle);
-            case "Crossbowman" -> new Crossbowman(x, y, isPlayer, castle);
-            case "Swordsman" -> new Swordsman(x, y, isPlayer, castle);
-            case "Cavalryman" -> new Cavalryman(x, y, isPlayer, castle);
-            case "Paladin" -> new Paladin(x, y, isPlayer, castle);
-            case "Hero" -> new Hero(x, y, isPlayer, castle);
-            default -> {
-                System.out.println("Неизвестный тип юнита: " + className);
-                yield null;
-            }
-        };
-    }
-
     // =========== Пьяница ===========
 
     private void playDrunkardGame() {
@@ -944,8 +703,8 @@ public class Game {
             playerDeck.add(i);
             computerDeck.add(i);
         }
-        Collections.shuffle(playerDeck);
-        Collections.shuffle(computerDeck);
+        Collections.shuffle(playerDeck, gameRandom.stream(GameRandom.Stream.MINIGAME));
+        Collections.shuffle(computerDeck, gameRandom.stream(GameRandom.Stream.MINIGAME));
 
         // Игровой процесс
         int playerWins = 0;
@@ -984,13 +743,12 @@ public class Game {
 
         if (playerWins > computerWins) {
             int winAmount = bet * 2;
-            playerCastle.setGold(playerCastle.getGold() + winAmount);
+            state.applyAction(new Action.AddGold(winAmount)); // Через журнал: отмена и автосохранение видят ставку
             System.out.println("Победа! Вы получаете " + winAmount + " золота!");
         } else if (computerWins > playerWins) {
-            playerCastle.setGold(playerCastle.getGold() - bet);
+            state.applyAction(new Action.AddGold(-bet));
             System.out.println("Поражение! Вы теряете " + bet + " золота.");
         } else {
-            playerCastle.setGold(playerCastle.getGold());
             System.out.println("Ничья! Ставка возвращена.");
         }
     }
@@ -1031,25 +789,9 @@ public class Game {
         int bonus = choice == 1 ? 2 : 3;
         long duration = choice == 1 ? 100 : 300;
 
-        if (hotel.tryEnter()) {
-            new Thread(() -> {
-                hotel.addVisitDuration(duration);
-                try {
-                    Thread.sleep(duration);
-                    applyHealthBonus(bonus);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                } finally {
-                    hotel.leave();
-                }
-            }).start();
-            System.out.println("Начался отдых! Ожидайте " + duration + "мс.");
-        }
-    }
-
-    private void applyHealthBonus(int bonus) {
-        playerCastle.getUnits().forEach(u -> u.addHealth(bonus));
-        System.out.println("Применен бонус +" + bonus + " к здоровью!");
+        startWhenAdmitted(hotel.enter(duration, TOWN_WAIT_MILLIS), duration,
+                "Номер освободился!", "Начался отдых! Ожидайте " + duration + "мс.",
+                new Action.Heal(bonus));
     }
 
     private void handleHotelFull() {
@@ -1057,20 +799,8 @@ public class Game {
         String answer = new Scanner(System.in).next();
 
         if (answer.equalsIgnoreCase("y")) {
-            new Thread(this::waitForRoom).start();
-        }
-    }
-
-    private void waitForRoom() {
-        while (hotel.getAvailableRooms() == 0) {
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            handlePlayerHotelChoice(); // Встаём в очередь отеля с выбранной услугой
         }
-        System.out.println("Номер освободился!");
-        visitHotel();
     }
 
     // =========== Отель ===========
@@ -1109,27 +839,9 @@ public class Game {
         int bonus = choice == 1 ? 2 : 3;
         long duration = choice == 1 ? 100 * 15 : 100 * 30; // 1.5 и 3 минуты
 
-        if (cafe.tryEnter()) {
-            new Thread(() -> {
-                cafe.startVisit(duration);
-                try {
-                    Thread.sleep(duration);
-                    applyMovementBonus(bonus);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                } finally {
-                    cafe.endVisit();
-                }
-            }).start();
-            System.out.println("Заказ принят! Ожидайте " + duration + "мс.");
-        }
-    }
-
-    private void applyMovementBonus(int bonus) {
-        playerCastle.getUnits().forEach(u ->
-                u.setMovement(u.getMovement() + bonus)
-        );
-        System.out.println("Бонус к перемещению +" + bonus + " применен!");
+        startWhenAdmitted(cafe.enter(duration, TOWN_WAIT_MILLIS), duration,
+                "Место освободилось!", "Заказ принят! Ожидайте " + duration + "мс.",
+                new Action.AddMovement(bonus));
     }
 
     private void handleCafeFull() {
@@ -1137,16 +849,7 @@ public class Game {
         String answer = new Scanner(System.in).next();
 
         if (answer.equalsIgnoreCase("y")) {
-            new Thread(() -> {
-                while (cafe.getAvailableSlots() == 0) {
-                    try {
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        break;
-                    }
-                }
-                visitCafe();
-            }).start();
+            handlePlayerCafeChoice(); // Встаём в очередь кафе с выбранным заказом
         }
     }
 
@@ -1184,35 +887,9 @@ public class Game {
         long duration = choice == 1 ? 1000 : 3000;
         boolean isFashion = choice == 2;
 
-        if (barbershop.tryEnter()) {
-            new Thread(() -> {
-                barbershop.startService(isFashion);
-                try {
-                    Thread.sleep(duration);
-                    if (isFashion) applyCastleCaptureBonus();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                } finally {
-                    barbershop.endService();
-                }
-            }).start();
-            System.out.println("Стрижка началась! Ожидайте " + duration + "мс.");
-        }
-    }
-
-    public void applyCastleCaptureBonus() {
-        // Пример реализации бонуса
-        playerCastle.setCaptureTimeReduction(true);
-        System.out.println("Время захвата замка сокращено до 1 хода!");
-
-        // Запланировать снятие бонуса
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                playerCastle.setCaptureTimeReduction(false);
-                System.out.println("Бонус сокращения времени захвата закончился");
-            }
-        }, 3000); // 3000ms = 30 минут игрового времени
+        startWhenAdmitted(barbershop.enter(isFashion, TOWN_WAIT_MILLIS), duration,
+                "Кресло освободилось!", "Стрижка началась! Ожидайте " + duration + "мс.",
+                isFashion ? new Action.CaptureReduction(true) : null);
     }
 
     public void handleBarberFull() {
@@ -1220,18 +897,64 @@ public class Game {
         String answer = new Scanner(System.in).next();
 
         if (answer.equalsIgnoreCase("y")) {
-            new Thread(() -> {
-                while (barbershop.getAvailableSeats() == 0) {
-                    try { Thread.sleep(500); }
-                    catch (InterruptedException e) { break; }
-                }
-                visitBarbershop();
-            }).start();
+            handlePlayerBarberChoice(); // Встаём в очередь парикмахерской с выбранной стрижкой
         }
     }
 
     // =========== Парикмахерская ===========
 
+    // Визит игрока начинается, как только место получено: сразу или в свою очередь.
+    // Ожидание не занимает поток — продолжение вызовет тот, кто освободит место.
+    // Бонус (если есть) по окончании визита встаёт в townBonuses: юнитов меняет только поток игры
+    private void startWhenAdmitted(CompletableFuture<Visit> place, long duration, String freedMessage,
+                                   String startMessage, Action bonus) {
+        boolean queued = !place.isDone();
+        if (queued) {
+            waits.add(place);
+            System.out.println("Вы в очереди. Ожидайте не дольше " + TOWN_WAIT_MILLIS / 1000 + " с.");
+        }
+        place.whenComplete((visit, error) -> {
+            waits.remove(place);
+            if (error instanceof TimeoutException) {
+                System.out.println("Место так и не освободилось.");
+            }
+            if (error != null) {
+                return;
+            }
+            if (queued) {
+                System.out.println(freedMessage);
+            }
+            System.out.println(startMessage);
+            town.schedule(duration, () -> {
+                try {
+                    if (bonus != null) {
+                        townBonuses.add(bonus);
+                    }
+                } finally {
+                    visit.close();
+                }
+            });
+        });
+    }
+
+    // Бонусы закончившихся визитов применяются в начале хода игрока как обычные действия:
+    // на потоке игры и через журнал, поэтому их видят отмена и автосохранение
+    private void applyTownBonuses() {
+        boolean applied = false;
+        for (Action bonus = townBonuses.poll(); bonus != null; bonus = townBonuses.poll()) {
+            if (!state.applyAction(bonus)) {
+                continue;
+            }
+            applied = true;
+            if (bonus instanceof Action.CaptureReduction reduction && reduction.enabled()) {
+                town.schedule(CAPTURE_BONUS_MILLIS, () -> townBonuses.add(new Action.CaptureReduction(false)));
+            }
+        }
+        if (applied) {
+            autosave();
+        }
+    }
+
     public static void main(String[] args) {
         Game game = new Game();
         game.start();
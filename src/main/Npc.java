@@ -3,18 +3,31 @@ package main;
 import main.buildings.Barbershop;
 import main.buildings.Cafe;
 import main.buildings.Hotel;
+import main.buildings.Visit;
+import main.sim.EventScheduler;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
+// Житель города: пауза 1–5 с, визит в случайное здание, снова пауза.
+// Живёт либо в своём потоке (run), либо событиями на модельных часах (start) — решения одинаковы.
 public class Npc implements Runnable {
     private int id;
     private Hotel hotel;
     private final Cafe cafe;
     private final Barbershop barbershop;
-    private final Random random = new Random();
+    private final SplittableRandom random; // Своя ветка у каждого NPC: нити не делят генератор
+    private volatile long attempts; // Пишет только сам NPC: его поток или часы города
+    private volatile long visits;
+    private volatile boolean stopped;
+    private Visit visit;            // Текущий визит
 
     public Npc(int id, Hotel hotel, Cafe cafe, Barbershop barbershop) {
+        this(id, hotel, cafe, barbershop, new SplittableRandom());
+    }
+
+    public Npc(int id, Hotel hotel, Cafe cafe, Barbershop barbershop, SplittableRandom random) {
         this.id = id;
+        this.random = random;
         this.hotel = hotel;
         this.cafe = cafe;
         this.barbershop = barbershop;
@@ -24,69 +37,72 @@ public class Npc implements Runnable {
     public void run() {
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                Thread.sleep(random.nextInt(4000) + 1000);
-                visitRandomBuilding();
+                Thread.sleep(pause());
+                if (enterRandomBuilding()) {
+                    try {
+                        Thread.sleep(visit.getDuration());
+                    } finally {
+                        leaveBuilding();
+                    }
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
     }
 
-    private void visitRandomBuilding() {
-        int choice = random.nextInt(3);
-        switch (choice) {
-            case 0 -> visitHotel();
-            case 1 -> visitCafe();
-            case 2 -> visitBarbershop();
-        }
+    // Тот же распорядок событиями: поток не нужен, время идёт по часам scheduler
+    public void start(EventScheduler scheduler) {
+        scheduler.schedule(pause(), () -> wake(scheduler));
     }
 
-    private void visitHotel() {
-        long duration = random.nextBoolean() ? 300 : 100;
-
-        if (hotel.tryEnter()) {
-            hotel.addVisitDuration(duration);
-//            System.out.println("NPC " + id + " вошел в отель на " + duration + "ms");
+    // Новых визитов не будет; начатый визит закончится в свой срок
+    public void stop() {
+        stopped = true;
+    }
 
-            try {
-                Thread.sleep(duration);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } finally {
-                hotel.leave();
-//                System.out.println("NPC " + id + " покинул отель");
-            }
+    private void wake(EventScheduler scheduler) {
+        if (stopped) {
+            return;
         }
+        if (!enterRandomBuilding()) {
+            start(scheduler);
+            return;
+        }
+        scheduler.schedule(visit.getDuration(), () -> {
+            leaveBuilding();
+            start(scheduler);
+        });
     }
 
-    private void visitCafe() {
-        long duration = cafe.getRandomServiceTime();
+    // Попытки войти в здание
+    public long getAttempts() {
+        return attempts;
+    }
 
-        if (cafe.tryEnter()) {
-            cafe.startVisit(duration);
-            try {
-                Thread.sleep(duration);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } finally {
-                cafe.endVisit();
-            }
-        }
+    // Визиты, закончившиеся выходом из здания
+    public long getVisits() {
+        return visits;
     }
 
-    private void visitBarbershop() {
-        long duration = barbershop.getRandomServiceTime();
-        boolean isFashion = duration == 3000;
+    private long pause() {
+        return random.nextInt(4000) + 1000;
+    }
 
-        if (barbershop.tryEnter()) {
-            barbershop.startService(isFashion);
-            try {
-                Thread.sleep(duration);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } finally {
-                barbershop.endService();
-            }
-        }
+    // Занимает место в случайном здании; false, если мест нет
+    private boolean enterRandomBuilding() {
+        attempts++;
+        visit = switch (random.nextInt(3)) {
+            case 0 -> hotel.tryEnter(random.nextBoolean() ? 300 : 100);
+            case 1 -> cafe.tryEnter(cafe.getRandomServiceTime());
+            default -> barbershop.tryEnter(barbershop.getRandomServiceTime() == 3000);
+        };
+        return visit != null;
+    }
+
+    private void leaveBuilding() {
+        visit.close();
+        visit = null;
+        visits++;
     }
 }
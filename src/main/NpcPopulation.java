@@ -0,0 +1,93 @@
+package main;
+
+import main.buildings.Barbershop;
+import main.buildings.Cafe;
+import main.buildings.Hotel;
+import main.sim.EventScheduler;
+import main.util.GameRandom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+// Жители города. Каждый NPC живёт либо в своём виртуальном потоке: пока он спит между визитами
+// или сидит в кафе, поток ОС свободен, а стек лежит в куче (около килобайта),
+// поэтому жителей могут быть сотни тысяч; либо событиями на модельных часах EventScheduler —
+// тогда поток не нужен вовсе, а часы жизни города просчитываются за миллисекунды.
+// Виртуальные потоки — демоны и не держат программу после выхода из игры; close() останавливает всех явно.
+public class NpcPopulation implements AutoCloseable {
+    private final Hotel hotel;
+    private final Cafe cafe;
+    private final Barbershop barbershop;
+    private final ThreadFactory threads = Thread.ofVirtual().name("npc-", 0).factory();
+    private final List<Npc> npcs = new ArrayList<>();
+    private final List<Thread> running = new ArrayList<>();
+
+    public NpcPopulation(Hotel hotel, Cafe cafe, Barbershop barbershop) {
+        this.hotel = hotel;
+        this.cafe = cafe;
+        this.barbershop = barbershop;
+    }
+
+    // Новые жители; у каждого своя ветка потока случайности NPC
+    public synchronized void spawn(int count, GameRandom random) {
+        for (int i = 0; i < count; i++) {
+            Npc npc = new Npc(npcs.size(), hotel, cafe, barbershop, random.split(GameRandom.Stream.NPC));
+            Thread thread = threads.newThread(npc);
+            npcs.add(npc);
+            running.add(thread);
+            thread.start();
+        }
+    }
+
+    // Новые жители событиями на часах scheduler
+    public synchronized void spawn(int count, GameRandom random, EventScheduler scheduler) {
+        for (int i = 0; i < count; i++) {
+            Npc npc = new Npc(npcs.size(), hotel, cafe, barbershop, random.split(GameRandom.Stream.NPC));
+            npcs.add(npc);
+            npc.start(scheduler);
+        }
+    }
+
+    public synchronized int size() {
+        return npcs.size();
+    }
+
+    // Завершённые визиты всех жителей
+    public synchronized long getVisits() {
+        long visits = 0;
+        for (Npc npc : npcs) {
+            visits += npc.getVisits();
+        }
+        return visits;
+    }
+
+    // Попытки войти, включая те, когда мест не было
+    public synchronized long getAttempts() {
+        long attempts = 0;
+        for (Npc npc : npcs) {
+            attempts += npc.getAttempts();
+        }
+        return attempts;
+    }
+
+    // Все жители прерываются (выходя из здания, освобождают место) и дожидаются;
+    // жители на часах больше не начинают визитов
+    @Override
+    public synchronized void close() {
+        npcs.forEach(Npc::stop);
+        running.forEach(Thread::interrupt);
+        boolean interrupted = false;
+        for (Thread thread : running) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        running.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
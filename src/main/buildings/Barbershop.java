@@ -1,39 +1,57 @@
 package main.buildings;
 
-import java.util.concurrent.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
+// Парикмахерская на MAX_HAIRDRESSERS кресел: визит длится, пока идёт стрижка — простая секунду, модная три.
 public class Barbershop {
     private static final int MAX_HAIRDRESSERS = 2;
-    private final Semaphore seats = new Semaphore(MAX_HAIRDRESSERS, true);
-    private final ConcurrentHashMap<Long, Boolean> activeServices = new ConcurrentHashMap<>();
-    private final Random random = new Random();
+    private static final long SIMPLE_CUT_MILLIS = 1000;
+    private static final long FASHION_CUT_MILLIS = 3000;
+    private final Occupancy seats;
+    private final SplittableRandom random; // Какую стрижку выберет NPC
 
-    public boolean tryEnter() {
-        return seats.tryAcquire();
+    public Barbershop() {
+        this(new SplittableRandom());
     }
 
-    public void startService(boolean isFashionCut) {
-        activeServices.put(Thread.currentThread().getId(), isFashionCut);
+    public Barbershop(SplittableRandom random) {
+        this(random, System::currentTimeMillis);
     }
 
-    public void endService() {
-        activeServices.remove(Thread.currentThread().getId());
-        seats.release();
+    public Barbershop(SplittableRandom random, LongSupplier clock) {
+        this.random = random;
+        this.seats = new Occupancy(MAX_HAIRDRESSERS, clock);
+    }
+
+    // Кресло на время стрижки; null, если свободных нет
+    public Visit tryEnter(boolean isFashionCut) {
+        return seats.tryEnter(isFashionCut ? FASHION_CUT_MILLIS : SIMPLE_CUT_MILLIS);
+    }
+
+    // Кресло сразу или, когда освободится, первому в очереди; timeoutMillis > 0 — сколько ждать
+    public CompletableFuture<Visit> enter(boolean isFashionCut, long timeoutMillis) {
+        return seats.enter(isFashionCut ? FASHION_CUT_MILLIS : SIMPLE_CUT_MILLIS, timeoutMillis);
+    }
+
+    public int getWaiting() {
+        return seats.getWaiting();
     }
 
     public List<String> getActiveServices() {
-        return activeServices.entrySet().stream()
-                .map(entry -> entry.getValue() ? "Модная стрижка" : "Простая стрижка")
-                .collect(Collectors.toList());
+        return seats.active().stream()
+                .map(visit -> visit.getDuration() == FASHION_CUT_MILLIS ? "Модная стрижка" : "Простая стрижка")
+                .toList();
     }
 
     public int getAvailableSeats() {
-        return seats.availablePermits();
+        return seats.available();
     }
 
     public long getRandomServiceTime() {
-        return random.nextBoolean() ? 1000 : 3000;
+        synchronized (random) {
+            return random.nextBoolean() ? SIMPLE_CUT_MILLIS : FASHION_CUT_MILLIS;
+        }
     }
 }
@@ -1,41 +1,53 @@
 package main.buildings;
 
-import java.util.concurrent.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
+// Кафе на MAX_SLOTS столиков; сколько гость просидит, решает случай (getRandomServiceTime).
 public class Cafe {
     private static final int MAX_SLOTS = 12;
-    private final Semaphore slots = new Semaphore(MAX_SLOTS, true);
-    private final ConcurrentHashMap<Long, Long> activeVisits = new ConcurrentHashMap<>();
-    private final Random random = new Random();
+    private final Occupancy slots;
+    private final SplittableRandom random; // Длительность визитов; её берут NPC из разных потоков
 
-    public boolean tryEnter() {
-        return slots.tryAcquire();
+    public Cafe() {
+        this(new SplittableRandom());
     }
 
-    public void startVisit(long duration) {
-        activeVisits.put(Thread.currentThread().getId(), System.currentTimeMillis() + duration);
+    public Cafe(SplittableRandom random) {
+        this(random, System::currentTimeMillis);
     }
 
-    public void endVisit() {
-        activeVisits.remove(Thread.currentThread().getId());
-        slots.release();
+    public Cafe(SplittableRandom random, LongSupplier clock) {
+        this.random = random;
+        this.slots = new Occupancy(MAX_SLOTS, clock);
+    }
+
+    // Место на duration мс; null, если свободных нет
+    public Visit tryEnter(long duration) {
+        return slots.tryEnter(duration);
+    }
+
+    // Место сразу или, когда освободится, первому в очереди; timeoutMillis > 0 — сколько ждать
+    public CompletableFuture<Visit> enter(long duration, long timeoutMillis) {
+        return slots.enter(duration, timeoutMillis);
+    }
+
+    public int getWaiting() {
+        return slots.getWaiting();
     }
 
     public List<Long> getActiveDurations() {
-        long now = System.currentTimeMillis();
-        return activeVisits.values().stream()
-                .map(endTime -> endTime - now)
-                .filter(remaining -> remaining > 0)
-                .collect(Collectors.toList());
+        return slots.remainingTimes();
     }
 
     public int getAvailableSlots() {
-        return slots.availablePermits();
+        return slots.available();
     }
 
     public long getRandomServiceTime() {
-        return random.nextBoolean() ? 90000 : 180000; // 1.5мин и 3мин для теста
+        synchronized (random) {
+            return random.nextBoolean() ? 90000 : 180000; // 1.5мин и 3мин для теста
+        }
     }
 }
@@ -1,5 +1,7 @@
 package main.buildings;
 
+import main.engine.GameOutput;
+import main.engine.Zobrist;
 import main.units.Unit;
 
 import java.util.*;
@@ -13,6 +15,8 @@ public class Castle {
     private final List<Unit> units; // Армия в замке
     private final List<String> buildings; // Список построек
     private boolean captureTimeReduction; // Сокращение захвата замка
+    private GameOutput output = GameOutput.CONSOLE; // Куда пишутся сообщения замка и его юнитов
+    private long hash; // Ключ Зобриста золота, очков, шагов и построек; обновляется при каждом изменении
 
     // Стоимость зданий
     private static final Map<String, Integer> BUILDING_COSTS = new HashMap<>();
@@ -48,20 +52,74 @@ public class Castle {
         this.units = new ArrayList<>();
         this.buildings = new ArrayList<>();
         this.buildings.add("Сторожевой пост"); // Минимально необходимая постройка
+        this.hash = Zobrist.castleKey(x, y, Zobrist.GOLD, gold) + Zobrist.castleKey(x, y, Zobrist.POINTS, points)
+                + Zobrist.castleKey(x, y, Zobrist.STEPS, steps) + Zobrist.buildingKey(x, y, "Сторожевой пост");
+    }
+
+    // Копия замка без юнитов: их копирует GameState вместе с картой
+    public Castle copyWithoutUnits() {
+        Castle copy = new Castle(owner, x, y);
+        copy.gold = gold;
+        copy.points = points;
+        copy.steps = steps;
+        copy.buildings.clear();
+        copy.buildings.addAll(buildings);
+        copy.captureTimeReduction = captureTimeReduction;
+        copy.output = output;
+        copy.hash = hash;
+        return copy;
+    }
+
+    // Стоимость здания или -1 для неизвестного
+    public static int getBuildingCost(String building) {
+        return BUILDING_COSTS.getOrDefault(building, -1);
+    }
+
+    public GameOutput getOutput() {
+        return output;
+    }
+
+    public void setOutput(GameOutput output) {
+        this.output = output;
+    }
+
+    public long getHash() {
+        return hash;
     }
 
     public void setGold(int gold) {
+        rehash(Zobrist.GOLD, this.gold, gold);
         this.gold = gold;
     }
 
     public void setPoints(int points) {
+        rehash(Zobrist.POINTS, this.points, points);
         this.points = points;
     }
 
     public void setSteps(int steps) {
+        rehash(Zobrist.STEPS, this.steps, steps);
         this.steps = steps;
     }
 
+    // Замена ключа одного счётчика замка в хеше
+    private void rehash(int field, int oldValue, int newValue) {
+        hash += Zobrist.castleKey(x, y, field, newValue) - Zobrist.castleKey(x, y, field, oldValue);
+    }
+
+    // Добавление постройки без оплаты (например, при загрузке сохранения)
+    public void addBuilding(String building) {
+        buildings.add(building);
+        hash += Zobrist.buildingKey(x, y, building);
+    }
+
+    // Снос постройки без возврата золота (отмена действий)
+    public void removeBuilding(String building) {
+        if (buildings.remove(building)) {
+            hash -= Zobrist.buildingKey(x, y, building);
+        }
+    }
+
     public String getOwner() {
         return owner;
     }
@@ -95,24 +153,24 @@ public class Castle {
     }
 
     public void spendSteps(int steps) {
-        this.steps -= steps;
+        setSteps(this.steps - steps);
     }
 
     public void resetSteps() {
-        this.steps = 10;
+        setSteps(10);
     }
 
     // Добавление золота
     public void addGold(int amount) {
-        gold += amount;
+        setGold(gold + amount);
     }
 
     // Трата золота
     public void spendGold(int amount) {
         if (gold >= amount) {
-            gold -= amount;
+            setGold(gold - amount);
         } else {
-            System.out.println("Недостаточно золота!");
+            output.message("Недостаточно золота!");
         }
     }
 
@@ -126,17 +184,17 @@ public class Castle {
         // Проверяем, есть ли нужное здание для найма юнита
         if (!checkBuilding(unit.getType())) {
             String requiredBuilding = getBuildingForUnit(unit.getType());
-            System.out.println("Для найма " + unit.getType() + " необходимо построить " + requiredBuilding);
+            output.message("Для найма " + unit.getType() + " необходимо построить " + requiredBuilding);
             return false;
         }
 
         if (gold >= unit.getCost()) {
             units.add(unit);
-            gold -= unit.getCost();
-            System.out.println(owner + " нанял " + unit.getType());
+            setGold(gold - unit.getCost());
+            output.message(owner + " нанял " + unit.getType());
             return true;
         } else {
-            System.out.println("Недостаточно золота!");
+            output.message("Недостаточно золота!");
             return false;
         }
     }
@@ -150,27 +208,27 @@ public class Castle {
         for (Map.Entry<String, Integer> entry : BUILDING_COSTS.entrySet()) {
             if (entry.getKey().toLowerCase().equals(normalizedBuilding)) {
                 if (buildings.contains(entry.getKey())) {
-                    System.out.println(entry.getKey() + " уже построено!");
+                    output.message(entry.getKey() + " уже построено!");
                     return false;
                 }
 
                 int cost = entry.getValue();
                 if (gold >= cost) {
-                    buildings.add(entry.getKey());
-                    gold -= cost;
+                    addBuilding(entry.getKey());
+                    setGold(gold - cost);
                     int pointsEarned = cost / 5; // 1 очко за 5 золотых
                     addPoints(pointsEarned);
-                    System.out.println(owner + " построил " + entry.getKey() + " за " + cost + " золота.");
-                    System.out.println("+ " + pointsEarned + " очков за постройку!");
+                    output.message(owner + " построил " + entry.getKey() + " за " + cost + " золота.");
+                    output.message("+ " + pointsEarned + " очков за постройку!");
                     return true;
                 } else {
-                    System.out.println("Недостаточно золота для постройки " + entry.getKey() + "!");
+                    output.message("Недостаточно золота для постройки " + entry.getKey() + "!");
                     return false;
                 }
             }
         }
 
-        System.out.println("Неизвестное здание: " + building);
+        output.message("Неизвестное здание: " + building);
         return false;
     }
 
@@ -209,7 +267,7 @@ public class Castle {
     }
 
     public void addPoints(int amount) {
-        points += amount;
+        setPoints(points + amount);
     }
 
     public boolean isCaptureTimeReduced() {
@@ -1,48 +1,41 @@
 package main.buildings;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
+// Гостиница на MAX_ROOMS номеров; номер — визит (Visit) на срок проживания, места и очередь ведёт Occupancy.
 public class Hotel {
     private static final int MAX_ROOMS = 5;
-    private final Semaphore rooms = new Semaphore(MAX_ROOMS, true);
-    private final Map<Long, Long> activeVisits = new ConcurrentHashMap<>();
+    private final Occupancy rooms;
 
-    public boolean tryEnter() {
-        return rooms.tryAcquire();
+    public Hotel() {
+        this(System::currentTimeMillis);
     }
 
-    public void addVisitDuration(long duration) {
-        activeVisits.put(Thread.currentThread().getId(), System.currentTimeMillis() + duration);
+    public Hotel(LongSupplier clock) {
+        this.rooms = new Occupancy(MAX_ROOMS, clock);
     }
 
-    public void leave() {
-        activeVisits.remove(Thread.currentThread().getId());
-        rooms.release();
+    // Номер на duration мс; null, если свободных нет
+    public Visit tryEnter(long duration) {
+        return rooms.tryEnter(duration);
+    }
+
+    // Номер сразу или, когда освободится, первому в очереди; timeoutMillis > 0 — сколько ждать
+    public CompletableFuture<Visit> enter(long duration, long timeoutMillis) {
+        return rooms.enter(duration, timeoutMillis);
+    }
+
+    public int getWaiting() {
+        return rooms.getWaiting();
     }
 
     public List<Long> getRemainingTimes() {
-        long now = System.currentTimeMillis();
-        List<Long> times = new ArrayList<>();
-
-        activeVisits.entrySet().removeIf(entry -> {
-            if (entry.getValue() <= now) {
-                rooms.release();
-                return true;
-            }
-            return false;
-        });
-
-        activeVisits.values().forEach(endTime ->
-                times.add(endTime - now)
-        );
-        return times;
+        return rooms.remainingTimes();
     }
 
     public int getAvailableRooms() {
-        return rooms.availablePermits();
+        return rooms.available();
     }
 }
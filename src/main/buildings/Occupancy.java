@@ -0,0 +1,191 @@
+package main.buildings;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Места здания и сроки визитов в них — общее у отеля, кафе и парикмахерской.
+// Занятое место — это Visit, а не запись по номеру потока: визит можно начать в одном потоке,
+// а закончить в другом (пул, виртуальные потоки, события на часах города). Место возвращает
+// ровно один из двух: close() визита (гость ушёл) или колесо таймеров, когда срок вышел, — второй раз
+// оно не вернётся. Сроки считаются по clock в мс: настоящие часы или модельные часы города (EventScheduler::now).
+// Кто не хочет уходить ни с чем, встаёт в очередь (enter): освободившееся место сразу передаётся
+// первому в очереди, без опроса, и tryEnter мимо очереди его не перехватит. Ожидание — CompletableFuture:
+// его можно отменить, а по тайм-ауту оно завершается TimeoutException; такой ждущий уходит из очереди.
+// Семафор на пути входа и выхода неблокирующий; колесо и очередь под блокировкой объекта, колесо
+// сдвигается не чаще раза в миллисекунду. Истёкшие визиты и ждущие получают места уже вне блокировки:
+// их продолжения могут звать другие объекты (часы города), и держать при этом здание нельзя.
+class Occupancy {
+    private final Semaphore places;
+    private final TimingWheel<Visit> expiries;
+    private final LongSupplier clock;
+    private final LinkedHashSet<Waiter> waiters = new LinkedHashSet<>(); // Очередь; под блокировкой this
+    private volatile int waiting;     // Её длина для проверок без блокировки
+    private volatile long advancedTo; // До какого момента колесо уже сдвинуто
+
+    // Ждущий места на duration мс
+    private record Waiter(long duration, CompletableFuture<Visit> future) {
+    }
+
+    Occupancy(int capacity, LongSupplier clock) {
+        this.places = new Semaphore(capacity);
+        this.clock = clock;
+        this.advancedTo = clock.getAsLong();
+        this.expiries = new TimingWheel<>(advancedTo);
+    }
+
+    // Визит на duration мс; null, если мест нет или их уже ждут
+    Visit tryEnter(long duration) {
+        expire();
+        if ((waiting > 0 && pruneWaiters() > 0) || !places.tryAcquire()) {
+            return null;
+        }
+        return admit(duration);
+    }
+
+    // Визит сразу, если есть место, иначе — когда до этого ждущего дойдёт очередь.
+    // timeoutMillis > 0 — сколько ждать (по настоящим часам)
+    CompletableFuture<Visit> enter(long duration, long timeoutMillis) {
+        Visit visit = tryEnter(duration);
+        if (visit != null) {
+            return CompletableFuture.completedFuture(visit);
+        }
+        CompletableFuture<Visit> future = new CompletableFuture<>();
+        Waiter waiter = new Waiter(duration, future);
+        synchronized (this) {
+            waiters.add(waiter);
+            waiting = waiters.size();
+        }
+        future.whenComplete((admitted, error) -> {
+            if (error != null) {
+                withdraw(waiter); // Отменён или не дождался; до этого его отсеивает pruneWaiters
+            }
+        });
+        if (timeoutMillis > 0) {
+            future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        dispatch(); // Место могло освободиться, пока вставали в очередь
+        return future;
+    }
+
+    void close(Visit visit) {
+        if (!visit.finish()) {
+            return;
+        }
+        synchronized (this) {
+            if (visit.timer != null) {
+                expiries.cancel(visit.timer);
+            }
+        }
+        release();
+    }
+
+    // Незакрытые визиты, срок которых не вышел
+    List<Visit> active() {
+        expire();
+        List<Visit> visits = new ArrayList<>();
+        synchronized (this) {
+            expiries.forEach(timer -> {
+                if (timer.getValue().isActive()) {
+                    visits.add(timer.getValue());
+                }
+            });
+        }
+        return visits;
+    }
+
+    // Сколько осталось активным визитам, мс
+    List<Long> remainingTimes() {
+        long now = clock.getAsLong();
+        return active().stream().map(visit -> Math.max(0, visit.getDeadline() - now)).toList();
+    }
+
+    int available() {
+        expire();
+        return places.availablePermits();
+    }
+
+    int getWaiting() {
+        return waiting == 0 ? 0 : pruneWaiters();
+    }
+
+    // Визит на уже взятое место
+    private Visit admit(long duration) {
+        Visit visit = new Visit(this, clock.getAsLong(), duration);
+        synchronized (this) {
+            visit.timer = expiries.schedule(visit, visit.getDeadline());
+        }
+        if (!visit.timer.isActive()) {
+            expired(visit); // Нулевой визит: срок вышел сразу
+        }
+        return visit;
+    }
+
+    private void expire() {
+        long now = clock.getAsLong();
+        if (now <= advancedTo) {
+            return;
+        }
+        List<Visit> expired;
+        synchronized (this) {
+            expired = expiries.advance(now);
+            advancedTo = Math.max(advancedTo, now);
+        }
+        expired.forEach(this::expired);
+    }
+
+    private void expired(Visit visit) {
+        if (visit.finish()) {
+            release();
+        }
+    }
+
+    private void release() {
+        places.release();
+        dispatch();
+    }
+
+    // Свободные места — ждущим по порядку очереди
+    private void dispatch() {
+        while (waiting > 0) {
+            Waiter waiter;
+            synchronized (this) {
+                Iterator<Waiter> first = waiters.iterator();
+                waiter = first.hasNext() ? first.next() : null;
+                while (waiter != null && waiter.future().isDone()) {
+                    first.remove(); // Уже отменён или не дождался: место не ему
+                    waiter = first.hasNext() ? first.next() : null;
+                }
+                waiting = waiters.size();
+                if (waiter == null || !places.tryAcquire()) {
+                    return;
+                }
+                first.remove();
+                waiting = waiters.size();
+            }
+            Visit visit = admit(waiter.duration());
+            if (!waiter.future().complete(visit)) {
+                visit.close(); // Ожидание уже отменено или истекло: место следующему
+            }
+        }
+    }
+
+    // Выбрасывает из очереди завершённых ждущих и возвращает число оставшихся.
+    // Отменённый или просроченный ждущий не должен считаться, даже если его whenComplete ещё не выполнился:
+    // тот, кто ждал в get(), может проснуться раньше — порядок продолжений CompletableFuture не задан
+    private synchronized int pruneWaiters() {
+        waiters.removeIf(waiter -> waiter.future().isDone());
+        waiting = waiters.size();
+        return waiting;
+    }
+
+    private synchronized void withdraw(Waiter waiter) {
+        waiters.remove(waiter);
+        waiting = waiters.size();
+    }
+}
@@ -0,0 +1,175 @@
+package main.buildings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Иерархическое колесо таймеров для сроков визитов в зданиях города.
+// Семь уровней по 64 ячейки: ячейка уровня L охватывает 64^L мс, всё колесо — 2^42 мс.
+// Таймер лежит на уровне старшего бита, которым его срок отличается от текущего времени, —
+// постановка и отмена за O(1). При сдвиге времени просматриваются только занятые ячейки,
+// через которые прошло время (маска занятости на уровень), и каждая такая ячейка либо истекает целиком,
+// либо её таймеры опускаются уровнем ниже. Уровней семь, поэтому таймер опускается не больше шести раз,
+// и истечение стоит O(1) амортизированно. Колесо не потокобезопасно: его защищает здание;
+// истёкшие таймеры возвращаются списком, чтобы здание обработало их уже без блокировки.
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 7;
+
+    // Срок одного визита; узел списка своей ячейки
+    public static final class Timer<T> {
+        private final T value;
+        private final long deadline;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private int level = -1; // -1 — не в колесе: истёк или отменён
+        private int slot;
+
+        private Timer(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isActive() {
+            return level >= 0;
+        }
+    }
+
+    private final Timer<T>[][] slots;
+    private final long[] occupied = new long[LEVELS]; // Занятые ячейки уровня — биты маски
+    private long current;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long now) {
+        this.slots = (Timer<T>[][]) new Timer<?>[LEVELS][SLOTS];
+        this.current = now;
+    }
+
+    // Таймер на момент deadline; если срок уже наступил, таймер в колесо не попадает (isActive() == false)
+    public Timer<T> schedule(T value, long deadline) {
+        Timer<T> timer = new Timer<>(value, deadline);
+        if (deadline > current) {
+            insert(timer);
+        }
+        return timer;
+    }
+
+    // Снимает таймер; false, если он уже истёк или снят
+    public boolean cancel(Timer<T> timer) {
+        if (!timer.isActive()) {
+            return false;
+        }
+        unlink(timer);
+        return true;
+    }
+
+    // Переводит время на now; значения истёкших таймеров
+    public List<T> advance(long now) {
+        List<T> expired = List.of();
+        if (now <= current) {
+            return expired;
+        }
+        long previous = current;
+        current = now;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * SLOT_BITS;
+            long passed;
+            boolean sameBlock = (previous ^ now) >>> (shift + SLOT_BITS) == 0;
+            if (sameBlock) {
+                int from = (int) (previous >>> shift) & (SLOTS - 1);
+                int to = (int) (now >>> shift) & (SLOTS - 1);
+                passed = occupied[level] & (-1L << from) & (-1L >>> (SLOTS - 1 - to));
+            } else {
+                passed = occupied[level]; // Время ушло в следующий блок: весь уровень позади
+            }
+            while (passed != 0) {
+                int slot = Long.numberOfTrailingZeros(passed);
+                passed &= passed - 1;
+                Timer<T> timer = slots[level][slot];
+                while (timer != null) {
+                    Timer<T> next = timer.next;
+                    unlink(timer);
+                    if (timer.deadline <= now) {
+                        if (expired.isEmpty()) {
+                            expired = new ArrayList<>();
+                        }
+                        expired.add(timer.value);
+                    } else {
+                        insert(timer); // Срок в этой ячейке, но позже now: уровнем ниже
+                    }
+                    timer = next;
+                }
+            }
+            if (sameBlock) {
+                break; // Выше этого уровня время не сдвинулось
+            }
+        }
+        return expired;
+    }
+
+    // Живые таймеры
+    public void forEach(Consumer<Timer<T>> action) {
+        for (int level = 0; level < LEVELS; level++) {
+            for (long mask = occupied[level]; mask != 0; mask &= mask - 1) {
+                for (Timer<T> timer = slots[level][Long.numberOfTrailingZeros(mask)]; timer != null; timer = timer.next) {
+                    action.accept(timer);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getCurrentTime() {
+        return current;
+    }
+
+    private void insert(Timer<T> timer) {
+        int level = (63 - Long.numberOfLeadingZeros(timer.deadline ^ current)) / SLOT_BITS;
+        if (level >= LEVELS) {
+            throw new IllegalArgumentException("Срок слишком далеко: " + timer.deadline);
+        }
+        int slot = (int) (timer.deadline >>> (level * SLOT_BITS)) & (SLOTS - 1);
+        Timer<T> head = slots[level][slot];
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        slots[level][slot] = timer;
+        occupied[level] |= 1L << slot;
+        timer.level = level;
+        timer.slot = slot;
+        size++;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[timer.level][timer.slot] = timer.next;
+            if (timer.next == null) {
+                occupied[timer.level] &= ~(1L << timer.slot);
+            }
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+        size--;
+    }
+}
@@ -0,0 +1,44 @@
+package main.buildings;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Визит в здание: держит одно место, пока его не закроют или не выйдет срок.
+// Закрыть можно из любого потока и сколько угодно раз — место освобождается однажды:
+// кто первым снял флаг active (посетитель или колесо таймеров), тот и возвращает место.
+public final class Visit implements AutoCloseable {
+    private final Occupancy occupancy;
+    private final long duration;
+    private final long deadline;
+    private final AtomicBoolean active = new AtomicBoolean(true);
+    TimingWheel.Timer<Visit> timer; // Под блокировкой occupancy
+
+    Visit(Occupancy occupancy, long start, long duration) {
+        this.occupancy = occupancy;
+        this.duration = duration;
+        this.deadline = start + duration;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    // Когда визит закончится сам, по часам здания
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public boolean isActive() {
+        return active.get();
+    }
+
+    // Посетитель уходит; повторный вызов и вызов после истечения срока ничего не делают
+    @Override
+    public void close() {
+        occupancy.close(this);
+    }
+
+    // true — у этого вызова право вернуть место
+    boolean finish() {
+        return active.compareAndSet(true, false);
+    }
+}
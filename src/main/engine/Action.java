@@ -0,0 +1,37 @@
+package main.engine;
+
+// Действие стороны, которая сейчас ходит. Юнит задаётся номером в списке юнитов её замка,
+// поэтому действие не держит ссылок на объекты и подходит к любой копии состояния.
+public sealed interface Action {
+    record Move(int unit, int x, int y) implements Action {
+    }
+
+    record Attack(int unit, int x, int y) implements Action {
+    }
+
+    // Номер юнита как в меню найма: 1 — Копейщик ... 6 — Герой
+    record Recruit(int choice) implements Action {
+    }
+
+    record Build(String building) implements Action {
+    }
+
+    // Бонусы зданий города всем юнитам стороны: отель прибавляет здоровье, кафе — дальность хода
+    record Heal(int health) implements Action {
+    }
+
+    record AddMovement(int movement) implements Action {
+    }
+
+    // Модная стрижка: сокращение захвата замка стороны включается и по истечении снимается
+    record CaptureReduction(boolean enabled) implements Action {
+    }
+
+    // Выигрыш (delta > 0) или проигрыш золота в мини-игре таверны
+    record AddGold(int delta) implements Action {
+    }
+
+    // Пропуск хода — это EndTurn без других действий
+    record EndTurn() implements Action {
+    }
+}
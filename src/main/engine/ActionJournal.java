@@ -0,0 +1,311 @@
+package main.engine;
+
+import main.buildings.Castle;
+import main.map.GameMap;
+import main.units.Unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Журнал действий партии для отмены и повтора без перечитывания сохранения.
+// Каждое применённое действие (включая EndTurn) записывается как пара «до/после» только того,
+// что оно может изменить: затронутые юниты (клетка, здоровье, дальность хода, место в армии и на карте,
+// отметки хода), счётчики и сокращение захвата обоих замков, новые постройки и счётчики хода. Отмена ставит «до», повтор — «после»,
+// поэтому повтор не бросает кости заново (золото героя и т. п. остаётся прежним).
+// Записи лежат в кольцевом буфере: глубина ограничена, самые старые записи вытесняются.
+public class ActionJournal {
+    // Узнаёт о каждом записанном, отменённом или повторённом действии (например, журнал сохранения)
+    public interface Listener {
+        // units — юниты, которые действие могло изменить; счётчики замков могли измениться у обоих
+        void changed(List<Unit> units);
+    }
+
+    private final GameState state;
+    private final Entry[] entries;
+    private int start;       // Самая старая запись
+    private int undoCount;   // Записи, которые можно отменить (от start)
+    private int redoCount;   // Отменённые записи сразу за ними, которые можно повторить
+    private int droppedTurn = -1; // Ход последней вытесненной записи
+    private Listener listener;
+
+    private ActionJournal(GameState state, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Глубина журнала должна быть положительной: " + depth);
+        }
+        this.state = state;
+        this.entries = new Entry[depth];
+    }
+
+    // Журнал глубиной depth, через который дальше идут все действия state
+    public static ActionJournal attach(GameState state, int depth) {
+        ActionJournal journal = new ActionJournal(state, depth);
+        state.setJournal(journal);
+        return journal;
+    }
+
+    public int getDepth() {
+        return entries.length;
+    }
+
+    public boolean canUndo() {
+        return undoCount > 0;
+    }
+
+    public boolean canRedo() {
+        return redoCount > 0;
+    }
+
+    public int size() {
+        return undoCount;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Вызывается из GameState.applyAction: применяет действие и запоминает, что оно изменило
+    boolean record(Action action) {
+        Castle player = state.getPlayerCastle();
+        Castle computer = state.getComputerCastle();
+        Castle current = state.getCurrentCastle();
+        int unitsBefore = current.getUnits().size();
+        int playerBuildings = player.getBuildings().size();
+        int computerBuildings = computer.getBuildings().size();
+
+        List<Unit> affected = affectedUnits(action, current);
+        List<UnitState> before = new ArrayList<>(affected.size() + 1);
+        for (Unit unit : affected) {
+            before.add(capture(unit));
+        }
+        CastleState playerBefore = new CastleState(player, List.of());
+        CastleState computerBefore = new CastleState(computer, List.of());
+        TurnState turnBefore = new TurnState(state);
+
+        if (!state.apply(action)) {
+            return false;
+        }
+
+        // Нанятый юнит встаёт в конец армии; до найма его не было ни в армии, ни на карте
+        if (action instanceof Action.Recruit && current.getUnits().size() > unitsBefore) {
+            Unit recruit = current.getUnits().getLast();
+            affected.add(recruit);
+            before.add(new UnitState(recruit, recruit.getX(), recruit.getY(), recruit.getHp(), recruit.getMovement(),
+                    -1, false, false, false));
+        }
+        List<UnitState> after = new ArrayList<>(affected.size());
+        for (Unit unit : affected) {
+            after.add(capture(unit));
+        }
+        push(new Entry(turnBefore.turn, before, after,
+                playerBefore, new CastleState(player, added(player, playerBuildings)),
+                computerBefore, new CastleState(computer, added(computer, computerBuildings)),
+                turnBefore, new TurnState(state)));
+        notifyListener(affected);
+        return true;
+    }
+
+    // Отмена последнего действия
+    public boolean undo() {
+        if (undoCount == 0) {
+            return false;
+        }
+        undoCount--;
+        redoCount++;
+        Entry entry = entries[(start + undoCount) % entries.length];
+        restore(entry.after, entry.before, entry.playerAfter, entry.playerBefore,
+                entry.computerAfter, entry.computerBefore, entry.turnBefore);
+        notifyListener(entry.units());
+        return true;
+    }
+
+    // Повтор последнего отменённого действия
+    public boolean redo() {
+        if (redoCount == 0) {
+            return false;
+        }
+        Entry entry = entries[(start + undoCount) % entries.length];
+        undoCount++;
+        redoCount--;
+        restore(entry.before, entry.after, entry.playerBefore, entry.playerAfter,
+                entry.computerBefore, entry.computerAfter, entry.turnAfter);
+        notifyListener(entry.units());
+        return true;
+    }
+
+    // Можно ли отменить все действия начиная с хода turn (ни одно из них не вытеснено)
+    public boolean canRewindTo(int turn) {
+        return turn > droppedTurn && turn <= state.getTurn();
+    }
+
+    // Отмена всех записанных действий, сделанных на ходу turn и позже: партия встаёт на начало хода turn
+    public boolean rewindTo(int turn) {
+        if (!canRewindTo(turn)) {
+            return false;
+        }
+        while (undoCount > 0 && entries[(start + undoCount - 1) % entries.length].turn >= turn) {
+            undo();
+        }
+        return true;
+    }
+
+    // Повтор отменённых действий, сделанных до хода turn
+    public boolean replayTo(int turn) {
+        boolean replayed = false;
+        while (redoCount > 0 && entries[(start + undoCount) % entries.length].turn < turn) {
+            redo();
+            replayed = true;
+        }
+        return replayed;
+    }
+
+    public void clear() {
+        start = 0;
+        undoCount = 0;
+        redoCount = 0;
+        droppedTurn = state.getTurn() - 1;
+        Arrays.fill(entries, null);
+    }
+
+    private void notifyListener(List<Unit> units) {
+        if (listener != null) {
+            listener.changed(units);
+        }
+    }
+
+    private void push(Entry entry) {
+        // Новое действие после отмены: отменённые записи больше не повторить
+        for (int i = 0; i < redoCount; i++) {
+            entries[(start + undoCount + i) % entries.length] = null;
+        }
+        redoCount = 0;
+        if (undoCount == entries.length) {
+            droppedTurn = entries[start].turn;
+            start = (start + 1) % entries.length;
+            undoCount--;
+        }
+        entries[(start + undoCount) % entries.length] = entry;
+        undoCount++;
+    }
+
+    // Юниты, которые действие может изменить (до его применения)
+    private List<Unit> affectedUnits(Action action, Castle castle) {
+        List<Unit> units = new ArrayList<>(2);
+        switch (action) {
+            case Action.Move move -> addUnit(units, castle, move.unit());
+            case Action.Attack attack -> {
+                addUnit(units, castle, attack.unit());
+                Unit target = state.getMap().getUnitAt(attack.x(), attack.y());
+                if (target != null && !units.contains(target)) {
+                    units.add(target);
+                }
+            }
+            case Action.EndTurn endTurn -> units.addAll(state.flaggedUnits());
+            case Action.Recruit recruit -> {
+            }
+            case Action.Build build -> {
+            }
+            case Action.Heal heal -> units.addAll(castle.getUnits());
+            case Action.AddMovement bonus -> units.addAll(castle.getUnits());
+            case Action.AddGold gold -> {
+            }
+            case Action.CaptureReduction reduction -> {
+            }
+        }
+        return units;
+    }
+
+    private static void addUnit(List<Unit> units, Castle castle, int index) {
+        if (index >= 0 && index < castle.getUnits().size()) {
+            units.add(castle.getUnits().get(index));
+        }
+    }
+
+    private UnitState capture(Unit unit) {
+        Castle castle = unit.isPlayer() ? state.getPlayerCastle() : state.getComputerCastle();
+        return new UnitState(unit, unit.getX(), unit.getY(), unit.getHp(), unit.getMovement(), castle.getUnits().indexOf(unit),
+                state.getMap().containsUnit(unit), state.hasMoved(unit), state.hasAttacked(unit));
+    }
+
+    private static List<String> added(Castle castle, int sizeBefore) {
+        List<String> buildings = castle.getBuildings();
+        return buildings.size() > sizeBefore ? List.copyOf(buildings.subList(sizeBefore, buildings.size())) : List.of();
+    }
+
+    // Переход из состояния from (текущего) в состояние to
+    private void restore(List<UnitState> from, List<UnitState> to, CastleState playerFrom, CastleState playerTo,
+                         CastleState computerFrom, CastleState computerTo, TurnState turn) {
+        // Отметки снимаются до перестановки юнитов и ставятся после: их ключи зависят от клетки
+        for (UnitState unit : from) {
+            state.setFlags(unit.unit, false, false);
+        }
+        for (UnitState unit : to) {
+            restoreUnit(unit);
+        }
+        for (UnitState unit : to) {
+            state.setFlags(unit.unit, unit.moved, unit.attacked);
+        }
+        restoreCastle(state.getPlayerCastle(), playerFrom, playerTo);
+        restoreCastle(state.getComputerCastle(), computerFrom, computerTo);
+        state.restoreTurn(turn.playerTurn, turn.turn, turn.winner, turn.recruited, turn.built);
+    }
+
+    private void restoreUnit(UnitState target) {
+        Unit unit = target.unit;
+        GameMap map = state.getMap();
+        Castle castle = unit.isPlayer() ? state.getPlayerCastle() : state.getComputerCastle();
+        unit.setPosition(target.x, target.y);
+        unit.setHp(target.hp);
+        unit.setMovement(target.movement);
+        int index = castle.getUnits().indexOf(unit);
+        if (target.castleIndex < 0 && index >= 0) {
+            castle.getUnits().remove(index);
+        } else if (target.castleIndex >= 0 && index < 0) {
+            castle.getUnits().add(Math.min(target.castleIndex, castle.getUnits().size()), unit);
+        }
+        if (target.onMap && !map.containsUnit(unit)) {
+            map.addUnit(unit);
+        } else if (!target.onMap && map.containsUnit(unit)) {
+            map.removeUnit(unit);
+        }
+    }
+
+    private static void restoreCastle(Castle castle, CastleState from, CastleState to) {
+        castle.setGold(to.gold);
+        castle.setPoints(to.points);
+        castle.setSteps(to.steps);
+        castle.setCaptureTimeReduction(to.captureReduced);
+        for (String building : from.addedBuildings) {
+            castle.removeBuilding(building);
+        }
+        for (String building : to.addedBuildings) {
+            castle.addBuilding(building);
+        }
+    }
+
+    private record UnitState(Unit unit, int x, int y, int hp, int movement, int castleIndex, boolean onMap,
+                             boolean moved, boolean attacked) {
+    }
+
+    // Счётчики замка и постройки, появившиеся после действия
+    private record CastleState(int gold, int points, int steps, boolean captureReduced, List<String> addedBuildings) {
+        CastleState(Castle castle, List<String> addedBuildings) {
+            this(castle.getGold(), castle.getPoints(), castle.getSteps(), castle.isCaptureTimeReduced(), addedBuildings);
+        }
+    }
+
+    private record TurnState(boolean playerTurn, int turn, GameState.Winner winner, boolean recruited, boolean built) {
+        TurnState(GameState state) {
+            this(state.isPlayerTurn(), state.getTurn(), state.getWinner(), state.hasRecruited(), state.hasBuilt());
+        }
+    }
+
+    private record Entry(int turn, List<UnitState> before, List<UnitState> after,
+                         CastleState playerBefore, CastleState playerAfter,
+                         CastleState computerBefore, CastleState computerAfter,
+                         TurnState turnBefore, TurnState turnAfter) {
+        List<Unit> units() {
+            return after.stream().map(UnitState::unit).toList();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package main.engine;
+
+import main.buildings.Castle;
+import main.map.FlowField;
+import main.map.GameMap;
+import main.map.Path;
+import main.map.Pathfinder;
+import main.units.Unit;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+
+// Компьютерный соперник: в начале хода выбирает случайное действие из меню (1–5),
+// юнитов ведёт к вражескому замку. Подходит для любой стороны, поэтому годится и для партий компьютер-компьютер.
+public class ComputerInput implements GameInput {
+    private final SplittableRandom random;
+    private final Deque<Unit> pending = new ArrayDeque<>(); // Юниты, которым ещё предстоит действие в этот ход
+    private int plannedTurn = -1;
+    private int choice;
+
+    public ComputerInput(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public Action nextAction(GameState state) {
+        Castle castle = state.getCurrentCastle();
+        GameOutput output = state.getOutput();
+        if (plannedTurn != state.getTurn()) {
+            plannedTurn = state.getTurn();
+            choice = random.nextInt(5) + 1;
+            output.message("Ход компьютера. Компьютер выбирает: " + choice);
+            pending.clear();
+            pending.addAll(castle.getUnits());
+            if (choice == 1 && pending.isEmpty()) {
+                output.message("Нет юнитов для перемещения!");
+            } else if (choice == 4 && pending.isEmpty()) {
+                output.message("Нет юнитов!");
+            }
+        }
+
+        switch (choice) {
+            case 1 -> {
+                while (!pending.isEmpty()) {
+                    Unit unit = pending.poll();
+                    int index = castle.getUnits().indexOf(unit);
+                    if (index < 0) continue; // Погиб в этот ход
+                    int[] target = chooseMove(state, unit);
+                    if (target == null) {
+                        output.message("Компьютеру некуда двинуть " + unit.getSymbol());
+                        continue;
+                    }
+                    output.message("Компьютер вводит X: " + target[0] + ", Y: " + target[1]);
+                    return new Action.Move(index, target[0], target[1]);
+                }
+            }
+            case 2 -> {
+                choice = 0;
+                return new Action.Recruit(random.nextInt(GameState.UNIT_CHOICES) + 1);
+            }
+            case 3 -> {
+                choice = 0;
+                output.message("Компьютер пропускает ход.");
+            }
+            case 4 -> {
+                while (!pending.isEmpty()) {
+                    Unit unit = pending.poll();
+                    int index = castle.getUnits().indexOf(unit);
+                    if (index < 0) continue;
+                    int x = random.nextInt(state.getMap().getWidth());
+                    int y = random.nextInt(state.getMap().getHeight());
+                    output.message("Компьютер вводит X: " + x + ", Y: " + y);
+                    return new Action.Attack(index, x, y);
+                }
+            }
+            case 5 -> {
+                choice = 0;
+                return new Action.Build(GameState.BUILDINGS.get(random.nextInt(GameState.BUILDINGS.size())));
+            }
+            default -> {
+            }
+        }
+        return new Action.EndTurn();
+    }
+
+    // Юнит идёт к вражескому замку, насколько хватает дальности хода.
+    // Обычно хватает поля потока (общего для всей армии); если дорогу загородили юниты — ищем обход.
+    static int[] chooseMove(GameState state, Unit unit) {
+        GameMap map = state.getMap();
+        Castle enemy = state.getOpponentCastle();
+        boolean isPlayer = unit.isPlayer();
+        FlowField field = map.getFlowField(enemy.getX(), enemy.getY(), isPlayer);
+        int best = -1;
+        int x = unit.getX();
+        int y = unit.getY();
+        for (int i = 0; i < unit.getMovement(); i++) {
+            int next = field.nextCell(x, y);
+            if (next < 0) break;
+            x = next % map.getWidth();
+            y = next / map.getWidth();
+            if (!map.isWalkable(x, y)) break;
+            best = next;
+        }
+        if (best >= 0) {
+            return new int[]{best % map.getWidth(), best / map.getWidth()};
+        }
+
+        Path path = map.getHierarchicalPathfinder().findPath(unit.getX(), unit.getY(),
+                enemy.getX(), enemy.getY(), isPlayer);
+        if (path == null) {
+            // Иерархический маршрут мог упереться в юнитов — ищем обход по всей карте
+            path = Pathfinder.findPath(map, unit.getX(), unit.getY(),
+                    enemy.getX(), enemy.getY(), isPlayer, Pathfinder.UNLIMITED);
+        }
+        if (path == null) {
+            return null;
+        }
+        for (int i = Math.min(unit.getMovement(), path.length()) - 1; i >= 0; i--) {
+            // Последняя клетка маршрута может быть занята — тогда останавливаемся перед ней
+            if (map.isWalkable(path.getX(i), path.getY(i))) {
+                return new int[]{path.getX(i), path.getY(i)};
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package main.engine;
+
+// Порт ввода: источник действий одной стороны (консоль, ИИ, записанная партия).
+// close отпускает то, что ввод держит сам (потоки поиска); по умолчанию держать нечего
+@FunctionalInterface
+public interface GameInput extends AutoCloseable {
+    Action nextAction(GameState state);
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,13 @@
+package main.engine;
+
+// Порт вывода: сюда движок, замки и юниты пишут игровые сообщения.
+// Консольная игра печатает их, симуляции их отбрасывают.
+@FunctionalInterface
+public interface GameOutput {
+    // System.out берётся при каждом сообщении, чтобы работала подмена потока через System.setOut
+    GameOutput CONSOLE = text -> System.out.println(text);
+    GameOutput SILENT = text -> {
+    };
+
+    void message(String text);
+}
@@ -0,0 +1,425 @@
+package main.engine;
+
+import main.buildings.Castle;
+import main.map.GameMap;
+import main.map.Tile;
+import main.units.*;
+import main.util.GameRandom;
+
+import java.util.*;
+
+// Состояние партии и правила её изменения без консоли: действия приходят через applyAction,
+// сообщения уходят в порт вывода. Консольная игра и симуляции работают через этот класс.
+public class GameState {
+    public enum Winner { NONE, PLAYER, COMPUTER }
+
+    // Названия зданий в порядке меню построек
+    public static final List<String> BUILDINGS = List.of(
+            "Таверна", "Конюшня", "Сторожевой пост", "Башня арбалетчиков", "Оружейная", "Арена", "Собор");
+    public static final int UNIT_CHOICES = 6;
+    // Защита от ввода, который никогда не заканчивает ход
+    private static final int MAX_ACTIONS_PER_TURN = 1000;
+
+    private final GameMap map;
+    private final Castle playerCastle;
+    private final Castle computerCastle;
+    private final GameOutput output;
+    private boolean playerTurn = true;
+    private int turn; // Число завершённых ходов обеих сторон
+    private Winner winner = Winner.NONE;
+    // Каждый юнит за ход может один раз сходить и один раз атаковать; найм и постройка — по разу
+    private final Set<Unit> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Unit> attacked = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean recruited;
+    private boolean built;
+    private long flagHash; // Сумма ключей отметок «ходил/атаковал» живых юнитов
+    private ActionJournal journal; // Журнал для отмены действий; у копий его нет
+
+    public GameState(GameMap map, Castle playerCastle, Castle computerCastle, GameOutput output) {
+        this.map = map;
+        this.playerCastle = playerCastle;
+        this.computerCastle = computerCastle;
+        this.output = output;
+        playerCastle.setOutput(output);
+        computerCastle.setOutput(output);
+    }
+
+    // Независимая копия партии (для поиска ходов ИИ): карта, замки, юниты и состояние текущего хода.
+    // Сообщения копии идут в output, случайность — из random, чтобы не сдвигать потоки настоящей партии.
+    public GameState copy(GameOutput output, GameRandom random) {
+        Castle playerCopy = playerCastle.copyWithoutUnits();
+        Castle computerCopy = computerCastle.copyWithoutUnits();
+        Map<Unit, Unit> copies = new IdentityHashMap<>();
+        for (Unit unit : playerCastle.getUnits()) {
+            Unit copy = unit.copyFor(playerCopy);
+            playerCopy.getUnits().add(copy);
+            copies.put(unit, copy);
+        }
+        for (Unit unit : computerCastle.getUnits()) {
+            Unit copy = unit.copyFor(computerCopy);
+            computerCopy.getUnits().add(copy);
+            copies.put(unit, copy);
+        }
+        // Порядок на карте сохраняется: от него зависит, кого getUnitAt вернёт из стопки
+        GameMap mapCopy = map.copy(random, copies::get);
+
+        GameState copy = new GameState(mapCopy, playerCopy, computerCopy, output);
+        copy.playerTurn = playerTurn;
+        copy.turn = turn;
+        copy.winner = winner;
+        copy.recruited = recruited;
+        copy.built = built;
+        copy.flagHash = flagHash;
+        for (Unit unit : moved) {
+            if (copies.containsKey(unit)) copy.moved.add(copies.get(unit));
+        }
+        for (Unit unit : attacked) {
+            if (copies.containsKey(unit)) copy.attacked.add(copies.get(unit));
+        }
+        return copy;
+    }
+
+    // Новая партия: замки на клетках замков карты (или в углах) и по копейщику у каждой стороны
+    public static GameState newGame(GameMap map, String username, GameOutput output) {
+        int[] playerCastlePos = findTile(map, Tile.Type.CASTLE_PLAYER);
+        int[] computerCastlePos = findTile(map, Tile.Type.CASTLE_COMP);
+        if (playerCastlePos == null) {
+            playerCastlePos = new int[]{0, 0};
+        }
+        if (computerCastlePos == null) {
+            computerCastlePos = new int[]{map.getWidth() - 1, map.getHeight() - 1};
+        }
+
+        Castle playerCastle = new Castle(username, playerCastlePos[0], playerCastlePos[1]);
+        Castle computerCastle = new Castle("Компьютер", computerCastlePos[0], computerCastlePos[1]);
+        GameState state = new GameState(map, playerCastle, computerCastle, output);
+
+        Spearman spearman1 = new Spearman(playerCastle.getX(), playerCastle.getY(), true, playerCastle);
+        playerCastle.buyUnit(spearman1);
+        map.addUnit(spearman1);
+
+        Spearman spearman2 = new Spearman(computerCastle.getX(), computerCastle.getY(), false, computerCastle);
+        computerCastle.buyUnit(spearman2);
+        map.addUnit(spearman2);
+        return state;
+    }
+
+    private static int[] findTile(GameMap map, Tile.Type type) {
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                if (map.getTileType(x, y) == type) {
+                    return new int[]{x, y};
+                }
+            }
+        }
+        return null;
+    }
+
+    // Юнит по номеру из меню найма, стоящий в замке; null для неизвестного номера
+    public static Unit createUnit(int choice, Castle castle, boolean isPlayer) {
+        return switch (choice) {
+            case 1 -> new Spearman(castle.getX(), castle.getY(), isPlayer, castle);
+            case 2 -> new Crossbowman(castle.getX(), castle.getY(), isPlayer, castle);
+            case 3 -> new Swordsman(castle.getX(), castle.getY(), isPlayer, castle);
+            case 4 -> new Cavalryman(castle.getX(), castle.getY(), isPlayer, castle);
+            case 5 -> new Paladin(castle.getX(), castle.getY(), isPlayer, castle);
+            case 6 -> new Hero(castle.getX(), castle.getY(), isPlayer, castle);
+            default -> null;
+        };
+    }
+
+    public GameMap getMap() {
+        return map;
+    }
+
+    public Castle getPlayerCastle() {
+        return playerCastle;
+    }
+
+    public Castle getComputerCastle() {
+        return computerCastle;
+    }
+
+    public GameOutput getOutput() {
+        return output;
+    }
+
+    public boolean isPlayerTurn() {
+        return playerTurn;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public Winner getWinner() {
+        return winner;
+    }
+
+    public boolean isOver() {
+        return winner != Winner.NONE;
+    }
+
+    // Ключ Зобриста позиции за O(1): части хеша ведут карта, замки и сама партия
+    public long getHash() {
+        return map.getHash() + playerCastle.getHash() + computerCastle.getHash()
+                + Zobrist.turnKey(playerTurn, recruited, built, winner) + flagHash;
+    }
+
+    // Замок стороны, которая сейчас ходит
+    public Castle getCurrentCastle() {
+        return playerTurn ? playerCastle : computerCastle;
+    }
+
+    public Castle getOpponentCastle() {
+        return playerTurn ? computerCastle : playerCastle;
+    }
+
+    public boolean hasMoved(Unit unit) {
+        return moved.contains(unit);
+    }
+
+    public boolean hasAttacked(Unit unit) {
+        return attacked.contains(unit);
+    }
+
+    public boolean hasRecruited() {
+        return recruited;
+    }
+
+    public boolean hasBuilt() {
+        return built;
+    }
+
+    public ActionJournal getJournal() {
+        return journal;
+    }
+
+    void setJournal(ActionJournal journal) {
+        this.journal = journal;
+    }
+
+    // Применяет действие текущей стороны. Возвращает false, если действие не по правилам
+    // или не удалось (состояние тогда не меняется, кроме сообщений)
+    public boolean applyAction(Action action) {
+        return journal == null ? apply(action) : journal.record(action);
+    }
+
+    boolean apply(Action action) {
+        if (isOver()) {
+            return false;
+        }
+        Castle castle = getCurrentCastle();
+        return switch (action) {
+            case Action.Move move -> applyMove(castle, move);
+            case Action.Attack attack -> applyAttack(castle, attack);
+            case Action.Recruit recruit -> applyRecruit(castle, recruit);
+            case Action.Build build -> applyBuild(castle, build);
+            case Action.Heal heal -> {
+                castle.getUnits().forEach(unit -> unit.addHealth(heal.health()));
+                output.message("Применен бонус +" + heal.health() + " к здоровью!");
+                yield true;
+            }
+            case Action.AddMovement bonus -> {
+                castle.getUnits().forEach(unit -> unit.setMovement(unit.getMovement() + bonus.movement()));
+                output.message("Бонус к перемещению +" + bonus.movement() + " применен!");
+                yield true;
+            }
+            case Action.AddGold gold -> {
+                if (castle.getGold() + gold.delta() < 0) {
+                    output.message("Недостаточно золота!");
+                    yield false;
+                }
+                castle.addGold(gold.delta());
+                yield true;
+            }
+            case Action.CaptureReduction reduction -> {
+                castle.setCaptureTimeReduction(reduction.enabled());
+                output.message(reduction.enabled() ? "Время захвата замка сокращено до 1 хода!"
+                        : "Бонус сокращения времени захвата закончился");
+                yield true;
+            }
+            case Action.EndTurn endTurn -> {
+                endTurn();
+                yield true;
+            }
+        };
+    }
+
+    // Ход одной стороны: действия берутся из input, пока он не закончит ход
+    public void playTurn(GameInput input) {
+        int startTurn = turn;
+        for (int i = 0; i < MAX_ACTIONS_PER_TURN && turn == startTurn && !isOver(); i++) {
+            applyAction(input.nextAction(this));
+        }
+        if (turn == startTurn && !isOver()) {
+            applyAction(new Action.EndTurn());
+        }
+    }
+
+    // Партия целиком; maxTurns ограничивает число ходов обеих сторон
+    public Winner play(GameInput player, GameInput computer, int maxTurns) {
+        while (!isOver() && turn < maxTurns) {
+            playTurn(playerTurn ? player : computer);
+        }
+        return winner;
+    }
+
+    private Unit unitAt(Castle castle, int index) {
+        List<Unit> units = castle.getUnits();
+        return index >= 0 && index < units.size() ? units.get(index) : null;
+    }
+
+    private boolean applyMove(Castle castle, Action.Move move) {
+        Unit unit = unitAt(castle, move.unit());
+        if (unit == null) {
+            output.message("Нет юнита с номером " + move.unit());
+            return false;
+        }
+        if (moved.contains(unit)) {
+            output.message(unit.getType() + " уже ходил в этот ход.");
+            return false;
+        }
+        long before = flagsKey(unit);
+        if (!unit.move(move.x(), move.y(), map, castle)) {
+            return false;
+        }
+        moved.add(unit);
+        flagHash += flagsKey(unit) - before;
+        // Юнит мог погибнуть, не заплатив за дорогу
+        castle.getUnits().removeIf(u -> u.hp == 0);
+        return true;
+    }
+
+    private boolean applyAttack(Castle castle, Action.Attack attack) {
+        Unit unit = unitAt(castle, attack.unit());
+        if (unit == null) {
+            output.message("Нет юнита с номером " + attack.unit());
+            return false;
+        }
+        if (attacked.contains(unit)) {
+            output.message(unit.getType() + " уже атаковал в этот ход.");
+            return false;
+        }
+        // Цель может оказаться своим юнитом с отметками, и она может погибнуть
+        Unit target = map.getUnitAt(attack.x(), attack.y());
+        if (target == unit) {
+            target = null;
+        }
+        long before = flagsKey(unit) + flagsKey(target);
+        if (!unit.attack(attack.x(), attack.y(), map)) {
+            return false;
+        }
+        attacked.add(unit);
+        flagHash += flagsKey(unit) + flagsKey(target) - before;
+        return true;
+    }
+
+    private boolean applyRecruit(Castle castle, Action.Recruit recruit) {
+        if (recruited) {
+            output.message("В этот ход уже нанят юнит.");
+            return false;
+        }
+        Unit unit = createUnit(recruit.choice(), castle, castle == playerCastle);
+        if (unit == null) {
+            output.message("Неверный ввод, попробуйте снова.");
+            return false;
+        }
+        if (!castle.buyUnit(unit)) {
+            return false;
+        }
+        map.addUnit(unit);
+        recruited = true;
+        return true;
+    }
+
+    private boolean applyBuild(Castle castle, Action.Build build) {
+        if (built) {
+            output.message("В этот ход уже построено здание.");
+            return false;
+        }
+        if (!castle.build(build.building())) {
+            return false;
+        }
+        built = true;
+        return true;
+    }
+
+    // Юниты с отметками «ходил» или «атаковал» в этом ходу
+    Set<Unit> flaggedUnits() {
+        Set<Unit> units = Collections.newSetFromMap(new IdentityHashMap<>());
+        units.addAll(moved);
+        units.addAll(attacked);
+        return units;
+    }
+
+    // Отметки юнита для отмены действий; ключ хеша пересчитывается для текущей клетки юнита
+    void setFlags(Unit unit, boolean hasMoved, boolean hasAttacked) {
+        long before = flagsKey(unit);
+        if (hasMoved) moved.add(unit); else moved.remove(unit);
+        if (hasAttacked) attacked.add(unit); else attacked.remove(unit);
+        flagHash += flagsKey(unit) - before;
+    }
+
+    // Счётчики хода для отмены действий
+    void restoreTurn(boolean playerTurn, int turn, Winner winner, boolean recruited, boolean built) {
+        this.playerTurn = playerTurn;
+        this.turn = turn;
+        this.winner = winner;
+        this.recruited = recruited;
+        this.built = built;
+    }
+
+    // Ключ отметок юнита; у погибшего отметок в хеше уже нет
+    private long flagsKey(Unit unit) {
+        if (unit == null || !unit.isAlive()) {
+            return 0;
+        }
+        int flags = (moved.contains(unit) ? 1 : 0) | (attacked.contains(unit) ? 2 : 0);
+        return flags == 0 ? 0 : Zobrist.flagsKey(unit.getSymbol(), unit.getY() * map.getWidth() + unit.getX(), flags);
+    }
+
+    private void endTurn() {
+        turn++;
+        playerTurn = !playerTurn;
+        moved.clear();
+        attacked.clear();
+        recruited = false;
+        built = false;
+        flagHash = 0;
+        checkEndConditions();
+        if (!isOver()) {
+            getCurrentCastle().resetSteps();
+        }
+    }
+
+    private void checkEndConditions() {
+        // Герой игрока дошёл до вражеского замка
+        if (heroAt(playerCastle, computerCastle)) {
+            playerCastle.addPoints(20);
+            output.message("🎉 Герой игрока достиг вражеского замка! Победа!");
+            output.message("+ 20 очков за победу!");
+            winner = Winner.PLAYER;
+        } else if (computerCastle.getUnits().isEmpty()) {
+            playerCastle.addPoints(15);
+            output.message("🎉 Все вражеские юниты уничтожены! Победа!");
+            output.message("+ 15 очков за победу!");
+            winner = Winner.PLAYER;
+        } else if (playerCastle.getUnits().isEmpty()) {
+            output.message("💀 Все ваши юниты уничтожены! Поражение...");
+            winner = Winner.COMPUTER;
+        } else if (heroAt(computerCastle, playerCastle)) {
+            output.message("💀 Вражеский герой достиг вашего замка! Поражение...");
+            winner = Winner.COMPUTER;
+        }
+    }
+
+    private boolean heroAt(Castle owner, Castle target) {
+        for (Unit unit : owner.getUnits()) {
+            if (unit instanceof Hero && unit.getX() == target.getX() && unit.getY() == target.getY()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
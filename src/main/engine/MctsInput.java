@@ -0,0 +1,216 @@
+package main.engine;
+
+import main.util.GameRandom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Компьютерный соперник на поиске по дереву Монте-Карло (UCT).
+// Дерево одно на все потоки пула (tree-parallel): посещения и суммы результатов — атомарные счётчики,
+// узлы раскрываются через compareAndSet, блокировок нет. Посещение засчитывается при спуске,
+// а результат — после доигрывания (виртуальная потеря), поэтому потоки расходятся по разным веткам.
+public class MctsInput implements GameInput {
+    private static final double EXPLORATION = 1.4;
+    private static final int PLAYOUT_ACTIONS = 40;     // Длина случайного доигрывания в действиях
+    private static final double SCORE_SCALE = 200;     // Оценка позиции переводится в шанс победы логистой
+    private static final long VALUE_SCALE = 1_000_000; // Результаты копятся в long с фиксированной точкой
+    private static final long MIN_SEARCH_NANOS = 1_000_000;
+
+    private final long turnBudgetNanos;
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    private int plannedTurn = -1;
+    private long turnDeadline;
+    // Статистика последнего поиска и текущего хода
+    private long playouts;
+    private long searchNanos;
+    private long turnPlayouts;
+    private long turnNanos;
+
+    public MctsInput(long turnBudgetMillis) {
+        this(turnBudgetMillis, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MctsInput(long turnBudgetMillis, int threads) {
+        this.turnBudgetNanos = turnBudgetMillis * 1_000_000;
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public double getPlayoutsPerSecond() {
+        return searchNanos == 0 ? 0 : playouts * 1e9 / searchNanos;
+    }
+
+    // Останавливает потоки пула; поиск после этого невозможен
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    @Override
+    public Action nextAction(GameState state) {
+        long now = System.nanoTime();
+        if (plannedTurn != state.getTurn()) {
+            plannedTurn = state.getTurn();
+            turnDeadline = now + turnBudgetNanos;
+            turnPlayouts = 0;
+            turnNanos = 0;
+        }
+        long remaining = turnDeadline - now;
+        Action action = new Action.EndTurn();
+        if (remaining > 0) {
+            // Половина оставшегося времени: после этого действия будут ещё
+            action = search(state, now + Math.max(remaining / 2, MIN_SEARCH_NANOS));
+            turnPlayouts += playouts;
+            turnNanos += searchNanos;
+        }
+        if (action instanceof Action.EndTurn) {
+            state.getOutput().message(String.format("ИИ: за ход %d доигрываний, %.0f доигрываний/с, потоков %d",
+                    turnPlayouts, turnNanos == 0 ? 0 : turnPlayouts * 1e9 / turnNanos, threads));
+        }
+        return action;
+    }
+
+    // Лучшее действие для стороны, которая ходит в state: самое посещаемое действие корня к deadline
+    public Action search(GameState state, long deadline) {
+        long start = System.nanoTime();
+        GameState root = state.copy(GameOutput.SILENT, new GameRandom(state.getTurn()));
+        SearchContext context = new SearchContext(root);
+        Node tree = new Node(null, root.isPlayerTurn());
+        tree.expand(context.generateActions(root), root.isPlayerTurn());
+        Node[] children = tree.children.get();
+
+        LongAdder count = new LongAdder();
+        if (children.length > 1) {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int worker = 0; worker < threads; worker++) {
+                long seed = ((long) state.getTurn() << 16) + worker;
+                // Своя копия корня на поток, снятая здесь: copy() помечает общие страницы и в оригинале,
+                // поэтому один корень нельзя копировать из нескольких потоков сразу
+                GameState base = root.copy(GameOutput.SILENT, new GameRandom(seed));
+                tasks.add(pool.submit(() -> runPlayouts(base, tree, context, deadline, seed, count)));
+            }
+            tasks.forEach(ForkJoinTask::join);
+        }
+
+        Node best = children[children.length - 1]; // EndTurn, если ничего не успели
+        for (Node child : children) {
+            if (child.visits.get() > best.visits.get()) {
+                best = child;
+            }
+        }
+        playouts = count.sum();
+        searchNanos = System.nanoTime() - start;
+        return best.action;
+    }
+
+    // Цикл одного потока: спуск по UCT, раскрытие, доигрывание и обновление счётчиков на пути.
+    // base — копия корня только этого потока, каждое доигрывание идёт на её копии
+    private static void runPlayouts(GameState base, Node tree, SearchContext context, long deadline,
+                                    long seed, LongAdder count) {
+        GameRandom random = new GameRandom(seed);
+        SplittableRandom policy = random.split(GameRandom.Stream.AI);
+        List<Node> path = new ArrayList<>();
+        do {
+            GameState state = base.copy(GameOutput.SILENT, random);
+            path.clear();
+            Node node = tree;
+            node.visits.incrementAndGet();
+            while (!state.isOver()) {
+                Node[] children = node.children.get();
+                if (children == null) {
+                    // Лист раскрывается со второго посещения, первое сразу уходит в доигрывание
+                    if (node.visits.get() < 2) break;
+                    node.expand(context.generateActions(state), state.isPlayerTurn());
+                    children = node.children.get();
+                }
+                node = select(node, children);
+                node.visits.incrementAndGet();
+                path.add(node);
+                state.applyAction(node.action); // Неудачное действие ничего не меняет
+            }
+
+            double result = playout(state, context, policy);
+            for (Node visited : path) {
+                visited.value.addAndGet(Math.round((visited.playerMove ? result : 1 - result) * VALUE_SCALE));
+            }
+            count.increment();
+        } while (System.nanoTime() < deadline);
+    }
+
+    // UCT: сначала непосещённые, затем по средней выгоде для выбирающей стороны плюс бонус за редкость
+    private static Node select(Node parent, Node[] children) {
+        double logVisits = Math.log(Math.max(1, parent.visits.get()));
+        Node best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits.get();
+            if (visits == 0) {
+                return child;
+            }
+            double score = child.value.get() / (double) (VALUE_SCALE * visits)
+                    + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (score > bestScore) {
+                best = child;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // Случайное доигрывание и шанс победы игрока в конце: 1 или 0 для оконченной партии,
+    // иначе логиста от оценки позиции
+    private static double playout(GameState state, SearchContext context, SplittableRandom random) {
+        for (int i = 0; i < PLAYOUT_ACTIONS && !state.isOver(); i++) {
+            List<Action> actions = context.generateActions(state);
+            state.applyAction(actions.get(random.nextInt(actions.size())));
+        }
+        if (state.isOver()) {
+            return state.getWinner() == GameState.Winner.PLAYER ? 1 : 0;
+        }
+        int score = context.evaluate(state);
+        if (!state.isPlayerTurn()) {
+            score = -score;
+        }
+        return 1 / (1 + Math.exp(-score / SCORE_SCALE));
+    }
+
+    // Узел дерева: действие, которым в него пришли, и сторона, которая его выбрала
+    private static final class Node {
+        final Action action;
+        final boolean playerMove;
+        final AtomicInteger visits = new AtomicInteger();
+        final AtomicLong value = new AtomicLong();
+        final AtomicReference<Node[]> children = new AtomicReference<>();
+
+        Node(Action action, boolean playerMove) {
+            this.action = action;
+            this.playerMove = playerMove;
+        }
+
+        // Раскрывает узел; если другой поток успел раньше, остаются его дети
+        void expand(List<Action> actions, boolean playerMove) {
+            Node[] created = new Node[actions.size()];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = new Node(actions.get(i), playerMove);
+            }
+            children.compareAndSet(null, created);
+        }
+    }
+}
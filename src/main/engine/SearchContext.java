@@ -0,0 +1,143 @@
+package main.engine;
+
+import main.buildings.Castle;
+import main.map.FlowField;
+import main.map.GameMap;
+import main.units.Hero;
+import main.units.Unit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Общее для поисковых ИИ: кандидаты ходов и оценка позиции.
+// Поля потока к замкам берутся из карты корня поиска — клетки при поиске не меняются,
+// а после вычисления поля только читаются, так что контекст можно делить между потоками.
+final class SearchContext {
+    private final FlowField towardComputer;
+    private final FlowField towardPlayer;
+
+    SearchContext(GameState root) {
+        GameMap map = root.getMap();
+        towardComputer = map.getFlowField(root.getComputerCastle().getX(), root.getComputerCastle().getY(), true);
+        towardPlayer = map.getFlowField(root.getPlayerCastle().getX(), root.getPlayerCastle().getY(), false);
+    }
+
+    // Кандидаты для стороны, которая ходит: атаки по врагам в радиусе, по два хода на юнита
+    // (по полю потока к вражескому замку и к ближайшему врагу), найм, постройка и в конце EndTurn
+    List<Action> generateActions(GameState state) {
+        List<Action> actions = new ArrayList<>();
+        GameMap map = state.getMap();
+        Castle castle = state.getCurrentCastle();
+        Castle enemy = state.getOpponentCastle();
+        List<Unit> units = castle.getUnits();
+
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            if (state.hasAttacked(unit)) continue;
+            for (Unit target : map.getUnitsInRadius(unit.getX(), unit.getY(), unit.getRange())) {
+                if (target.isPlayer() != unit.isPlayer()) {
+                    actions.add(new Action.Attack(i, target.getX(), target.getY()));
+                }
+            }
+        }
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            if (state.hasMoved(unit)) continue;
+            int[] advance = flowFieldMove(map, unit, unit.isPlayer() ? towardComputer : towardPlayer);
+            if (advance != null) {
+                actions.add(new Action.Move(i, advance[0], advance[1]));
+            }
+            int[] approach = approachMove(map, unit, enemy);
+            if (approach != null && (advance == null || approach[0] != advance[0] || approach[1] != advance[1])) {
+                actions.add(new Action.Move(i, approach[0], approach[1]));
+            }
+        }
+        if (!state.hasRecruited()) {
+            for (int choice = GameState.UNIT_CHOICES; choice >= 1; choice--) {
+                Unit unit = GameState.createUnit(choice, castle, castle == state.getPlayerCastle());
+                if (castle.getGold() >= unit.getCost() && castle.checkBuilding(unit.getType())) {
+                    actions.add(new Action.Recruit(choice));
+                }
+            }
+        }
+        if (!state.hasBuilt()) {
+            for (String building : GameState.BUILDINGS) {
+                int cost = Castle.getBuildingCost(building);
+                // Цена -1 у здания, которое замок не знает под этим именем: постройка всё равно не пройдёт
+                if (cost >= 0 && !castle.getBuildings().contains(building) && castle.getGold() >= cost) {
+                    actions.add(new Action.Build(building));
+                }
+            }
+        }
+        actions.add(new Action.EndTurn());
+        return actions;
+    }
+
+    // Самая дальняя свободная клетка по полю потока в пределах дальности хода
+    private static int[] flowFieldMove(GameMap map, Unit unit, FlowField field) {
+        int best = -1;
+        int x = unit.getX();
+        int y = unit.getY();
+        for (int i = 0; i < unit.getMovement(); i++) {
+            int next = field.nextCell(x, y);
+            if (next < 0) break;
+            x = next % map.getWidth();
+            y = next / map.getWidth();
+            if (!map.isWalkable(x, y)) break;
+            best = next;
+        }
+        return best < 0 ? null : new int[]{best % map.getWidth(), best / map.getWidth()};
+    }
+
+    // Свободная клетка в пределах хода, ближайшая к ближайшему вражескому юниту
+    private static int[] approachMove(GameMap map, Unit unit, Castle enemy) {
+        Unit nearest = null;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (Unit other : enemy.getUnits()) {
+            int distance = Math.abs(other.getX() - unit.getX()) + Math.abs(other.getY() - unit.getY());
+            if (distance < nearestDistance) {
+                nearest = other;
+                nearestDistance = distance;
+            }
+        }
+        if (nearest == null || nearestDistance <= unit.getRange()) {
+            return null; // Уже можно атаковать
+        }
+        int[] best = null;
+        int bestDistance = nearestDistance;
+        int reach = unit.getMovement();
+        for (int dy = -reach; dy <= reach; dy++) {
+            int span = reach - Math.abs(dy);
+            for (int dx = -span; dx <= span; dx++) {
+                int x = unit.getX() + dx;
+                int y = unit.getY() + dy;
+                if (!map.isWalkable(x, y)) continue;
+                int distance = Math.abs(nearest.getX() - x) + Math.abs(nearest.getY() - y);
+                if (distance < bestDistance) {
+                    best = new int[]{x, y};
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Оценка с точки зрения стороны, которая ходит
+    int evaluate(GameState state) {
+        int score = material(state.getPlayerCastle(), towardComputer) - material(state.getComputerCastle(), towardPlayer);
+        return state.isPlayerTurn() ? score : -score;
+    }
+
+    // Армия (стоимость, здоровье, атака), продвижение к вражескому замку, золото и очки
+    private static int material(Castle castle, FlowField toEnemy) {
+        int value = castle.getGold() + castle.getPoints() * 2;
+        for (Unit unit : castle.getUnits()) {
+            value += unit.getCost() * 4 + unit.hp + unit.getAttack();
+            int distance = toEnemy.getDistance(unit.getX(), unit.getY());
+            if (distance != FlowField.UNREACHABLE) {
+                value -= unit instanceof Hero ? distance : distance / 4;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,170 @@
+package main.engine;
+
+import main.util.GameRandom;
+
+import java.util.List;
+
+// Компьютерный соперник с перебором: альфа-бета (негамакс) с итеративным углублением в пределах
+// бюджета времени на ход и таблицей перестановок по ключам Зобриста.
+// Каждое действие — отдельный полуход; сторона меняется только на EndTurn.
+public class SearchInput implements GameInput {
+    private static final int WIN = 1_000_000;
+    private static final int INFINITY = Integer.MAX_VALUE - 1;
+    private static final long MIN_SEARCH_NANOS = 1_000_000;
+    private static final int MAX_DEPTH_LIMIT = 64;
+
+    private final long turnBudgetNanos;
+    private final int maxDepth;
+    private final TranspositionTable table;
+    private final SearchAbort abort = new SearchAbort();
+
+    private int plannedTurn = -1;
+    private long turnDeadline;
+    // Данные текущего поиска
+    private long deadline;
+    private GameRandom searchRandom;
+    private SearchContext context;
+    private int rootBest;
+    // Статистика последнего поиска
+    private long nodes;
+    private int depthReached;
+    private long searchNanos;
+
+    public SearchInput(long turnBudgetMillis, int maxDepth, int tableMegabytes) {
+        this.turnBudgetNanos = turnBudgetMillis * 1_000_000;
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH_LIMIT);
+        this.table = new TranspositionTable(tableMegabytes);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    public double getNodesPerSecond() {
+        return searchNanos == 0 ? 0 : nodes * 1e9 / searchNanos;
+    }
+
+    @Override
+    public Action nextAction(GameState state) {
+        long now = System.nanoTime();
+        if (plannedTurn != state.getTurn()) {
+            plannedTurn = state.getTurn();
+            turnDeadline = now + turnBudgetNanos;
+        }
+        long remaining = turnDeadline - now;
+        if (remaining <= 0) {
+            return new Action.EndTurn();
+        }
+        // Половина оставшегося времени: после этого действия будут ещё
+        Action action = search(state, now + Math.max(remaining / 2, MIN_SEARCH_NANOS));
+        state.getOutput().message(String.format("ИИ: глубина %d, узлов %d, %.0f узлов/с",
+                depthReached, nodes, getNodesPerSecond()));
+        return action;
+    }
+
+    // Лучшее действие для стороны, которая ходит в state, найденное до deadline
+    public Action search(GameState state, long deadline) {
+        long start = System.nanoTime();
+        this.deadline = deadline;
+        searchRandom = new GameRandom(state.getTurn());
+        GameState root = state.copy(GameOutput.SILENT, searchRandom);
+        context = new SearchContext(root);
+
+        List<Action> actions = context.generateActions(root);
+        Action best = actions.getLast(); // EndTurn, если ничего не успели
+        nodes = 0;
+        depthReached = 0;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            try {
+                rootBest = -1;
+                negamax(root, depth, -INFINITY, INFINITY, 0);
+            } catch (SearchAbort e) {
+                break;
+            }
+            if (rootBest >= 0) {
+                best = actions.get(rootBest);
+            }
+            depthReached = depth;
+        }
+        searchNanos = System.nanoTime() - start;
+        return best;
+    }
+
+    private int negamax(GameState state, int depth, int alpha, int beta, int ply) {
+        nodes++;
+        if ((nodes & 255) == 0 && System.nanoTime() > deadline) {
+            throw abort;
+        }
+        if (state.isOver()) {
+            // Партия заканчивается на EndTurn, так что ходит уже другая сторона
+            boolean moverWon = (state.getWinner() == GameState.Winner.PLAYER) == state.isPlayerTurn();
+            return moverWon ? WIN - ply : -(WIN - ply);
+        }
+        if (depth == 0) {
+            return context.evaluate(state);
+        }
+
+        long key = state.getHash();
+        long entry = table.probe(key);
+        int hashMove = -1;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int flag = TranspositionTable.flag(entry);
+                if (flag == TranspositionTable.EXACT
+                        || (flag == TranspositionTable.LOWER && score >= beta)
+                        || (flag == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        List<Action> actions = context.generateActions(state);
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestIndex = -1;
+        for (int i = -1; i < actions.size(); i++) {
+            // Сначала ход из таблицы, затем остальные по порядку генерации
+            int index = i < 0 ? hashMove : i;
+            if (index < 0 || index >= actions.size() || (i >= 0 && index == hashMove)) continue;
+
+            GameState child = state.copy(GameOutput.SILENT, searchRandom);
+            if (!child.applyAction(actions.get(index))) continue;
+            int score;
+            if (!child.isOver() && child.isPlayerTurn() == state.isPlayerTurn()) {
+                score = negamax(child, depth - 1, alpha, beta, ply + 1);
+            } else {
+                score = -negamax(child, depth - 1, -beta, -alpha, ply + 1);
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestIndex = index;
+                if (ply == 0) {
+                    rootBest = index;
+                }
+            }
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta) break;
+        }
+
+        int flag = bestScore <= originalAlpha ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, depth, flag, bestScore, bestIndex);
+        return bestScore;
+    }
+
+    // Прерывание поиска по времени; без стека, создаётся один раз
+    private static final class SearchAbort extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SearchAbort() {
+            super(null, null, false, false);
+        }
+    }
+}
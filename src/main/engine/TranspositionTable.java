@@ -0,0 +1,62 @@
+package main.engine;
+
+// Таблица перестановок поиска: позиция (ключ Зобриста) -> оценка, глубина, тип оценки и лучший ход.
+// Два параллельных массива long без объектов; размер задаётся в мегабайтах и округляется вниз до степени двойки.
+final class TranspositionTable {
+    static final int EXACT = 0;
+    static final int LOWER = 1; // Оценка не меньше сохранённой (было отсечение по beta)
+    static final int UPPER = 2; // Оценка не больше сохранённой (ни один ход не поднял alpha)
+
+    private static final int ENTRY_BYTES = 16;
+    private static final long PRESENT = 1L << 26;
+
+    private final long[] keys;
+    // Биты 0–15: номер лучшего хода + 1, 16–23: глубина, 24–25: тип, 26: запись есть, 32–63: оценка
+    private final long[] data;
+    private final int mask;
+
+    TranspositionTable(int megabytes) {
+        long entries = Math.max(1, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = (int) Long.highestOneBit(Math.min(entries, 1 << 30));
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    // Запись для позиции или 0, если её нет
+    long probe(long key) {
+        int index = (int) key & mask;
+        return keys[index] == key ? data[index] : 0;
+    }
+
+    // Глубокие оценки другой позиции не вытесняются более мелкими
+    void store(long key, int depth, int flag, int score, int move) {
+        int index = (int) key & mask;
+        if (keys[index] != key && depth(data[index]) > depth) {
+            return;
+        }
+        keys[index] = key;
+        data[index] = ((long) score << 32) | PRESENT | ((long) flag << 24) | ((long) depth << 16) | (move + 1);
+    }
+
+    static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    static int flag(long entry) {
+        return (int) (entry >>> 24) & 3;
+    }
+
+    // Номер лучшего хода или -1
+    static int move(long entry) {
+        return (int) (entry & 0xFFFF) - 1;
+    }
+}
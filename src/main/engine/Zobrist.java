@@ -0,0 +1,124 @@
+package main.engine;
+
+import main.buildings.Castle;
+import main.map.GameMap;
+import main.map.Tile;
+import main.units.Unit;
+
+// 64-битные ключи позиций в духе Зобриста. Вместо таблиц случайных чисел ключ каждого признака
+// (тип клетки, юнит на клетке с его здоровьем, золото замка...) получается перемешиванием его номера —
+// это та же «случайная таблица», но без памяти под все клетки и все значения золота.
+// Ключи складываются, а не XOR-ятся: два одинаковых юнита в одной клетке не должны взаимно сокращаться.
+// Карта, замки и GameState ведут свои части хеша сами при каждом изменении (GameState.getHash за O(1));
+// hash() считает то же самое с нуля — для проверок.
+public final class Zobrist {
+    // Счётчики замка
+    public static final int GOLD = 0;
+    public static final int POINTS = 1;
+    public static final int STEPS = 2;
+
+    private static final long TILE = 1L << 56;
+    private static final long UNIT = 2L << 56;
+    private static final long CASTLE = 3L << 56;
+    private static final long BUILDING = 4L << 56;
+    private static final long TURN = 5L << 56;
+    private static final long FLAGS = 6L << 56;
+
+    private Zobrist() {
+    }
+
+    // Ключ признака: финализатор SplitMix64
+    static long key(long feature) {
+        long z = feature * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long tileKey(int cell, Tile.Type type) {
+        return key(TILE | ((long) cell << 8) | type.ordinal());
+    }
+
+    // Юнит на клетке; символ различает и тип, и сторону
+    public static long unitKey(char symbol, int cell, int hp) {
+        return key(UNIT | ((long) symbol << 40) | ((long) cell << 12) | (hp & 0xFFF));
+    }
+
+    // Значение счётчика замка (GOLD, POINTS, STEPS); замок узнаётся по координатам
+    public static long castleKey(int x, int y, int field, int value) {
+        return key(key(CASTLE | ((long) field << 52) | ((long) x << 40) | ((long) y << 28)) + value);
+    }
+
+    public static long buildingKey(int x, int y, String building) {
+        return key(key(BUILDING | ((long) x << 40) | ((long) y << 28)) + building.hashCode());
+    }
+
+    // Чей ход, найм и постройка в этом ходу, исход партии
+    static long turnKey(boolean playerTurn, boolean recruited, boolean built, GameState.Winner winner) {
+        return key(TURN | (playerTurn ? 1 : 0) | (recruited ? 2 : 0) | (built ? 4 : 0)
+                | ((long) winner.ordinal() << 3));
+    }
+
+    // Отметки «ходил» (1) и «атаковал» (2) юнита в текущем ходу
+    static long flagsKey(char symbol, int cell, int flags) {
+        return key(FLAGS | ((long) symbol << 40) | ((long) cell << 12) | flags);
+    }
+
+    // Ключ позиции с нуля; совпадает с GameState.getHash()
+    public static long hash(GameState state) {
+        return hashTiles(state.getMap()) + hashUnits(state.getMap())
+                + hashCastle(state.getPlayerCastle()) + hashCastle(state.getComputerCastle())
+                + turnKey(state.isPlayerTurn(), state.hasRecruited(), state.hasBuilt(), state.getWinner())
+                + hashFlags(state, state.getPlayerCastle()) + hashFlags(state, state.getComputerCastle());
+    }
+
+    public static long hashTiles(GameMap map) {
+        long hash = key(TILE | ((long) map.getWidth() << 16) | map.getHeight());
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                hash += tileKey(y * map.getWidth() + x, map.getTileType(x, y));
+            }
+        }
+        return hash;
+    }
+
+    // То же по самим клеткам (порядковые номера типов построчно) — для карты, которая ещё строится
+    public static long hashTiles(int width, int height, byte[] tiles) {
+        Tile.Type[] types = Tile.Type.values();
+        long hash = key(TILE | ((long) width << 16) | height);
+        for (int cell = 0; cell < width * height; cell++) {
+            hash += tileKey(cell, types[tiles[cell]]);
+        }
+        return hash;
+    }
+
+    public static long hashUnits(GameMap map) {
+        long hash = 0;
+        for (Unit unit : map.getUnits()) {
+            hash += unitKey(unit.getSymbol(), unit.getY() * map.getWidth() + unit.getX(), unit.hp);
+        }
+        return hash;
+    }
+
+    public static long hashCastle(Castle castle) {
+        long hash = castleKey(castle.getX(), castle.getY(), GOLD, castle.getGold())
+                + castleKey(castle.getX(), castle.getY(), POINTS, castle.getPoints())
+                + castleKey(castle.getX(), castle.getY(), STEPS, castle.getSteps());
+        for (String building : castle.getBuildings()) {
+            hash += buildingKey(castle.getX(), castle.getY(), building);
+        }
+        return hash;
+    }
+
+    private static long hashFlags(GameState state, Castle castle) {
+        long hash = 0;
+        int width = state.getMap().getWidth();
+        for (Unit unit : castle.getUnits()) {
+            int flags = (state.hasMoved(unit) ? 1 : 0) | (state.hasAttacked(unit) ? 2 : 0);
+            if (flags != 0 && unit.isAlive()) {
+                hash += flagsKey(unit.getSymbol(), unit.getY() * width + unit.getX(), flags);
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,63 @@
+package main.map;
+
+import java.util.Arrays;
+
+// Массив int по страницам с копированием при записи. Копия делит страницы с оригиналом
+// и стоит O(число страниц); страница клонируется при первой записи в неё.
+// Страница своя, если помечена меткой этого массива. При копировании метку меняют обе стороны,
+// поэтому ни оригинал, ни копия не пишут в общие страницы. Копирование меняет метку оригинала,
+// так что копировать массив можно только в том потоке, который им владеет.
+final class CowIntArray {
+    private static final int PAGE_SHIFT = 10; // 1024 значения (4 КБ) на страницу
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int length;
+    private final int[][] pages;
+    private final Object[] owners; // Метка массива, которому принадлежит страница
+    private Object token = new Object();
+
+    CowIntArray(int length, int fill) {
+        this.length = length;
+        int count = (length + PAGE_MASK) >>> PAGE_SHIFT;
+        pages = new int[count][];
+        owners = new Object[count];
+        for (int page = 0; page < count; page++) {
+            pages[page] = new int[Math.min(PAGE_SIZE, length - (page << PAGE_SHIFT))];
+            Arrays.fill(pages[page], fill);
+            owners[page] = token;
+        }
+    }
+
+    private CowIntArray(CowIntArray source) {
+        length = source.length;
+        pages = source.pages.clone();
+        owners = source.owners.clone(); // Чужие метки: все страницы общие
+    }
+
+    CowIntArray copy() {
+        CowIntArray copy = new CowIntArray(this);
+        token = new Object(); // Оригинал тоже больше не владеет ни одной страницей
+        return copy;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int get(int index) {
+        return pages[index >>> PAGE_SHIFT][index & PAGE_MASK];
+    }
+
+    void set(int index, int value) {
+        writablePage(index >>> PAGE_SHIFT)[index & PAGE_MASK] = value;
+    }
+
+    private int[] writablePage(int page) {
+        if (owners[page] != token) {
+            pages[page] = pages[page].clone();
+            owners[page] = token;
+        }
+        return pages[page];
+    }
+}
@@ -0,0 +1,123 @@
+package main.map;
+
+import java.util.Arrays;
+
+// Поле потока к одной клетке (обычно к замку): для каждой клетки карты — стоимость пути до цели
+// и направление первого шага. Считается одним проходом Дейкстры от цели по стоимости зон
+// (вход в клетку стоит шаг зоны + 1, как в Pathfinder), поэтому ход любого числа юнитов к цели —
+// это чтение таблицы, а не отдельный поиск пути для каждого.
+// Юниты в поле не учитываются: они двигаются каждый ход, а поле пересчитывается только при смене клеток.
+public class FlowField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final byte NO_STEP = -1;
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private final int width;
+    private final int height;
+    private final int targetX;
+    private final int targetY;
+    private final boolean isPlayer;
+    private final int[] distance;
+    private final byte[] direction;
+    private long version; // Версия клеток карты, для которой поле посчитано
+
+    FlowField(GameMap map, int targetX, int targetY, boolean isPlayer) {
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.targetX = targetX;
+        this.targetY = targetY;
+        this.isPlayer = isPlayer;
+        this.distance = new int[width * height];
+        this.direction = new byte[width * height];
+        this.version = -1;
+    }
+
+    public int getTargetX() {
+        return targetX;
+    }
+
+    public int getTargetY() {
+        return targetY;
+    }
+
+    // Стоимость пути от клетки до цели или UNREACHABLE
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return UNREACHABLE;
+        }
+        return distance[y * width + x];
+    }
+
+    // Следующая клетка на пути к цели (y * width + x) или -1 для цели и недостижимых клеток
+    public int nextCell(int x, int y) {
+        int cell = y * width + x;
+        byte d = direction[cell];
+        return d == NO_STEP ? -1 : (y + DY[d]) * width + x + DX[d];
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    // Дейкстра от цели с очередью-корзинами: веса маленькие целые (1..11), так что
+    // вместо кучи хватает кольца из нескольких корзин (алгоритм Дайала)
+    void recompute(GameMap map, long version) {
+        this.version = version;
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(direction, NO_STEP);
+        if (map.getTileType(targetX, targetY) == Tile.Type.OBSTACLE) {
+            return;
+        }
+
+        int[] weight = new int[width * height]; // Стоимость входа в клетку, 0 — препятствие
+        int maxWeight = 1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (map.getTileType(x, y) != Tile.Type.OBSTACLE) {
+                    int w = (isPlayer ? map.getPlayerMoveStep(x, y) : map.getCompMoveStep(x, y)) + 1;
+                    weight[y * width + x] = w;
+                    maxWeight = Math.max(maxWeight, w);
+                }
+            }
+        }
+
+        int ring = maxWeight + 1;
+        int[][] buckets = new int[ring][64];
+        int[] sizes = new int[ring];
+        int target = targetY * width + targetX;
+        distance[target] = 0;
+        buckets[0][sizes[0]++] = target;
+        int pending = 1;
+
+        for (int current = 0; pending > 0; current++) {
+            int b = current % ring;
+            // Корзина может пополняться во время обхода (вес 0 невозможен, но оставляем цикл по размеру)
+            for (int i = 0; i < sizes[b]; i++) {
+                int cell = buckets[b][i];
+                pending--;
+                if (distance[cell] != current) continue; // Клетка уже получила меньшую стоимость
+                int x = cell % width;
+                int y = cell / width;
+                // Шаг из соседа в эту клетку стоит weight[cell]
+                int cost = current + weight[cell];
+                for (int d = 0; d < 4; d++) {
+                    int nx = x + DX[d];
+                    int ny = y + DY[d];
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+                    int next = ny * width + nx;
+                    if (weight[next] == 0 || cost >= distance[next]) continue;
+                    distance[next] = cost;
+                    direction[next] = (byte) (d ^ 1); // Обратное направление: из соседа в эту клетку
+                    int nb = cost % ring;
+                    if (sizes[nb] == buckets[nb].length) {
+                        buckets[nb] = Arrays.copyOf(buckets[nb], sizes[nb] * 2);
+                    }
+                    buckets[nb][sizes[nb]++] = next;
+                    pending++;
+                }
+            }
+            sizes[b] = 0;
+        }
+    }
+}
@@ -1,14 +1,34 @@
 package main.map;
 
+import main.engine.Zobrist;
 import main.units.Unit;
+import main.util.GameRandom;
 
 import java.util.*;
+import java.util.function.Function;
 
 public class GameMap {
+    // Размеры стандартной карты
     public static final int WIDTH = 10;
     public static final int HEIGHT = 10;
-    private Tile[][] grid;
+    public static final int MAX_SIZE = 4096;
+    private static final Tile.Type[] TYPES = Tile.Type.values();
+
+    private final int width;
+    private final int height;
+    private byte[] tiles; // Порядковые номера Tile.Type, построчно: tiles[y * width + x]
+    private byte[] playerSteps; // Шаг зоны для юнитов игрока в каждой клетке, по тому же индексу, что tiles
+    private byte[] compSteps;   // То же для юнитов компьютера
+    private boolean tilesShared; // Массивы клеток общие с копией карты: перед записью их нужно склонировать
+    private final CowIntArray walkable; // Бит клетки установлен, если это не препятствие и на ней нет юнита
+    private final GameRandom random;
     private List<Unit> units;
+    private SpatialIndex unitIndex;
+    private HierarchicalPathfinder hierarchy; // Создаётся при первом запросе длинного маршрута
+    private final Map<Long, FlowField> flowFields = new HashMap<>(); // Поля потока по цели и стороне
+    private long tileVersion; // Растёт при каждой смене клетки, по ней поля потока узнают об устаревании
+    private long tileHash;    // Ключ Зобриста клеток, обновляется при смене типа клетки
+    private long unitHash;    // Сумма ключей юнитов на карте (символ, клетка, здоровье)
 
     // Зоны игрока и компьютера
     public static final int PLAYER_ZONE_SIZE = 5;
@@ -19,97 +39,172 @@ public class GameMap {
     }
 
     public GameMap(boolean empty) {
-        grid = new Tile[HEIGHT][WIDTH];
+        this(WIDTH, HEIGHT, empty);
+    }
+
+    public GameMap(int width, int height, boolean empty) {
+        this(width, height, empty, new GameRandom());
+    }
+
+    public GameMap(int width, int height, boolean empty, GameRandom random) {
+        if (width < 1 || height < 1 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("Недопустимый размер карты: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.random = random;
+        tiles = new byte[width * height]; // GRASS имеет порядковый номер 0
+        walkable = new CowIntArray((width * height + 31) >>> 5, -1); // Пустая трава проходима везде
+        playerSteps = new byte[width * height];
+        compSteps = new byte[width * height];
+        for (int cell = 0; cell < tiles.length; cell++) {
+            refreshSteps(cell);
+        }
         units = new ArrayList<>();
-        if (empty) {
-            generateEmptyMap();
-        } else {
+        unitIndex = new SpatialIndex(width, height);
+        tileHash = Zobrist.hashTiles(width, height, tiles);
+        if (!empty) {
             generateMap();
         }
     }
 
-    private void generateEmptyMap() {
-        for (int y = 0; y < HEIGHT; y++) {
-            for (int x = 0; x < WIDTH; x++) {
-                grid[y][x] = new Tile(Tile.Type.GRASS);
-            }
-        }
+    // Копия клеток карты без юнитов
+    public GameMap copyTiles(GameRandom random) {
+        return copy(random, unit -> null);
     }
 
-    private void generateMap() {
-        Random random = new Random();
+    // Копия карты, на которой вместо каждого юнита стоит copies.apply(юнит) в том же порядке
+    // (юниты, для которых копии нет, в неё не попадают). Клетки, проходимость и индекс юнитов
+    // делятся с оригиналом до первой записи, так что копия стоит O(юнитов + страниц), а не O(клеток).
+    // Поля потока и иерархия маршрутов не копируются и строятся заново по запросу.
+    public GameMap copy(GameRandom random, Function<Unit, Unit> copies) {
+        return new GameMap(this, random, copies);
+    }
 
-        // Заполняем карту травой
-        for (int y = 0; y < HEIGHT; y++) {
-            for (int x = 0; x < WIDTH; x++) {
-                grid[y][x] = new Tile(Tile.Type.GRASS);
+    private GameMap(GameMap source, GameRandom random, Function<Unit, Unit> copies) {
+        this.width = source.width;
+        this.height = source.height;
+        this.random = random;
+        tiles = source.tiles;
+        playerSteps = source.playerSteps;
+        compSteps = source.compSteps;
+        tilesShared = true;
+        source.tilesShared = true;
+        walkable = source.walkable.copy();
+        tileHash = source.tileHash;
+        unitHash = source.unitHash;
+        units = new ArrayList<>(source.units.size());
+        unitIndex = source.unitIndex.copy(copies);
+        for (Unit unit : source.units) {
+            Unit copy = copies.apply(unit);
+            if (copy != null) {
+                units.add(copy);
+                copy.setMap(this);
+            } else {
+                unitHash -= source.unitIndex.getKey(unit);
+                refreshWalkable(unit.getY() * width + unit.getX());
             }
         }
+    }
+
+    // Ключ Зобриста клеток и юнитов; поддерживается при каждом изменении, поэтому берётся за O(1)
+    public long getHash() {
+        return tileHash + unitHash;
+    }
+
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    private void generateMap() {
+        SplittableRandom random = this.random.stream(GameRandom.Stream.MAP);
 
         // Устанавливаем замки
-        grid[0][0].setType(Tile.Type.CASTLE_PLAYER);               // Замок игрока (верхний левый угол)
-        grid[HEIGHT - 1][WIDTH - 1].setType(Tile.Type.CASTLE_COMP); // Замок компьютера (нижний правый угол)
+        setType(0, 0, Tile.Type.CASTLE_PLAYER);                 // Замок игрока (верхний левый угол)
+        setType(width - 1, height - 1, Tile.Type.CASTLE_COMP);  // Замок компьютера (нижний правый угол)
 
         // Создаём диагональную дорогу
-        for (int i = 0; i < Math.min(WIDTH, HEIGHT); i++) {
-            if (grid[i][i].getType() != Tile.Type.CASTLE_PLAYER && grid[i][i].getType() != Tile.Type.CASTLE_COMP) { // Если клетка не замок, делаем её дорогой
-                grid[i][i].setType(Tile.Type.ROAD);
+        for (int i = 0; i < Math.min(width, height); i++) {
+            if (typeAt(i, i) == Tile.Type.GRASS) { // Если клетка не замок, делаем её дорогой
+                setType(i, i, Tile.Type.ROAD);
             }
         }
 
         // Добавляем зону игрока
-        for (int y = 0; y < PLAYER_ZONE_SIZE; y++) {
-            for (int x = 0; x < PLAYER_ZONE_SIZE; x++) {
-                if (grid[y][x].getType() == Tile.Type.GRASS) {
-                    grid[y][x].setType(Tile.Type.PLAYER_ZONE);
+        for (int y = 0; y < Math.min(PLAYER_ZONE_SIZE, height); y++) {
+            for (int x = 0; x < Math.min(PLAYER_ZONE_SIZE, width); x++) {
+                if (typeAt(x, y) == Tile.Type.GRASS) {
+                    setType(x, y, Tile.Type.PLAYER_ZONE);
                 }
             }
         }
 
         // Добавляем зону компьютера
-        for (int y = HEIGHT - COMP_ZONE_SIZE; y < HEIGHT; y++) {
-            for (int x = WIDTH - COMP_ZONE_SIZE; x < WIDTH; x++) {
-                if (grid[y][x].getType() == Tile.Type.GRASS) {
-                    grid[y][x].setType(Tile.Type.COMP_ZONE);
+        for (int y = Math.max(0, height - COMP_ZONE_SIZE); y < height; y++) {
+            for (int x = Math.max(0, width - COMP_ZONE_SIZE); x < width; x++) {
+                if (typeAt(x, y) == Tile.Type.GRASS) {
+                    setType(x, y, Tile.Type.COMP_ZONE);
                 }
             }
         }
 
-        // Добавляем случайные препятствия (не заменяя дорогу и замки)
-        for (int i = 0; i < 6; i++) {
+        // Добавляем случайные препятствия (не заменяя дорогу и замки): 6 на стандартной карте 10x10
+        int grass = 0;
+        for (byte tile : tiles) {
+            if (tile == Tile.Type.GRASS.ordinal()) grass++;
+        }
+        int obstacles = Math.min(grass, Math.max(6, (int) ((long) width * height * 6 / (WIDTH * HEIGHT))));
+        for (int i = 0; i < obstacles; i++) {
             int x, y;
             do {
-                x = random.nextInt(WIDTH);
-                y = random.nextInt(HEIGHT);
-            } while (grid[y][x].getType() != Tile.Type.GRASS); // Только на траве
+                x = random.nextInt(width);
+                y = random.nextInt(height);
+            } while (typeAt(x, y) != Tile.Type.GRASS); // Только на траве
 
-            grid[y][x].setType(Tile.Type.OBSTACLE);
+            setType(x, y, Tile.Type.OBSTACLE);
         }
     }
 
     // Проверка, находится ли клетка в зоне игрока
     public boolean isPlayerZone(int x, int y) {
-        return x >= 0 && x < PLAYER_ZONE_SIZE && y >= 0 && y < PLAYER_ZONE_SIZE;
+        return playerZoneAt(x, y);
     }
 
     // Проверка, находится ли клетка в зоне компьютера
     public boolean isCompZone(int x, int y) {
-        return x >= WIDTH - COMP_ZONE_SIZE && x < WIDTH && y >= HEIGHT - COMP_ZONE_SIZE && y < HEIGHT;
+        return compZoneAt(x, y);
     }
 
     // Проверка, находится ли клетка на дороге
     public boolean isRoad(int x, int y) {
-        if (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT) {
-            return false;
-        }
-        return grid[y][x].getType() == Tile.Type.ROAD;
+        return roadAt(x, y);
+    }
+
+    // Сами проверки зон и дороги — закрытые: zoneStep зовётся из конструктора
+    private boolean playerZoneAt(int x, int y) {
+        return x >= 0 && x < PLAYER_ZONE_SIZE && y >= 0 && y < PLAYER_ZONE_SIZE;
+    }
+
+    private boolean compZoneAt(int x, int y) {
+        return x >= width - COMP_ZONE_SIZE && x < width && y >= height - COMP_ZONE_SIZE && y < height;
+    }
+
+    private boolean roadAt(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && tiles[y * width + x] == Tile.Type.ROAD.ordinal();
     }
 
     // Получение стоимости перемещения для игрока
     public int getMoveCost(int x, int y) {
         if (isRoad(x, y)) {
-            Random random = new Random();
-            return random.nextInt(21); // Случайное число от 0 до 20
+            return random.stream(GameRandom.Stream.TOLLS).nextInt(21); // Случайное число от 0 до 20
         } else {
             return 0;
         }
@@ -117,46 +212,122 @@ public class GameMap {
 
     // Получение стоимости перемещения для игрока
     public int getPlayerMoveStep(int x, int y) {
-        if (isRoad(x, y)) {
-            return 0; // На своей зоне
-        } else if (isCompZone(x, y)) {
-            return 10; // На зоне компьютера
-        } else if (isPlayerZone(x, y)) {
-            return 5; // На дороге
-        } else {
-            return 1; // На нейтральной зоне
+        if (inBounds(x, y)) {
+            return playerSteps[y * width + x];
         }
+        return zoneStep(x, y, true);
     }
 
-    // Получение стоимости перемещения для игрока
+    // Получение стоимости перемещения для компьютера
     public int getCompMoveStep(int x, int y) {
-        if (isRoad(x, y)) {
-            return 0; // На своей зоне
-        } else if (isCompZone(x, y)) {
-            return 5; // На зоне компьютера
-        } else if (isPlayerZone(x, y)) {
-            return 10; // На дороге
+        if (inBounds(x, y)) {
+            return compSteps[y * width + x];
+        }
+        return zoneStep(x, y, false);
+    }
+
+    // Шаг по зонам: дорога бесплатна, своя зона стоит 5, чужая 10, нейтральная 1
+    private int zoneStep(int x, int y, boolean isPlayer) {
+        if (roadAt(x, y)) {
+            return 0; // На дороге
+        } else if (compZoneAt(x, y)) {
+            return isPlayer ? 10 : 5; // На зоне компьютера
+        } else if (playerZoneAt(x, y)) {
+            return isPlayer ? 5 : 10; // На зоне игрока
         } else {
             return 1; // На нейтральной зоне
         }
     }
 
+    // Пересчёт шагов обеих сторон для клетки после смены её типа
+    private void refreshSteps(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        playerSteps[cell] = (byte) zoneStep(x, y, true);
+        compSteps[cell] = (byte) zoneStep(x, y, false);
+    }
+
     public boolean addUnit(Unit unit) {
-        if (unit.getX() < 0 || unit.getY() < 0 || unit.getX() >= WIDTH || unit.getY() >= HEIGHT) {
+        if (!inBounds(unit.getX(), unit.getY())) {
             return false;
         }
 
         units.add(unit);
+        unitIndex.add(unit);
+        rehashUnit(unit);
+        unit.setMap(this);
+        refreshWalkable(unit.getY() * width + unit.getX());
         return true;
     }
 
+    // Удаление юнита с карты (например, после гибели)
+    public void removeUnit(Unit unit) {
+        if (unitIndex.contains(unit)) {
+            unitHash -= unitIndex.remove(unit);
+            units.remove(unit);
+            unit.setMap(null);
+            refreshWalkable(unit.getY() * width + unit.getX());
+        }
+    }
+
+    public boolean containsUnit(Unit unit) {
+        return unitIndex.contains(unit);
+    }
+
+    // Вызывается после изменения координат юнита, чтобы индекс указывал на новую клетку
+    public void updateUnitPosition(Unit unit) {
+        int oldCell = unitIndex.update(unit);
+        if (oldCell >= 0) {
+            refreshWalkable(oldCell);
+            refreshWalkable(unit.getY() * width + unit.getX());
+            rehashUnit(unit);
+        }
+    }
+
+    // Вызывается юнитом после изменения здоровья, чтобы обновить ключ позиции
+    public void refreshUnit(Unit unit) {
+        if (unitIndex.contains(unit)) {
+            rehashUnit(unit);
+        }
+    }
+
+    private void rehashUnit(Unit unit) {
+        long key = Zobrist.unitKey(unit.getSymbol(), unit.getY() * width + unit.getX(), unit.hp);
+        unitHash += key - unitIndex.setKey(unit, key);
+    }
+
     public Unit getUnitAt(int x, int y) {
-        for (Unit unit : units) {
-            if (unit.getX() == x && unit.getY() == y) {
-                return unit;
-            }
+        if (!inBounds(x, y)) {
+            return null;
         }
-        return null;
+        return unitIndex.first(x, y);
+    }
+
+    // Все юниты в прямоугольнике от (x0, y0) до (x1, y1) включительно
+    public List<Unit> getUnitsInArea(int x0, int y0, int x1, int y1) {
+        List<Unit> result = new ArrayList<>();
+        unitIndex.forEachInRect(x0, y0, x1, y1, result::add);
+        return result;
+    }
+
+    // Все юниты на расстоянии не больше radius (манхэттенская метрика, как у атаки и хода)
+    public List<Unit> getUnitsInRadius(int x, int y, int radius) {
+        List<Unit> result = new ArrayList<>();
+        unitIndex.forEachInRect(x - radius, y - radius, x + radius, y + radius, unit -> {
+            if (Math.abs(unit.getX() - x) + Math.abs(unit.getY() - y) <= radius) {
+                result.add(unit);
+            }
+        });
+        return result;
+    }
+
+    // Юниты в порядке добавления на карту (в этом порядке getUnitAt выбирает юнита из стопки)
+    public List<Unit> getUnits() {
+        return Collections.unmodifiableList(units);
+    }
+
+    public int getUnitCount() {
+        return units.size();
     }
 
 //    public boolean isWalkable(int x, int y) {
@@ -167,15 +338,24 @@ public class GameMap {
 //                && !"КкАаМмВвПпГг".contains(tileSymbol);
 //    }
 
+    // Клетка проходима, если это не препятствие и на ней никто не стоит
     public boolean isWalkable(int x, int y) {
-        if ((x >= 0 && x < WIDTH)
-                && (y >= 0 && y < HEIGHT)) {
-            String tileSymbol = grid[y][x].toString();
-            return ((grid[y][x].getType() != Tile.Type.OBSTACLE)
-                    && (!"КкАаМмВвПпГг".contains(tileSymbol)));
-        } else {
+        if (!inBounds(x, y)) {
             return false;
         }
+        int cell = y * width + x;
+        return (walkable.get(cell >>> 5) & (1 << cell)) != 0;
+    }
+
+    // Пересчёт бита проходимости одной клетки после смены типа или перемещения юнитов
+    private void refreshWalkable(int cell) {
+        boolean free = tiles[cell] != Tile.Type.OBSTACLE.ordinal()
+                && unitIndex.first(cell % width, cell / width) == null;
+        int word = walkable.get(cell >>> 5);
+        int updated = free ? word | (1 << cell) : word & ~(1 << cell);
+        if (updated != word) {
+            walkable.set(cell >>> 5, updated);
+        }
     }
 
 
@@ -187,10 +367,10 @@ public class GameMap {
 //            System.out.println();
 //        }
 
-        char[][] display = new char[HEIGHT][WIDTH];
-        for (int y = 0; y < HEIGHT; y++) {
-            for (int x = 0; x < WIDTH; x++) {
-                display[y][x] = grid[y][x].toString().charAt(0);
+        char[][] display = new char[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                display[y][x] = TYPES[tiles[y * width + x]].symbol().charAt(0);
             }
         }
         for (Unit unit : units) {
@@ -201,13 +381,87 @@ public class GameMap {
         }
     }
 
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
     public void setTile(int x, int y, Tile.Type type) {
-        if (x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT) {
-            grid[y][x].setType(type);
+        if (inBounds(x, y)) {
+            setType(x, y, type);
+        }
+    }
+
+    private void setType(int x, int y, Tile.Type type) {
+        int cell = y * width + x;
+        if (tilesShared) {
+            tiles = tiles.clone();
+            playerSteps = playerSteps.clone();
+            compSteps = compSteps.clone();
+            tilesShared = false;
+        }
+        tileHash += Zobrist.tileKey(cell, type) - Zobrist.tileKey(cell, TYPES[tiles[cell]]);
+        tiles[cell] = (byte) type.ordinal();
+        refreshWalkable(cell);
+        refreshSteps(cell);
+        tileVersion++;
+        if (hierarchy != null) {
+            hierarchy.invalidate(x, y);
+        }
+    }
+
+    public HierarchicalPathfinder getHierarchicalPathfinder() {
+        if (hierarchy == null) {
+            hierarchy = new HierarchicalPathfinder(this);
+        }
+        return hierarchy;
+    }
+
+    // Поле потока к клетке (обычно к замку) для юнитов игрока или компьютера.
+    // Пересчитывается при запросе, только если с прошлого расчёта менялись клетки карты.
+    public FlowField getFlowField(int targetX, int targetY, boolean isPlayer) {
+        if (!inBounds(targetX, targetY)) {
+            throw new IllegalArgumentException("Цель вне карты: " + targetX + "," + targetY);
+        }
+        long key = ((long) (targetY * width + targetX) << 1) | (isPlayer ? 1 : 0);
+        FlowField field = flowFields.computeIfAbsent(key, k -> new FlowField(this, targetX, targetY, isPlayer));
+        if (field.getVersion() != tileVersion) {
+            field.recompute(this, tileVersion);
         }
+        return field;
     }
 
+    public Tile.Type getTileType(int x, int y) {
+        return typeAt(x, y);
+    }
+
+    // Тип клетки без переопределяемых методов — для генерации карты из конструктора
+    private Tile.Type typeAt(int x, int y) {
+        return TYPES[tiles[y * width + x]];
+    }
+
+    // Представление клетки поверх упакованного массива: изменения через setType попадают в карту
     public Tile getTile(int x, int y) {
-        return grid[y][x];
+        return new TileView(x, y);
+    }
+
+    private class TileView extends Tile {
+        private final int x;
+        private final int y;
+
+        TileView(int x, int y) {
+            super(null);
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public Type getType() {
+            return getTileType(x, y);
+        }
+
+        @Override
+        public void setType(Type type) {
+            setTile(x, y, type);
+        }
     }
 }
@@ -0,0 +1,389 @@
+package main.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Иерархический поиск пути (HPA*) для больших карт.
+// Карта делится на кластеры CLUSTER_SIZE x CLUSTER_SIZE. На границах соседних кластеров выбираются
+// входы, внутри кластера заранее считаются стоимости переходов между входами. Длинный маршрут сначала
+// ищется по небольшому графу входов, а затем уточняется короткими поисками Pathfinder между соседними точками.
+// Граф учитывает только рельеф (препятствия и стоимость зон), а не юнитов: они двигаются каждый ход.
+// При смене клетки (GameMap.setTile) сбрасываются только затронутые кластеры и границы, они перестраиваются при следующем запросе.
+public class HierarchicalPathfinder {
+    public static final int CLUSTER_SIZE = 16;
+    private static final int MIN_SPLIT_ENTRANCE = 6; // Длинный вход даёт два перехода — по краям
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int START = -1;
+    private static final int GOAL = -2;
+
+    private final GameMap map;
+    private final int clustersX;
+    private final int clustersY;
+    private final Cluster[] clusters;         // null — кластер нужно перестроить
+    private final int[][] eastTransitions;    // Пары клеток (свой кластер, восточный сосед); null — граница не посчитана
+    private final int[][] southTransitions;   // Пары клеток (свой кластер, южный сосед)
+
+    public HierarchicalPathfinder(GameMap map) {
+        this.map = map;
+        this.clustersX = (map.getWidth() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clustersY = (map.getHeight() + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clusters = new Cluster[clustersX * clustersY];
+        this.eastTransitions = new int[clustersX * clustersY][];
+        this.southTransitions = new int[clustersX * clustersY][];
+    }
+
+    // Клетка изменилась: сбрасываем её кластер, а если она на краю — ещё границу и соседний кластер
+    public void invalidate(int x, int y) {
+        int cx = x / CLUSTER_SIZE;
+        int cy = y / CLUSTER_SIZE;
+        int k = cy * clustersX + cx;
+        clusters[k] = null;
+        if (x % CLUSTER_SIZE == 0 && cx > 0) {
+            eastTransitions[k - 1] = null;
+            clusters[k - 1] = null;
+        }
+        if (x % CLUSTER_SIZE == CLUSTER_SIZE - 1 && cx < clustersX - 1) {
+            eastTransitions[k] = null;
+            clusters[k + 1] = null;
+        }
+        if (y % CLUSTER_SIZE == 0 && cy > 0) {
+            southTransitions[k - clustersX] = null;
+            clusters[k - clustersX] = null;
+        }
+        if (y % CLUSTER_SIZE == CLUSTER_SIZE - 1 && cy < clustersY - 1) {
+            southTransitions[k] = null;
+            clusters[k + clustersX] = null;
+        }
+    }
+
+    // Маршрут между двумя клетками. Для близких точек это обычный поиск Pathfinder.
+    // Возвращает null, если пути нет (или его перекрыли юниты).
+    public Path findPath(int startX, int startY, int targetX, int targetY, boolean isPlayer) {
+        if (!map.inBounds(startX, startY) || !map.inBounds(targetX, targetY)
+                || !passable(startX, startY) || !passable(targetX, targetY)) {
+            return null;
+        }
+        int startCluster = clusterOf(startX, startY);
+        int goalCluster = clusterOf(targetX, targetY);
+        if (Math.abs(startCluster % clustersX - goalCluster % clustersX) <= 1
+                && Math.abs(startCluster / clustersX - goalCluster / clustersX) <= 1) {
+            return Pathfinder.findPath(map, startX, startY, targetX, targetY, isPlayer, Pathfinder.UNLIMITED);
+        }
+
+        List<Integer> waypoints = findAbstractRoute(startX, startY, targetX, targetY, isPlayer);
+        if (waypoints == null) {
+            return null;
+        }
+        return refine(waypoints, isPlayer);
+    }
+
+    // A* по графу входов. Возвращает клетки маршрута: старт, входы, цель.
+    private List<Integer> findAbstractRoute(int startX, int startY, int targetX, int targetY, boolean isPlayer) {
+        int width = map.getWidth();
+        int startCell = startY * width + startX;
+        int goalCell = targetY * width + targetX;
+        Cluster start = cluster(clusterOf(startX, startY));
+        Cluster goal = cluster(clusterOf(targetX, targetY));
+        int[] fromStart = clusterDistances(clusterOf(startX, startY), startCell, isPlayer, false);
+        int[] toGoal = clusterDistances(clusterOf(targetX, targetY), goalCell, isPlayer, true);
+
+        Map<Integer, Integer> cost = new HashMap<>();
+        Map<Integer, Integer> parent = new HashMap<>();
+        PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        cost.put(START, 0);
+        open.add(new long[]{0, START});
+
+        while (!open.isEmpty()) {
+            long[] entry = open.poll();
+            int node = (int) entry[1];
+            int nodeCost = cost.get(node);
+            if (entry[0] - heuristic(node, startCell, targetX, targetY) > nodeCost) continue; // Устаревшая запись
+
+            if (node == GOAL) {
+                List<Integer> route = new ArrayList<>();
+                route.add(goalCell);
+                for (int p = parent.get(GOAL); p != START; p = parent.get(p)) {
+                    route.add(0, p);
+                }
+                route.add(0, startCell);
+                return route;
+            }
+
+            if (node == START) {
+                for (int i = 0; i < start.nodeCells.length; i++) {
+                    int d = fromStart[start.localIndex(start.nodeCells[i], width)];
+                    if (d != INF) relax(cost, parent, open, START, start.nodeCells[i], d, startCell, targetX, targetY);
+                }
+                continue;
+            }
+
+            int x = node % width;
+            int y = node / width;
+            int k = clusterOf(x, y);
+            Cluster cluster = cluster(k);
+            int i = cluster.indexOf(node);
+            int[][] costs = isPlayer ? cluster.costPlayer : cluster.costComp;
+            for (int j = 0; j < cluster.nodeCells.length; j++) {
+                if (j != i && costs[i][j] != INF) {
+                    relax(cost, parent, open, node, cluster.nodeCells[j], nodeCost + costs[i][j], startCell, targetX, targetY);
+                }
+            }
+            for (int neighbour : cluster.interTo[i]) {
+                int step = stepCost(neighbour % width, neighbour / width, isPlayer) + 1;
+                relax(cost, parent, open, node, neighbour, nodeCost + step, startCell, targetX, targetY);
+            }
+            if (cluster == goal) {
+                int d = toGoal[goal.localIndex(node, width)];
+                if (d != INF) relax(cost, parent, open, node, GOAL, nodeCost + d, startCell, targetX, targetY);
+            }
+        }
+        return null;
+    }
+
+    private void relax(Map<Integer, Integer> cost, Map<Integer, Integer> parent, PriorityQueue<long[]> open,
+                       int from, int to, int newCost, int startCell, int targetX, int targetY) {
+        Integer old = cost.get(to);
+        if (old == null || newCost < old) {
+            cost.put(to, newCost);
+            parent.put(to, from);
+            open.add(new long[]{(long) newCost + heuristic(to, startCell, targetX, targetY), to});
+        }
+    }
+
+    private int heuristic(int node, int startCell, int targetX, int targetY) {
+        if (node == GOAL) return 0;
+        int cell = node == START ? startCell : node;
+        int width = map.getWidth();
+        return Pathfinder.LONG_ROUTE_HEURISTIC_WEIGHT * (Math.abs(cell % width - targetX) + Math.abs(cell / width - targetY));
+    }
+
+    // Уточнение: между соседними точками маршрута ищем обычный путь и склеиваем отрезки
+    private Path refine(List<Integer> waypoints, boolean isPlayer) {
+        int width = map.getWidth();
+        int[] cells = new int[16];
+        int length = 0;
+        int steps = 0;
+        for (int i = 1; i < waypoints.size(); i++) {
+            int from = waypoints.get(i - 1);
+            int to = waypoints.get(i);
+            Path segment = Pathfinder.findPath(map, from % width, from / width, to % width, to / width,
+                    isPlayer, Pathfinder.UNLIMITED);
+            if (segment == null) {
+                return null;
+            }
+            if (length + segment.length() > cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(cells.length * 2, length + segment.length()));
+            }
+            for (int j = 0; j < segment.length(); j++) {
+                cells[length++] = segment.getY(j) * width + segment.getX(j);
+            }
+            steps += segment.getStepCost();
+        }
+        return new Path(width, Arrays.copyOf(cells, length), steps);
+    }
+
+    private int clusterOf(int x, int y) {
+        return (y / CLUSTER_SIZE) * clustersX + x / CLUSTER_SIZE;
+    }
+
+    private boolean passable(int x, int y) {
+        return map.getTileType(x, y) != Tile.Type.OBSTACLE;
+    }
+
+    private int stepCost(int x, int y, boolean isPlayer) {
+        return isPlayer ? map.getPlayerMoveStep(x, y) : map.getCompMoveStep(x, y);
+    }
+
+    private Cluster cluster(int k) {
+        if (clusters[k] == null) {
+            clusters[k] = buildCluster(k);
+        }
+        return clusters[k];
+    }
+
+    private Cluster buildCluster(int k) {
+        int cx = k % clustersX;
+        int cy = k / clustersX;
+        int width = map.getWidth();
+
+        // Собираем входы со всех четырёх границ: клетка в этом кластере -> клетки соседей
+        Map<Integer, List<Integer>> links = new HashMap<>();
+        if (cx < clustersX - 1) addLinks(links, transitions(eastTransitions, k, true), 0);
+        if (cx > 0) addLinks(links, transitions(eastTransitions, k - 1, true), 1);
+        if (cy < clustersY - 1) addLinks(links, transitions(southTransitions, k, false), 0);
+        if (cy > 0) addLinks(links, transitions(southTransitions, k - clustersX, false), 1);
+
+        Cluster cluster = new Cluster(cx * CLUSTER_SIZE, cy * CLUSTER_SIZE,
+                Math.min(map.getWidth(), (cx + 1) * CLUSTER_SIZE) - 1,
+                Math.min(map.getHeight(), (cy + 1) * CLUSTER_SIZE) - 1);
+        int n = links.size();
+        cluster.nodeCells = new int[n];
+        cluster.interTo = new int[n][];
+        int i = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : links.entrySet()) {
+            cluster.nodeCells[i] = entry.getKey();
+            cluster.interTo[i] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            i++;
+        }
+
+        cluster.costPlayer = new int[n][n];
+        cluster.costComp = new int[n][n];
+        for (i = 0; i < n; i++) {
+            int[] player = clusterDistances(cluster, cluster.nodeCells[i], true, false);
+            int[] comp = clusterDistances(cluster, cluster.nodeCells[i], false, false);
+            for (int j = 0; j < n; j++) {
+                int local = cluster.localIndex(cluster.nodeCells[j], width);
+                cluster.costPlayer[i][j] = player[local];
+                cluster.costComp[i][j] = comp[local];
+            }
+        }
+        return cluster;
+    }
+
+    private void addLinks(Map<Integer, List<Integer>> links, int[] pairs, int side) {
+        for (int i = 0; i < pairs.length; i += 2) {
+            links.computeIfAbsent(pairs[i + side], key -> new ArrayList<>()).add(pairs[i + 1 - side]);
+        }
+    }
+
+    private int[] transitions(int[][] cache, int k, boolean east) {
+        if (cache[k] == null) {
+            cache[k] = computeTransitions(k, east);
+        }
+        return cache[k];
+    }
+
+    // Непрерывные отрезки границы, проходимые с обеих сторон, превращаются в переходы
+    private int[] computeTransitions(int k, boolean east) {
+        int cx = k % clustersX;
+        int cy = k / clustersX;
+        int width = map.getWidth();
+        int from = east ? cy * CLUSTER_SIZE : cx * CLUSTER_SIZE;
+        int to = east ? Math.min(map.getHeight(), from + CLUSTER_SIZE) : Math.min(map.getWidth(), from + CLUSTER_SIZE);
+        int fixed = east ? cx * CLUSTER_SIZE + CLUSTER_SIZE - 1 : cy * CLUSTER_SIZE + CLUSTER_SIZE - 1;
+
+        List<Integer> pairs = new ArrayList<>();
+        int runStart = -1;
+        for (int i = from; i <= to; i++) {
+            boolean open = i < to && (east
+                    ? passable(fixed, i) && passable(fixed + 1, i)
+                    : passable(i, fixed) && passable(i, fixed + 1));
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                int runEnd = i - 1;
+                if (runEnd - runStart + 1 >= MIN_SPLIT_ENTRANCE) {
+                    addPair(pairs, east, fixed, runStart, width);
+                    addPair(pairs, east, fixed, runEnd, width);
+                } else {
+                    addPair(pairs, east, fixed, (runStart + runEnd) / 2, width);
+                }
+                runStart = -1;
+            }
+        }
+        return pairs.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void addPair(List<Integer> pairs, boolean east, int fixed, int along, int width) {
+        if (east) {
+            pairs.add(along * width + fixed);
+            pairs.add(along * width + fixed + 1);
+        } else {
+            pairs.add(fixed * width + along);
+            pairs.add((fixed + 1) * width + along);
+        }
+    }
+
+    private int[] clusterDistances(int k, int source, boolean isPlayer, boolean reverse) {
+        int cx = k % clustersX;
+        int cy = k / clustersX;
+        Cluster bounds = new Cluster(cx * CLUSTER_SIZE, cy * CLUSTER_SIZE,
+                Math.min(map.getWidth(), (cx + 1) * CLUSTER_SIZE) - 1,
+                Math.min(map.getHeight(), (cy + 1) * CLUSTER_SIZE) - 1);
+        return clusterDistances(bounds, source, isPlayer, reverse);
+    }
+
+    // Дейкстра внутри кластера. Вход в клетку стоит шаг зоны + 1, как в Pathfinder.
+    // reverse = true считает стоимость пути из каждой клетки к source.
+    private int[] clusterDistances(Cluster c, int source, boolean isPlayer, boolean reverse) {
+        int width = map.getWidth();
+        int w = c.maxX - c.minX + 1;
+        int h = c.maxY - c.minY + 1;
+        int[] dist = new int[w * h];
+        Arrays.fill(dist, INF);
+        long[] heap = new long[w * h * 4 + 1];
+        int heapSize = 0;
+
+        int src = c.localIndex(source, width);
+        dist[src] = 0;
+        heap[heapSize++] = src;
+        while (heapSize > 0) {
+            long top = heap[0];
+            long last = heap[--heapSize];
+            int i = 0;
+            while (2 * i + 1 < heapSize) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+                if (last <= heap[child]) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+
+            int local = (int) top;
+            int d = (int) (top >>> 32);
+            if (d > dist[local]) continue;
+            int x = c.minX + local % w;
+            int y = c.minY + local / w;
+            int own = reverse ? stepCost(x, y, isPlayer) + 1 : 0;
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = x + (dir == 0 ? 1 : dir == 1 ? -1 : 0);
+                int ny = y + (dir == 2 ? 1 : dir == 3 ? -1 : 0);
+                if (nx < c.minX || nx > c.maxX || ny < c.minY || ny > c.maxY || !passable(nx, ny)) continue;
+                int nd = d + (reverse ? own : stepCost(nx, ny, isPlayer) + 1);
+                int nLocal = (ny - c.minY) * w + (nx - c.minX);
+                if (nd < dist[nLocal]) {
+                    dist[nLocal] = nd;
+                    long key = ((long) nd << 32) | nLocal;
+                    int j = heapSize++;
+                    while (j > 0 && heap[(j - 1) >>> 1] > key) {
+                        heap[j] = heap[(j - 1) >>> 1];
+                        j = (j - 1) >>> 1;
+                    }
+                    heap[j] = key;
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static final class Cluster {
+        final int minX, minY, maxX, maxY;
+        int[] nodeCells;      // Клетки входов
+        int[][] interTo;      // Для каждого входа: клетки соседних кластеров, куда можно шагнуть
+        int[][] costPlayer;   // Стоимость пути между входами внутри кластера для игрока
+        int[][] costComp;     // ... и для компьютера
+
+        Cluster(int minX, int minY, int maxX, int maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        int localIndex(int cell, int width) {
+            return (cell / width - minY) * (maxX - minX + 1) + (cell % width - minX);
+        }
+
+        int indexOf(int cell) {
+            for (int i = 0; i < nodeCells.length; i++) {
+                if (nodeCells[i] == cell) return i;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package main.map;
+
+// Найденный маршрут: клетки от первой после старта до цели включительно
+public class Path {
+    private final int width;
+    private final int[] cells;  // y * width + x
+    private final int stepCost; // Сумма шагов по зонам вдоль маршрута
+
+    Path(int width, int[] cells, int stepCost) {
+        this.width = width;
+        this.cells = cells;
+        this.stepCost = stepCost;
+    }
+
+    public int length() {
+        return cells.length;
+    }
+
+    public int getX(int index) {
+        return cells[index] % width;
+    }
+
+    public int getY(int index) {
+        return cells[index] / width;
+    }
+
+    public int getStepCost() {
+        return stepCost;
+    }
+}
@@ -0,0 +1,170 @@
+package main.map;
+
+import java.util.Arrays;
+
+// Поиск пути A* по клеткам карты с учётом препятствий, занятых клеток и стоимости зон.
+// Буферы поиска (оценки, родители, бинарная куча) живут в ThreadLocal и переиспользуются,
+// поэтому сам поиск ничего не выделяет — создаётся только итоговый Path.
+public final class Pathfinder {
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    // Для маршрутов без ограничения длины: путь может оказаться до 2 раз дороже оптимального,
+    // зато поиск идёт почти по прямой, а не обходит всю карту
+    static final int LONG_ROUTE_HEURISTIC_WEIGHT = 2;
+
+    private static final ThreadLocal<SearchBuffers> BUFFERS = ThreadLocal.withInitial(SearchBuffers::new);
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private Pathfinder() {
+    }
+
+    // Маршрут из (startX, startY) в (targetX, targetY) не длиннее maxLength клеток.
+    // Сначала ищется самый дешёвый по шагам зон маршрут; если из-за ограничения длины
+    // он не укладывается, ищется кратчайший. Возвращает null, если пути нет.
+    public static Path findPath(GameMap map, int startX, int startY, int targetX, int targetY,
+                                boolean isPlayer, int maxLength) {
+        if (!map.inBounds(startX, startY) || !map.inBounds(targetX, targetY)
+                || map.getTileType(targetX, targetY) == Tile.Type.OBSTACLE) {
+            return null;
+        }
+        Path path = search(map, startX, startY, targetX, targetY, isPlayer, maxLength, true);
+        if (path == null && maxLength != UNLIMITED) {
+            path = search(map, startX, startY, targetX, targetY, isPlayer, maxLength, false);
+        }
+        return path;
+    }
+
+    private static Path search(GameMap map, int startX, int startY, int targetX, int targetY,
+                               boolean isPlayer, int maxLength, boolean weighted) {
+        int width = map.getWidth();
+        int height = map.getHeight();
+        SearchBuffers b = BUFFERS.get();
+        int generation = b.prepare(width * height);
+
+        // Длинные маршруты ищутся взвешенным A*: эвристика умножается на стоимость нейтральной клетки
+        int hWeight = maxLength == UNLIMITED ? LONG_ROUTE_HEURISTIC_WEIGHT : 1;
+        int start = startY * width + startX;
+        int target = targetY * width + targetX;
+        b.seen[start] = generation;
+        b.cost[start] = 0;
+        b.steps[start] = 0;
+        b.length[start] = 0;
+        b.parent[start] = -1;
+        long startH = (long) hWeight * (Math.abs(targetX - startX) + Math.abs(targetY - startY));
+        b.push(start, (startH << 32) | startH);
+
+        while (b.heapSize > 0) {
+            int cell = b.pop();
+            if (b.closed[cell] == generation) continue;
+            b.closed[cell] = generation;
+
+            if (cell == target) {
+                return buildPath(b, width, target);
+            }
+            if (b.length[cell] >= maxLength) continue;
+
+            int x = cell % width;
+            int y = cell / width;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) continue;
+                int next = ny * width + nx;
+                if (b.closed[next] == generation) continue;
+                // Цель может быть занята (например, вражеский замок) — препятствие на ней уже отсеяно
+                if (next != target && !map.isWalkable(nx, ny)) continue;
+
+                int step = isPlayer ? map.getPlayerMoveStep(nx, ny) : map.getCompMoveStep(nx, ny);
+                int newCost = b.cost[cell] + (weighted ? step + 1 : 1);
+                if (b.seen[next] != generation || newCost < b.cost[next]) {
+                    b.seen[next] = generation;
+                    b.cost[next] = newCost;
+                    b.steps[next] = b.steps[cell] + step;
+                    b.length[next] = b.length[cell] + 1;
+                    b.parent[next] = cell;
+                    int h = hWeight * (Math.abs(targetX - nx) + Math.abs(targetY - ny));
+                    b.push(next, ((long) (newCost + h) << 32) | h);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Path buildPath(SearchBuffers b, int width, int target) {
+        int[] cells = new int[b.length[target]];
+        for (int cell = target, i = cells.length - 1; i >= 0; cell = b.parent[cell], i--) {
+            cells[i] = cell;
+        }
+        return new Path(width, cells, b.steps[target]);
+    }
+
+    // Переиспользуемые массивы одного потока. Вместо очистки используется номер поколения:
+    // клетка считается посещённой, только если её отметка совпадает с текущим поиском.
+    private static final class SearchBuffers {
+        int[] seen = new int[0];
+        int[] closed = new int[0];
+        int[] cost = new int[0];
+        int[] steps = new int[0];
+        int[] length = new int[0];
+        int[] parent = new int[0];
+        long[] heapKeys = new long[64];
+        int[] heapCells = new int[64];
+        int heapSize;
+        int generation;
+
+        int prepare(int cells) {
+            if (seen.length < cells) {
+                seen = new int[cells];
+                closed = new int[cells];
+                cost = new int[cells];
+                steps = new int[cells];
+                length = new int[cells];
+                parent = new int[cells];
+                generation = 0;
+            }
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                generation = 0;
+            }
+            heapSize = 0;
+            return ++generation;
+        }
+
+        void push(int cell, long key) {
+            if (heapSize == heapKeys.length) {
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+                heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int parentIndex = (i - 1) >>> 1;
+                if (heapKeys[parentIndex] <= key) break;
+                heapKeys[i] = heapKeys[parentIndex];
+                heapCells[i] = heapCells[parentIndex];
+                i = parentIndex;
+            }
+            heapKeys[i] = key;
+            heapCells[i] = cell;
+        }
+
+        int pop() {
+            int result = heapCells[0];
+            long key = heapKeys[--heapSize];
+            int cell = heapCells[heapSize];
+            int i = 0;
+            int half = heapSize >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+                if (key <= heapKeys[child]) break;
+                heapKeys[i] = heapKeys[child];
+                heapCells[i] = heapCells[child];
+                i = child;
+            }
+            heapKeys[i] = key;
+            heapCells[i] = cell;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package main.map;
+
+import main.units.Unit;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Пространственный индекс юнитов: корзина клеток -> цепочка слотов.
+// В одной клетке может стоять несколько юнитов (например, только что нанятые в замке),
+// поэтому каждая корзина хранит кольцевой двусвязный список слотов в порядке добавления.
+// На больших картах корзина объединяет квадрат 2^shift x 2^shift клеток, чтобы индекс не занимал больше ~4 МБ.
+// Головы корзин хранятся страницами с копированием при записи: копия индекса для копии карты
+// стоит O(юнитов + страниц), а не O(клеток).
+class SpatialIndex {
+    private static final int NONE = -1;
+    private static final int MAX_BUCKETS = 1 << 20;
+
+    private final int width;
+    private final int height;
+    private final int shift;            // Размер корзины: 2^shift клеток по каждой оси
+    private final int bucketsPerRow;
+    private final CowIntArray bucketHead; // Первый слот в корзине
+    private int[] next;                 // Следующий слот в той же клетке (или в списке свободных)
+    private int[] prev;                 // Предыдущий слот; prev[head] указывает на хвост
+    private int[] cellOf;               // Клетка, в которой сейчас стоит слот
+    private Unit[] slots;
+    private long[] keys;                // Ключ Зобриста, под которым юнит учтён в хеше карты
+    private int used;                   // Сколько слотов когда-либо выдано
+    private int freeHead = NONE;        // Список освободившихся слотов
+    private final Map<Unit, Integer> slotOf = new IdentityHashMap<>();
+
+    SpatialIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int shift = 0;
+        while ((long) ((width + (1 << shift) - 1) >> shift) * ((height + (1 << shift) - 1) >> shift) > MAX_BUCKETS) {
+            shift++;
+        }
+        this.shift = shift;
+        this.bucketsPerRow = (width + (1 << shift) - 1) >> shift;
+        int bucketRows = (height + (1 << shift) - 1) >> shift;
+        this.bucketHead = new CowIntArray(bucketsPerRow * bucketRows, NONE);
+        this.next = new int[16];
+        this.prev = new int[16];
+        this.cellOf = new int[16];
+        this.slots = new Unit[16];
+        this.keys = new long[16];
+    }
+
+    private SpatialIndex(SpatialIndex source) {
+        width = source.width;
+        height = source.height;
+        shift = source.shift;
+        bucketsPerRow = source.bucketsPerRow;
+        bucketHead = source.bucketHead.copy();
+        next = source.next.clone();
+        prev = source.prev.clone();
+        cellOf = source.cellOf.clone();
+        slots = source.slots.clone();
+        keys = source.keys.clone();
+        used = source.used;
+        freeHead = source.freeHead;
+    }
+
+    // Копия индекса для копии карты: те же корзины и слоты, юниты заменены своими копиями.
+    // Юниты, для которых copies вернул null, в копию не попадают.
+    SpatialIndex copy(Function<Unit, Unit> copies) {
+        SpatialIndex copy = new SpatialIndex(this);
+        for (int slot = 0; slot < used; slot++) {
+            if (slots[slot] == null) continue;
+            Unit unitCopy = copies.apply(slots[slot]);
+            if (unitCopy == null) {
+                copy.release(slot);
+            } else {
+                copy.slots[slot] = unitCopy;
+                copy.slotOf.put(unitCopy, slot);
+            }
+        }
+        return copy;
+    }
+
+    void add(Unit unit) {
+        if (slotOf.containsKey(unit)) {
+            update(unit);
+            return;
+        }
+        int slot = allocateSlot();
+        slots[slot] = unit;
+        keys[slot] = 0;
+        slotOf.put(unit, slot);
+        link(slot, unit.getY() * width + unit.getX());
+    }
+
+    // Возвращает ключ, под которым юнит был учтён (0, если его не было в индексе)
+    long remove(Unit unit) {
+        Integer slot = slotOf.remove(unit);
+        if (slot == null) {
+            return 0;
+        }
+        release(slot);
+        return keys[slot];
+    }
+
+    private void release(int slot) {
+        unlink(slot);
+        slots[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+    }
+
+    // Перенос юнита в клетку, соответствующую его текущим координатам.
+    // Возвращает прежнюю клетку (y * width + x) или -1, если юнит не сдвинулся или не индексирован.
+    int update(Unit unit) {
+        Integer slot = slotOf.get(unit);
+        if (slot == null) {
+            return NONE;
+        }
+        int oldCell = cellOf[slot];
+        int cell = unit.getY() * width + unit.getX();
+        if (oldCell == cell) {
+            return NONE;
+        }
+        unlink(slot);
+        link(slot, cell);
+        return oldCell;
+    }
+
+    long getKey(Unit unit) {
+        Integer slot = slotOf.get(unit);
+        return slot == null ? 0 : keys[slot];
+    }
+
+    // Запоминает новый ключ юнита и возвращает прежний
+    long setKey(Unit unit, long key) {
+        int slot = slotOf.get(unit);
+        long old = keys[slot];
+        keys[slot] = key;
+        return old;
+    }
+
+    boolean contains(Unit unit) {
+        return slotOf.containsKey(unit);
+    }
+
+    Unit first(int x, int y) {
+        int head = bucketHead.get(bucketOf(x, y));
+        if (head == NONE) {
+            return null;
+        }
+        int cell = y * width + x;
+        int slot = head;
+        do {
+            if (cellOf[slot] == cell) {
+                return slots[slot];
+            }
+            slot = next[slot];
+        } while (slot != head);
+        return null;
+    }
+
+    int size() {
+        return slotOf.size();
+    }
+
+    // Обход всех юнитов в прямоугольнике [x0..x1] x [y0..y1] (границы обрезаются по карте)
+    void forEachInRect(int x0, int y0, int x1, int y1, Consumer<Unit> action) {
+        int fromX = Math.max(0, x0);
+        int fromY = Math.max(0, y0);
+        int toX = Math.min(width - 1, x1);
+        int toY = Math.min(height - 1, y1);
+        for (int by = fromY >> shift; by <= toY >> shift; by++) {
+            for (int bx = fromX >> shift; bx <= toX >> shift; bx++) {
+                int head = bucketHead.get(by * bucketsPerRow + bx);
+                if (head == NONE) continue;
+                int slot = head;
+                do {
+                    int x = cellOf[slot] % width;
+                    int y = cellOf[slot] / width;
+                    if (x >= fromX && x <= toX && y >= fromY && y <= toY) {
+                        action.accept(slots[slot]);
+                    }
+                    slot = next[slot];
+                } while (slot != head);
+            }
+        }
+    }
+
+    private int bucketOf(int x, int y) {
+        return (y >> shift) * bucketsPerRow + (x >> shift);
+    }
+
+    private void link(int slot, int cell) {
+        int bucket = bucketOf(cell % width, cell / width);
+        int head = bucketHead.get(bucket);
+        if (head == NONE) {
+            next[slot] = slot;
+            prev[slot] = slot;
+            bucketHead.set(bucket, slot);
+        } else {
+            int tail = prev[head];
+            next[tail] = slot;
+            prev[slot] = tail;
+            next[slot] = head;
+            prev[head] = slot;
+        }
+        cellOf[slot] = cell;
+    }
+
+    private void unlink(int slot) {
+        int cell = cellOf[slot];
+        int bucket = bucketOf(cell % width, cell / width);
+        if (next[slot] == slot) {
+            bucketHead.set(bucket, NONE);
+        } else {
+            next[prev[slot]] = next[slot];
+            prev[next[slot]] = prev[slot];
+            if (bucketHead.get(bucket) == slot) {
+                bucketHead.set(bucket, next[slot]);
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeHead != NONE) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+        if (used == slots.length) {
+            int capacity = slots.length * 2;
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            cellOf = Arrays.copyOf(cellOf, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+        return used++;
+    }
+}
@@ -8,7 +8,19 @@ public class Tile {
         CASTLE_PLAYER,
         CASTLE_COMP, // Замок
         PLAYER_ZONE,    // Зона игрока
-        COMP_ZONE        // Зона компьютера
+        COMP_ZONE;        // Зона компьютера
+
+        public String symbol() {
+            return switch (this) {
+                case GRASS -> ".";
+                case ROAD -> "=";
+                case OBSTACLE -> "#";
+                case CASTLE_PLAYER -> "🏰";
+                case CASTLE_COMP -> "🏯";
+                case PLAYER_ZONE -> "+"; // Зона игрока
+                case COMP_ZONE -> "-";    // Зона компьютера
+            };
+        }
     }
 
     private Type type;
@@ -27,14 +39,6 @@ public class Tile {
 
     @Override
     public String toString() {
-        return switch (type) {
-            case GRASS -> ".";
-            case ROAD -> "=";
-            case OBSTACLE -> "#";
-            case CASTLE_PLAYER -> "🏰";
-            case CASTLE_COMP -> "🏯";
-            case PLAYER_ZONE -> "+"; // Зона игрока
-            case COMP_ZONE -> "-";    // Зона компьютера
-        };
+        return getType().symbol();
     }
 }
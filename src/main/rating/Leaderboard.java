@@ -0,0 +1,333 @@
+package main.rating;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeSet;
+
+// Таблица рекордов: лучший результат каждого игрока, MAP_TOP лучших партий каждой карты
+// и распределение очков всех партий карты (ScoreHistogram) для запросов места и процентиля.
+// История партий по-прежнему дописывается в rating.csv, но при запуске он не перечитывается:
+// рекорды лежат в компактном индексе (rating.idx) — журнале изменений рекордов. В него пишется
+// очки каждой партии для распределения карты, партия, побившая рекорд игрока или вошедшая в топ карты,
+// и длина CSV, которую индекс учитывает.
+// Если CSV изменился в обход таблицы (другая версия игры, правка руками, удаление), индекс строится заново.
+// Когда журнал разрастается, он переписывается одними живыми рекордами.
+// В памяти рекорды упорядочены деревьями: обновление O(log n), первые N — без сортировки.
+public class Leaderboard {
+    public static final int MAP_TOP = 10;
+    public static final String HEADER = "username;points;map";
+
+    private static final int MAGIC = 0x484D5352; // "HMSR"
+    private static final short VERSION = 2;
+    private static final byte USER = 1;       // Рекорд игрока
+    private static final byte MAP = 2;        // Партия в топе карты
+    private static final byte GAME = 3;       // И то и другое
+    private static final byte CSV_LENGTH = 4; // Сколько байт CSV учтено
+    private static final byte PLAYED = 5;     // Очки партии на карте
+    private static final byte SCORES = 6;     // Сколько партий карты набрали столько очков
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    // Результат партии
+    public record Score(String user, int points, String map) {
+    }
+
+    // Выше очки, при равенстве — по имени
+    private static final Comparator<Score> BY_POINTS = Comparator.comparingInt(Score::points).reversed()
+            .thenComparing(Score::user);
+
+    private final Path csvFile;
+    private final Path indexFile;
+    private final Map<String, Score> best = new HashMap<>();
+    private final TreeSet<Score> ranking = new TreeSet<>(BY_POINTS);
+    private final Map<String, TreeSet<MapEntry>> mapTops = new HashMap<>();
+    private final Map<String, ScoreHistogram> histograms = new HashMap<>();
+    private long entryOrder;   // При равных очках в топе карты выше более ранняя партия
+    private long csvLength;
+    private int indexRecords;
+
+    private Leaderboard(Path csvFile, Path indexFile) {
+        this.csvFile = csvFile;
+        this.indexFile = indexFile;
+    }
+
+    // Таблица из индекса; если индекса нет или он отстал от CSV — из CSV с записью нового индекса
+    public static Leaderboard open(Path csvFile, Path indexFile) throws IOException {
+        Leaderboard leaderboard = new Leaderboard(csvFile, indexFile);
+        leaderboard.load();
+        return leaderboard;
+    }
+
+    private void load() throws IOException {
+        clear();
+        if (!Files.exists(csvFile)) {
+            Files.deleteIfExists(indexFile);
+            return;
+        }
+        long size = Files.size(csvFile);
+        if (Files.exists(indexFile)) {
+            readIndex();
+            if (csvLength == size) {
+                return;
+            }
+            clear();
+        }
+        rebuild();
+        compact();
+    }
+
+    private void clear() {
+        best.clear();
+        ranking.clear();
+        mapTops.clear();
+        histograms.clear();
+        entryOrder = 0;
+        csvLength = 0;
+        indexRecords = 0;
+    }
+
+    // Партия закончена: строка в историю и, если это рекорд, запись в индекс
+    public void record(String user, int points, String map) throws IOException {
+        if (!Files.exists(csvFile) || Files.size(csvFile) != csvLength) {
+            load(); // CSV менялся в обход таблицы
+        }
+        boolean newFile = !Files.exists(csvFile) || Files.size(csvFile) == 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            // Write header if file is new
+            if (newFile) {
+                writer.write(HEADER + "\n");
+            }
+            writer.write(user + ";" + points + ";" + map + "\n");
+        }
+        csvLength = Files.size(csvFile);
+
+        Score score = new Score(user, points, map);
+        boolean userRecord = putBest(score);
+        boolean mapRecord = addToMap(score);
+        histogram(map).add(points, 1);
+        if (!Files.exists(indexFile) || indexRecords > 4 * liveRecords() + MIN_COMPACT_RECORDS) {
+            compact();
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (userRecord || mapRecord) {
+                writeScore(out, userRecord && mapRecord ? GAME : userRecord ? USER : MAP, score);
+                indexRecords++;
+            }
+            out.writeByte(PLAYED);
+            out.writeUTF(map);
+            out.writeInt(points);
+            writeLength(out);
+            indexRecords += 2;
+        }
+        Files.write(indexFile, bytes.toByteArray(), StandardOpenOption.APPEND);
+    }
+
+    public OptionalInt bestScore(String user) {
+        Score score = best.get(user);
+        return score == null ? OptionalInt.empty() : OptionalInt.of(score.points());
+    }
+
+    // Лучшие игроки по личному рекорду
+    public List<Score> topPlayers(int count) {
+        return ranking.stream().limit(count).toList();
+    }
+
+    // Лучшие партии карты (не больше MAP_TOP)
+    public List<Score> topForMap(String map, int count) {
+        TreeSet<MapEntry> top = mapTops.get(map);
+        return top == null ? List.of() : top.stream().limit(count).map(MapEntry::score).toList();
+    }
+
+    // Место результата среди всех партий карты (1 — лучше всех); для карты без партий — 1
+    public long rank(String map, int points) {
+        ScoreHistogram histogram = histograms.get(map);
+        return histogram == null ? 1 : histogram.rank(points);
+    }
+
+    // Доля партий карты (в процентах), набравших не больше points
+    public double percentile(String map, int points) {
+        ScoreHistogram histogram = histograms.get(map);
+        return histogram == null ? 0 : histogram.percentile(points);
+    }
+
+    public long getGameCount(String map) {
+        ScoreHistogram histogram = histograms.get(map);
+        return histogram == null ? 0 : histogram.getTotal();
+    }
+
+    public int getPlayerCount() {
+        return best.size();
+    }
+
+    public int getIndexRecords() {
+        return indexRecords;
+    }
+
+    private boolean putBest(Score score) {
+        Score previous = best.get(score.user());
+        if (previous != null && previous.points() >= score.points()) {
+            return false;
+        }
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        best.put(score.user(), score);
+        ranking.add(score);
+        return true;
+    }
+
+    private boolean addToMap(Score score) {
+        TreeSet<MapEntry> top = mapTops.computeIfAbsent(score.map(), map -> new TreeSet<>());
+        MapEntry entry = new MapEntry(score, entryOrder++);
+        if (top.size() >= MAP_TOP) {
+            if (entry.compareTo(top.last()) > 0) {
+                return false;
+            }
+            top.pollLast();
+        }
+        top.add(entry);
+        return true;
+    }
+
+    private ScoreHistogram histogram(String map) {
+        return histograms.computeIfAbsent(map, m -> new ScoreHistogram());
+    }
+
+    private int liveRecords() {
+        int records = best.size() + 1;
+        for (TreeSet<MapEntry> top : mapTops.values()) {
+            records += top.size();
+        }
+        for (ScoreHistogram histogram : histograms.values()) {
+            records += histogram.getBucketCount();
+        }
+        return records;
+    }
+
+    // Полный проход по истории, как раньше при каждом запуске
+    private void rebuild() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csvFile)) {
+            String line = reader.readLine(); // Skip header line
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(";");
+                if (parts.length >= 2) {
+                    try {
+                        Score score = new Score(parts[0], Integer.parseInt(parts[1]), parts.length > 2 ? parts[2] : "");
+                        putBest(score);
+                        addToMap(score);
+                        histogram(score.map()).add(score.points(), 1);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Ошибка формата очков в строке: " + line);
+                    }
+                }
+            }
+        }
+        csvLength = Files.size(csvFile);
+    }
+
+    private void readIndex() throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                return; // Чужой файл: csvLength останется 0, индекс построится заново
+            }
+            while (true) {
+                byte kind = in.readByte();
+                if (kind == CSV_LENGTH) {
+                    csvLength = in.readLong();
+                } else if (kind == PLAYED) {
+                    histogram(in.readUTF()).add(in.readInt(), 1);
+                } else if (kind == SCORES) {
+                    histogram(in.readUTF()).add(in.readInt(), in.readLong());
+                } else {
+                    Score score = new Score(in.readUTF(), in.readInt(), in.readUTF());
+                    if (kind == USER || kind == GAME) putBest(score);
+                    if (kind == MAP || kind == GAME) addToMap(score);
+                }
+                indexRecords++;
+            }
+        } catch (EOFException e) {
+            // Конец журнала; оборванная последняя запись просто не учитывается
+        }
+    }
+
+    // Индекс из одних живых рекордов: рекорды игроков, топы и распределения очков карт, длина CSV
+    private void compact() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            for (Score score : ranking) {
+                writeScore(out, USER, score);
+            }
+            for (TreeSet<MapEntry> top : mapTops.values()) {
+                for (MapEntry entry : top) {
+                    writeScore(out, MAP, entry.score());
+                }
+            }
+            for (Map.Entry<String, ScoreHistogram> histogram : histograms.entrySet()) {
+                writeHistogram(out, histogram.getKey(), histogram.getValue());
+            }
+            writeLength(out);
+        }
+        indexRecords = liveRecords();
+
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        try {
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeScore(DataOutputStream out, byte kind, Score score) throws IOException {
+        out.writeByte(kind);
+        out.writeUTF(score.user());
+        out.writeInt(score.points());
+        out.writeUTF(score.map());
+    }
+
+    private static void writeHistogram(DataOutputStream out, String map, ScoreHistogram histogram) throws IOException {
+        for (int points = 0; points < histogram.getCapacity(); points++) {
+            long count = histogram.getCount(points);
+            if (count != 0) {
+                out.writeByte(SCORES);
+                out.writeUTF(map);
+                out.writeInt(points);
+                out.writeLong(count);
+            }
+        }
+    }
+
+    private void writeLength(DataOutputStream out) throws IOException {
+        out.writeByte(CSV_LENGTH);
+        out.writeLong(csvLength);
+    }
+
+    // Партия в топе карты
+    private record MapEntry(Score score, long order) implements Comparable<MapEntry> {
+        @Override
+        public int compareTo(MapEntry other) {
+            int byPoints = Integer.compare(other.score.points(), score.points());
+            return byPoints != 0 ? byPoints : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package main.rating;
+
+// Число партий по очкам с запросами «сколько партий набрали больше» за O(log n).
+// Дерево Фенвика по корзинам очков (корзина — одно значение очков, отрицательные считаются нулём);
+// когда приходят очки больше ёмкости, дерево удваивается и перестраивается за O(ёмкости).
+public class ScoreHistogram {
+    public static final int MAX_POINTS = 1 << 24;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] counts = new long[INITIAL_CAPACITY]; // Партий с такими очками
+    private long[] tree = new long[INITIAL_CAPACITY + 1]; // Дерево Фенвика над counts, с единицы
+    private long total;
+    private int buckets;
+
+    public void add(int points, long count) {
+        int bucket = bucket(points);
+        if (bucket >= counts.length) {
+            grow(bucket);
+        }
+        if (counts[bucket] == 0 && count != 0) {
+            buckets++;
+        }
+        counts[bucket] += count;
+        total += count;
+        for (int i = bucket + 1; i < tree.length; i += i & -i) {
+            tree[i] += count;
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // Партий с очками не больше points
+    public long countAtMost(int points) {
+        int bucket = Math.min(bucket(points), counts.length - 1);
+        long sum = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    public long countAbove(int points) {
+        return total - countAtMost(points);
+    }
+
+    // Место результата среди партий: 1 + число партий с большими очками
+    public long rank(int points) {
+        return countAbove(points) + 1;
+    }
+
+    // Доля партий (в процентах), набравших не больше points
+    public double percentile(int points) {
+        return total == 0 ? 0 : countAtMost(points) * 100.0 / total;
+    }
+
+    // Корзин сейчас (очков от 0 до getCapacity() - 1)
+    public int getCapacity() {
+        return counts.length;
+    }
+
+    // Партий ровно с такими очками
+    public long getCount(int points) {
+        int bucket = bucket(points);
+        return bucket < counts.length ? counts[bucket] : 0;
+    }
+
+    // Непустые корзины
+    public int getBucketCount() {
+        return buckets;
+    }
+
+    private static int bucket(int points) {
+        return Math.clamp(points, 0, MAX_POINTS - 1);
+    }
+
+    private void grow(int bucket) {
+        int capacity = counts.length;
+        while (capacity <= bucket) {
+            capacity *= 2;
+        }
+        long[] grown = new long[capacity];
+        System.arraycopy(counts, 0, grown, 0, counts.length);
+        counts = grown;
+        // Построение дерева за O(n): каждая вершина отдаёт свою сумму родителю
+        tree = new long[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package main.save;
+
+import main.buildings.Castle;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.map.GameMap;
+import main.map.Tile;
+import main.units.*;
+import main.util.GameRandom;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Двоичный формат сохранения. Заголовок: сигнатура "HMSV" и версия формата.
+// Дальше секции «метка (байт) + длина (int) + содержимое», метка 0 закрывает файл;
+// секции с незнакомой меткой пропускаются, так что новые версии могут добавлять свои.
+//   замки: число замков, затем у каждого флаги, владелец, координаты, счётчики и постройки;
+//   карта: ширина, высота и клетки построчно сериями «тип (байт) + длина серии (varint)»;
+//   юниты: число юнитов (армия игрока, затем компьютера), у каждого int с типом, стороной и клеткой,
+//   затем здоровье и дальность хода (int); дальше порядок юнитов на карте — их номера в этой секции
+//   в том порядке, в каком getUnitAt находит их в клетке;
+//   метка журнала (необязательна): сессия и номер последней учтённой записи SaveJournal, номера юнитов.
+// Строки — UTF-8 с длиной (short) впереди. Файл пишется во временный и переименовывается,
+// поэтому прерванная запись не портит прошлое сохранение.
+public final class BinarySave {
+    public static final int MAGIC = 0x484D5356; // "HMSV"
+    public static final short VERSION = 1;
+
+    private static final byte TAG_END = 0;
+    private static final byte TAG_CASTLES = 1;
+    private static final byte TAG_MAP = 2;
+    private static final byte TAG_UNITS = 3;
+    private static final byte TAG_JOURNAL = 4;
+
+    private static final int CASTLE_PLAYER = 1;
+    private static final int CASTLE_CAPTURE_REDUCED = 2;
+
+    // Номер типа юнита совпадает с выбором в GameState.createUnit (1..6)
+    private static final List<Class<? extends Unit>> UNIT_TYPES = List.of(
+            Spearman.class, Crossbowman.class, Swordsman.class, Cavalryman.class, Paladin.class, Hero.class);
+    private static final Tile.Type[] TYPES = Tile.Type.values();
+
+    // Чем снимок связан с журналом изменений: сессия журнала, номер последней вошедшей в снимок записи
+    // и номера юнитов в порядке секции юнитов (сначала армия игрока, затем компьютера)
+    public record JournalMark(long session, long sequence, int[] unitIds) {
+    }
+
+    // Загруженная партия и метка журнала (null, если снимок записан без неё)
+    public record Snapshot(GameState state, JournalMark mark) {
+    }
+
+    private BinarySave() {
+    }
+
+    public static void write(GameState state, Path file) throws IOException {
+        write(state, file, null);
+    }
+
+    public static void write(GameState state, Path file, JournalMark mark) throws IOException {
+        Output out = new Output(64 * 1024);
+        out.buffer.putInt(MAGIC).putShort(VERSION);
+
+        int section = out.beginSection(TAG_CASTLES);
+        out.ensure(1);
+        out.buffer.put((byte) 2);
+        writeCastle(out, state.getPlayerCastle(), true);
+        writeCastle(out, state.getComputerCastle(), false);
+        out.endSection(section);
+
+        section = out.beginSection(TAG_MAP);
+        writeMap(out, state.getMap());
+        out.endSection(section);
+
+        section = out.beginSection(TAG_UNITS);
+        writeUnits(out, state);
+        out.endSection(section);
+
+        if (mark != null) {
+            section = out.beginSection(TAG_JOURNAL);
+            out.ensure(20 + mark.unitIds().length * 4);
+            out.buffer.putLong(mark.session()).putLong(mark.sequence()).putInt(mark.unitIds().length);
+            for (int id : mark.unitIds()) {
+                out.buffer.putInt(id);
+            }
+            out.endSection(section);
+        }
+
+        out.ensure(1);
+        out.buffer.put(TAG_END);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = out.buffer.flip();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Партия из файла или null, если в нём нет замков или карты; испорченный файл — IOException
+    public static GameState read(Path file, GameRandom random, GameOutput output) throws IOException {
+        Snapshot snapshot = readSnapshot(file, random, output);
+        return snapshot == null ? null : snapshot.state();
+    }
+
+    public static Snapshot readSnapshot(Path file, GameRandom random, GameOutput output) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Слишком большой файл сохранения: " + size);
+            }
+            in = ByteBuffer.allocate((int) size);
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+            }
+            in.flip();
+        }
+
+        try {
+            if (in.remaining() < 6 || in.getInt() != MAGIC) {
+                throw new IOException("Файл не является сохранением игры");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException("Неподдерживаемая версия сохранения: " + version);
+            }
+
+            Castle[] castles = null;
+            GameMap map = null;
+            ByteBuffer units = null;
+            JournalMark mark = null;
+            byte tag;
+            while ((tag = in.get()) != TAG_END) {
+                int length = in.getInt();
+                if (length < 0 || length > in.remaining()) {
+                    throw new IOException("Повреждённая секция сохранения: " + tag);
+                }
+                ByteBuffer payload = in.slice(in.position(), length);
+                in.position(in.position() + length);
+                switch (tag) {
+                    case TAG_CASTLES -> castles = readCastles(payload);
+                    case TAG_MAP -> map = readMap(payload, random);
+                    case TAG_UNITS -> units = payload; // Юниты ставятся, когда известны и замки, и карта
+                    case TAG_JOURNAL -> mark = readMark(payload);
+                    default -> {
+                    }
+                }
+            }
+            if (castles == null || castles[0] == null || castles[1] == null || map == null) {
+                return null;
+            }
+            if (units != null) {
+                readUnits(units, castles[0], castles[1], map);
+            }
+            return new Snapshot(new GameState(map, castles[0], castles[1], output), mark);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Повреждённое сохранение", e);
+        }
+    }
+
+    private static void writeCastle(Output out, Castle castle, boolean isPlayer) {
+        out.ensure(32);
+        out.buffer.put((byte) ((isPlayer ? CASTLE_PLAYER : 0)
+                | (castle.isCaptureTimeReduced() ? CASTLE_CAPTURE_REDUCED : 0)));
+        out.putString(castle.getOwner());
+        out.ensure(22);
+        out.buffer.putInt(castle.getX()).putInt(castle.getY())
+                .putInt(castle.getGold()).putInt(castle.getPoints()).putInt(castle.getSteps())
+                .putShort((short) castle.getBuildings().size());
+        for (String building : castle.getBuildings()) {
+            out.putString(building);
+        }
+    }
+
+    // [0] — замок игрока, [1] — компьютера
+    private static Castle[] readCastles(ByteBuffer in) throws IOException {
+        Castle[] castles = new Castle[2];
+        int count = in.get();
+        for (int i = 0; i < count; i++) {
+            int flags = in.get();
+            String owner = getString(in);
+            Castle castle = new Castle(owner, in.getInt(), in.getInt());
+            castle.setGold(in.getInt());
+            castle.setPoints(in.getInt());
+            castle.setSteps(in.getInt());
+            castle.setCaptureTimeReduction((flags & CASTLE_CAPTURE_REDUCED) != 0);
+            // Постройки восстанавливаются как были, без стартовой из конструктора
+            for (String building : List.copyOf(castle.getBuildings())) {
+                castle.removeBuilding(building);
+            }
+            int buildings = in.getShort();
+            for (int b = 0; b < buildings; b++) {
+                castle.addBuilding(getString(in));
+            }
+            castles[(flags & CASTLE_PLAYER) != 0 ? 0 : 1] = castle;
+        }
+        return castles;
+    }
+
+    // Клетки сериями: карта в основном из травы и дорог, поэтому серий на порядки меньше, чем клеток
+    private static void writeMap(Output out, GameMap map) {
+        int width = map.getWidth();
+        int cells = width * map.getHeight();
+        out.ensure(8);
+        out.buffer.putInt(width).putInt(map.getHeight());
+        Tile.Type run = map.getTileType(0, 0);
+        int length = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            Tile.Type type = map.getTileType(cell % width, cell / width);
+            if (type != run) {
+                out.putRun(run, length);
+                run = type;
+                length = 0;
+            }
+            length++;
+        }
+        out.putRun(run, length);
+    }
+
+    private static GameMap readMap(ByteBuffer in, GameRandom random) throws IOException {
+        int width = in.getInt();
+        int height = in.getInt();
+        GameMap map = new GameMap(width, height, true, random); // Пустая карта — сплошная трава
+        int cells = width * height;
+        int cell = 0;
+        while (cell < cells) {
+            int ordinal = in.get();
+            int length = getVarInt(in);
+            if (ordinal < 0 || ordinal >= TYPES.length || length <= 0 || length > cells - cell) {
+                throw new IOException("Повреждённая карта в сохранении");
+            }
+            Tile.Type type = TYPES[ordinal];
+            if (type == Tile.Type.GRASS) {
+                cell += length;
+                continue;
+            }
+            for (int end = cell + length; cell < end; cell++) {
+                map.setTile(cell % width, cell / width, type);
+            }
+        }
+        return map;
+    }
+
+    // Тип (3 бита), сторона (1 бит) и клетка (по 12 бит на координату: карта не больше 4096) в одном int
+    static int packUnit(Unit unit) {
+        int type = UNIT_TYPES.indexOf(unit.getClass()) + 1;
+        return type << 25 | (unit.isPlayer() ? 1 << 24 : 0) | unit.getX() << 12 | unit.getY();
+    }
+
+    private static void writeUnits(Output out, GameState state) {
+        Map<Unit, Integer> numbers = new IdentityHashMap<>();
+        for (Castle castle : List.of(state.getPlayerCastle(), state.getComputerCastle())) {
+            for (Unit unit : castle.getUnits()) {
+                numbers.put(unit, numbers.size());
+            }
+        }
+        out.ensure(4 + numbers.size() * 12);
+        out.buffer.putInt(numbers.size());
+        for (Castle castle : List.of(state.getPlayerCastle(), state.getComputerCastle())) {
+            for (Unit unit : castle.getUnits()) {
+                out.buffer.putInt(packUnit(unit)).putInt(unit.hp).putInt(unit.getMovement());
+            }
+        }
+        // Обход индекса карты идёт по клеткам в порядке стопки: добавленные в нём же, юниты встанут так же
+        GameMap map = state.getMap();
+        List<Unit> onMap = map.getUnitsInArea(0, 0, map.getWidth() - 1, map.getHeight() - 1);
+        onMap.removeIf(unit -> !numbers.containsKey(unit));
+        out.ensure(4 + onMap.size() * 4);
+        out.buffer.putInt(onMap.size());
+        for (Unit unit : onMap) {
+            out.buffer.putInt(numbers.get(unit));
+        }
+    }
+
+    // Новый юнит по packUnit, ещё не в армии и не на карте
+    static Unit unpackUnit(int packed, Castle player, Castle computer) throws IOException {
+        boolean isPlayer = (packed & 1 << 24) != 0;
+        Unit unit = GameState.createUnit(packed >>> 25, isPlayer ? player : computer, isPlayer);
+        if (unit == null) {
+            throw new IOException("Неизвестный тип юнита в сохранении: " + (packed >>> 25));
+        }
+        unit.setPosition(packed >>> 12 & 0xFFF, packed & 0xFFF);
+        return unit;
+    }
+
+    private static void readUnits(ByteBuffer in, Castle player, Castle computer, GameMap map)
+            throws IOException {
+        int count = in.getInt();
+        Unit[] units = new Unit[count];
+        for (int i = 0; i < count; i++) {
+            Unit unit = unpackUnit(in.getInt(), player, computer);
+            unit.setHp(in.getInt());
+            unit.setMovement(in.getInt());
+            (unit.isPlayer() ? player : computer).getUnits().add(unit);
+            units[i] = unit;
+        }
+        int onMap = in.getInt();
+        for (int i = 0; i < onMap; i++) {
+            int number = in.getInt();
+            if (number < 0 || number >= count || map.containsUnit(units[number])) {
+                throw new IOException("Повреждённый порядок юнитов в сохранении");
+            }
+            map.addUnit(units[number]);
+        }
+    }
+
+    private static JournalMark readMark(ByteBuffer in) {
+        long session = in.getLong();
+        long sequence = in.getLong();
+        int[] unitIds = new int[in.getInt()];
+        for (int i = 0; i < unitIds.length; i++) {
+            unitIds[i] = in.getInt();
+        }
+        return new JournalMark(session, sequence, unitIds);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинное число в сохранении");
+    }
+
+    // Растущий буфер записи
+    private static final class Output {
+        ByteBuffer buffer;
+
+        Output(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        // Метка и место под длину; возвращает позицию длины для endSection
+        int beginSection(byte tag) {
+            ensure(5);
+            buffer.put(tag);
+            int lengthPosition = buffer.position();
+            buffer.putInt(0);
+            return lengthPosition;
+        }
+
+        void endSection(int lengthPosition) {
+            buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+        }
+
+        void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+
+        void putRun(Tile.Type type, int length) {
+            ensure(6);
+            buffer.put((byte) type.ordinal());
+            while ((length & ~0x7F) != 0) {
+                buffer.put((byte) (length & 0x7F | 0x80));
+                length >>>= 7;
+            }
+            buffer.put((byte) length);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package main.save;
+
+import main.buildings.Castle;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.map.GameMap;
+import main.map.Tile;
+import main.units.*;
+import main.util.GameRandom;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Текстовый формат сохранения: секции [Castles], [Units] и [Map] по строке на замок, юнит и ряд карты.
+// Читается человеком и правится руками, поэтому остаётся для экспорта и импорта;
+// обычные сохранения пишет BinarySave.
+public final class CsvSave {
+    private CsvSave() {
+    }
+
+    public static void write(GameState state, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            // Save castles state
+            writer.write("[Castles]\n");
+            writeCastle(writer, state.getPlayerCastle(), true);
+            writeCastle(writer, state.getComputerCastle(), false);
+
+            // Save units state
+            writer.write("\n[Units]\n");
+            writeUnits(writer, state.getPlayerCastle());
+            writeUnits(writer, state.getComputerCastle());
+
+            // Save map state
+            writer.write("\n[Map]\n");
+            writeMapRows(writer, state.getMap());
+        }
+    }
+
+    // Партия из файла или null, если в нём нет обоих замков или карты
+    public static GameState read(Path file, GameRandom random, GameOutput output) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            Castle loadedPlayerCastle = null;
+            Castle loadedComputerCastle = null;
+            GameMap loadedMap = null;
+            List<Unit> loadedUnits = new ArrayList<>();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+
+                if (line.equals("[Castles]")) {
+                    // Parse castles
+                    while ((line = nextLine(reader)) != null) {
+                        String[] parts = line.split(";");
+                        if (parts.length < 8) continue;
+
+                        String owner = parts[0];
+                        int gold = Integer.parseInt(parts[1]);
+                        int points = Integer.parseInt(parts[2]);
+                        int x = Integer.parseInt(parts[3]);
+                        int y = Integer.parseInt(parts[4]);
+                        List<String> buildings = new ArrayList<>(Arrays.asList(parts[5].split(",")));
+                        int steps = Integer.parseInt(parts[6]);
+                        boolean isPlayer = parts[7].equals("1");
+
+                        Castle castle = new Castle(owner, x, y);
+                        castle.setGold(gold);
+                        castle.setPoints(points);
+                        buildings.forEach(castle::addBuilding);
+                        castle.setSteps(steps);
+
+                        if (isPlayer) {
+                            loadedPlayerCastle = castle;
+                        } else {
+                            loadedComputerCastle = castle;
+                        }
+                    }
+                } else if (line.equals("[Units]")) {
+                    // Parse units
+                    while ((line = nextLine(reader)) != null) {
+                        String[] parts = line.split(";");
+                        if (parts.length < 5) continue;
+
+                        String className = parts[0];
+                        int x = Integer.parseInt(parts[1]);
+                        int y = Integer.parseInt(parts[2]);
+                        int hp = Integer.parseInt(parts[3]);
+                        String unitOwner = parts[4];
+
+                        Castle ownerCastle = unitOwner.equals(loadedPlayerCastle.getOwner()) ?
+                                loadedPlayerCastle : loadedComputerCastle;
+                        Unit unit = createUnitFromClassName(className, x, y,
+                                ownerCastle == loadedPlayerCastle, ownerCastle);
+
+                        if (unit != null) {
+                            unit.hp = hp;
+                            ownerCastle.getUnits().add(unit);
+                            loadedUnits.add(unit);
+                        }
+                    }
+                } else if (line.equals("[Map]")) {
+                    // Parse map
+                    List<String> rows = new ArrayList<>();
+                    while ((line = nextLine(reader)) != null) {
+                        rows.add(line);
+                    }
+                    loadedMap = parseMapRows(rows, random, "Неверный тип клетки при загрузке: ");
+                }
+            }
+
+            if (loadedPlayerCastle == null || loadedComputerCastle == null || loadedMap == null) {
+                return null;
+            }
+            // Add loaded units to the map
+            for (Unit unit : loadedUnits) {
+                loadedMap.addUnit(unit);
+            }
+            return new GameState(loadedMap, loadedPlayerCastle, loadedComputerCastle, output);
+        }
+    }
+
+    // Следующая непустая строка секции; пустая строка или конец файла закрывают секцию
+    private static String nextLine(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) return null;
+        line = line.trim();
+        return line.isEmpty() ? null : line;
+    }
+
+    public static void writeMapRows(Writer writer, GameMap map) throws IOException {
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                writer.write(map.getTileType(x, y).name());
+                if (x < map.getWidth() - 1) writer.write(";");
+            }
+            writer.write("\n");
+        }
+    }
+
+    // Размер карты определяется по файлу: число строк и самая длинная строка
+    public static GameMap parseMapRows(List<String> rows, GameRandom random, String errorMessage) {
+        if (rows.isEmpty()) {
+            return new GameMap(GameMap.WIDTH, GameMap.HEIGHT, true, random);
+        }
+        int height = Math.min(rows.size(), GameMap.MAX_SIZE);
+        String[][] cells = new String[height][];
+        int width = 1;
+        for (int y = 0; y < height; y++) {
+            cells[y] = rows.get(y).split(";");
+            width = Math.max(width, Math.min(cells[y].length, GameMap.MAX_SIZE));
+        }
+
+        GameMap newMap = new GameMap(width, height, true, random); // Create empty map
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < cells[y].length && x < width; x++) {
+                try {
+                    Tile.Type type = Tile.Type.valueOf(cells[y][x]);
+                    newMap.setTile(x, y, type);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(errorMessage + cells[y][x]);
+                }
+            }
+        }
+        return newMap;
+    }
+
+    private static void writeCastle(Writer writer, Castle castle, boolean isPlayer) throws IOException {
+        writer.write(String.format("%s;%d;%d;%d;%d;%s;%d;%d\n",
+                castle.getOwner(),
+                castle.getGold(),
+                castle.getPoints(),
+                castle.getX(),
+                castle.getY(),
+                String.join(",", castle.getBuildings()),
+                castle.getSteps(),
+                isPlayer ? 1 : 0
+        ));
+    }
+
+    private static void writeUnits(Writer writer, Castle castle) throws IOException {
+        for (Unit unit : castle.getUnits()) {
+            writer.write(String.format("%s;%d;%d;%d;%s\n",
+                    unit.getClass().getSimpleName(),
+                    unit.getX(),
+                    unit.getY(),
+                    unit.hp,
+                    castle.getOwner()
+            ));
+        }
+    }
+
+    private static Unit createUnitFromClassName(String className, int x, int y, boolean isPlayer, Castle castle) {
+        return switch (className) {
+            case "Spearman" -> new Spearman(x, y, isPlayer, castle);
+            case "Crossbowman" -> new Crossbowman(x, y, isPlayer, castle);
+            case "Swordsman" -> new Swordsman(x, y, isPlayer, castle);
+            case "Cavalryman" -> new Cavalryman(x, y, isPlayer, castle);
+            case "Paladin" -> new Paladin(x, y, isPlayer, castle);
+            case "Hero" -> new Hero(x, y, isPlayer, castle);
+            default -> {
+                System.out.println("Неизвестный тип юнита: " + className);
+                yield null;
+            }
+        };
+    }
+}
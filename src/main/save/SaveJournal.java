@@ -0,0 +1,409 @@
+package main.save;
+
+import main.buildings.Castle;
+import main.engine.ActionJournal;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.map.GameMap;
+import main.units.Unit;
+import main.util.GameRandom;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+// Журнал изменений рядом со снимком партии: автосохранение дописывает в конец файла только то,
+// что изменили действия с прошлого автосохранения, а не переписывает карту и все армии.
+// Записи приходят от ActionJournal после каждого действия, отмены и повтора: изменённые юниты
+// (номер, тип, сторона, клетка, здоровье, дальность хода, место в армии, есть ли на карте)
+// и изменившиеся счётчики, постройки и сокращение захвата замков. Запись: длина, номер, содержимое и CRC32 —
+// оборванный при сбое хвост при загрузке отбрасывается.
+// Когда журнал перерастает снимок, пишется новый снимок с меткой «учтены записи до N» (BinarySave.JournalMark);
+// после его записи поток SaveService выбрасывает учтённые записи из журнала.
+// Снимок и журнал помечены сессией: журнал чужой сессии к снимку не применяется.
+public class SaveJournal implements ActionJournal.Listener {
+    private static final int MAGIC = 0x484D534A; // "HMSJ"
+    private static final short VERSION = 1;
+    private static final long MIN_CHECKPOINT_BYTES = 64 * 1024;
+
+    private static final int CASTLE_COUNTERS = 1;
+    private static final int CASTLE_BUILDINGS = 2;
+    private static final int CASTLE_CAPTURE = 4;
+
+    private final GameState state;
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final SaveService saves;
+    private final long session = ThreadLocalRandom.current().nextLong();
+    private final Map<Unit, Integer> ids = new IdentityHashMap<>(); // Номера юнитов в записях; чистятся в checkpoint
+    private int nextId;
+    private long sequence;        // Номер последней записи
+    private boolean checkpointed; // Снимок этой сессии уже заказан
+    private final CastleCache playerCache = new CastleCache();
+    private final CastleCache computerCache = new CastleCache();
+
+    // Общее с потоком записи снимков (под this)
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(); // Записи, ещё не дописанные в файл
+    private FileChannel channel;  // Журнал сессии; пока снимок сессии не записан, его нет
+    private long journalBytes;
+    private long appendedBytes;   // Всего дописано автосохранениями
+    private boolean closed;
+    private volatile long snapshotBytes;
+
+    private SaveJournal(GameState state, Path snapshotFile, Path journalFile, SaveService saves) {
+        this.state = state;
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.saves = saves;
+    }
+
+    // Журнал сохранения, который слушает журнал действий state (он должен быть уже подключён)
+    public static SaveJournal attach(GameState state, Path snapshotFile, Path journalFile, SaveService saves) {
+        SaveJournal journal = new SaveJournal(state, snapshotFile, journalFile, saves);
+        state.getJournal().setListener(journal);
+        return journal;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Юниты, у которых есть номер в журнале
+    public int getTrackedUnits() {
+        return ids.size();
+    }
+
+    public synchronized long getJournalBytes() {
+        return journalBytes;
+    }
+
+    public synchronized long getAppendedBytes() {
+        return appendedBytes;
+    }
+
+    @Override
+    public void changed(List<Unit> units) {
+        if (!checkpointed) return; // До первого снимка сессии всё войдёт в него
+        int playerChanges = playerCache.changes(state.getPlayerCastle());
+        int computerChanges = computerCache.changes(state.getComputerCastle());
+        if (units.isEmpty() && playerChanges == 0 && computerChanges == 0) return;
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(32 + units.size() * 21);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeLong(++sequence);
+            out.writeShort(units.size());
+            GameMap map = state.getMap();
+            for (Unit unit : units) {
+                Castle castle = unit.isPlayer() ? state.getPlayerCastle() : state.getComputerCastle();
+                out.writeInt(idOf(unit));
+                out.writeInt(BinarySave.packUnit(unit));
+                out.writeInt(unit.hp);
+                out.writeInt(unit.getMovement());
+                out.writeShort(castle.getUnits().indexOf(unit));
+                out.writeBoolean(map.containsUnit(unit));
+            }
+            playerCache.write(out, state.getPlayerCastle(), playerChanges);
+            computerCache.write(out, state.getComputerCastle(), computerChanges);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        synchronized (this) {
+            buffer.writeBytes(ByteBuffer.allocate(4).putInt(bytes.length).array());
+            buffer.writeBytes(bytes);
+            buffer.writeBytes(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+        }
+    }
+
+    // Автосохранение: дописывает накопленные записи в журнал. Первый раз за сессию
+    // и когда журнал перерос снимок, вместо этого заказывается новый снимок
+    public void sync() {
+        if (!checkpointed || getJournalBytes() > Math.max(MIN_CHECKPOINT_BYTES, snapshotBytes)) {
+            checkpoint();
+            return;
+        }
+        try {
+            synchronized (this) {
+                append();
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка автосохранения: " + e.getMessage());
+        }
+    }
+
+    // Полный снимок партии в фоне; журнал до него сжимается после записи снимка
+    public void checkpoint() {
+        synchronized (this) {
+            try {
+                append(); // Пока новый снимок не записан, прошлый снимок с журналом должны оставаться полными
+            } catch (IOException e) {
+                System.out.println("Ошибка автосохранения: " + e.getMessage());
+            }
+            if (channel == null) {
+                buffer.reset(); // Журнала сессии ещё нет, а эти записи войдут в снимок
+            }
+        }
+        // Номера остаются только у юнитов снимка: погибшие и отменённые юниты больше не нужны,
+        // а если отмена вернёт такого юнита, он получит новый номер и в журнале появится как нанятый
+        Map<Unit, Integer> live = new IdentityHashMap<>();
+        List<Integer> unitIds = new ArrayList<>();
+        for (Castle castle : List.of(state.getPlayerCastle(), state.getComputerCastle())) {
+            for (Unit unit : castle.getUnits()) {
+                int id = idOf(unit);
+                live.put(unit, id);
+                unitIds.add(id);
+            }
+        }
+        ids.clear();
+        ids.putAll(live);
+        BinarySave.JournalMark mark = new BinarySave.JournalMark(session, sequence,
+                unitIds.stream().mapToInt(Integer::intValue).toArray());
+        playerCache.reset(state.getPlayerCastle());
+        computerCache.reset(state.getComputerCastle());
+        checkpointed = true;
+        saves.save(state, snapshotFile, (snapshot, file) -> {
+            BinarySave.write(snapshot, file, mark);
+            snapshotBytes = Files.size(file);
+            compact(mark.sequence());
+        });
+    }
+
+    public synchronized void close() {
+        closed = true;
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка автосохранения: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private int idOf(Unit unit) {
+        return ids.computeIfAbsent(unit, u -> nextId++);
+    }
+
+    // Под this
+    private void append() throws IOException {
+        if (channel == null || buffer.size() == 0) return;
+        ByteBuffer data = ByteBuffer.wrap(buffer.toByteArray());
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        journalBytes += buffer.size();
+        appendedBytes += buffer.size();
+        buffer.reset();
+    }
+
+    // Поток записи снимков: журнал переписывается без записей, вошедших в снимок upTo
+    private synchronized void compact(long upTo) throws IOException {
+        if (closed) return;
+        ByteArrayOutputStream kept = new ByteArrayOutputStream();
+        kept.writeBytes(header(session));
+        if (channel != null) {
+            append();
+            channel.close();
+            channel = null;
+            for (Frame frame : readFrames(journalFile, session)) {
+                if (frame.sequence > upTo) kept.writeBytes(frame.bytes);
+            }
+        }
+        kept.writeBytes(buffer.toByteArray()); // Записи после снимка, пока журнала сессии не было
+        buffer.reset();
+
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        Files.write(temp, kept.toByteArray());
+        try {
+            Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalBytes = kept.size();
+    }
+
+    // Партия из снимка и хвоста журнала за ним; null, если в снимке нет замков или карты
+    public static GameState load(Path snapshotFile, Path journalFile, GameRandom random, GameOutput output)
+            throws IOException {
+        BinarySave.Snapshot snapshot = BinarySave.readSnapshot(snapshotFile, random, output);
+        if (snapshot == null) return null;
+        GameState state = snapshot.state();
+        BinarySave.JournalMark mark = snapshot.mark();
+        if (mark == null || !Files.exists(journalFile)) return state;
+
+        List<Unit> ordered = new ArrayList<>(state.getPlayerCastle().getUnits());
+        ordered.addAll(state.getComputerCastle().getUnits());
+        if (ordered.size() != mark.unitIds().length) return state;
+        Map<Integer, Unit> units = new HashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            units.put(mark.unitIds()[i], ordered.get(i));
+        }
+        for (Frame frame : readFrames(journalFile, mark.session())) {
+            if (frame.sequence > mark.sequence()) {
+                apply(state, units, frame);
+            }
+        }
+        return state;
+    }
+
+    private static void apply(GameState state, Map<Integer, Unit> units, Frame frame) throws IOException {
+        Castle player = state.getPlayerCastle();
+        Castle computer = state.getComputerCastle();
+        GameMap map = state.getMap();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame.bytes, 12, frame.bytes.length - 16));
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            int packed = in.readInt();
+            Unit unit = units.get(id);
+            if (unit == null) {
+                unit = BinarySave.unpackUnit(packed, player, computer); // Нанят после снимка
+                units.put(id, unit);
+            } else {
+                unit.setPosition(packed >>> 12 & 0xFFF, packed & 0xFFF);
+            }
+            unit.setHp(in.readInt());
+            unit.setMovement(in.readInt());
+            int castleIndex = in.readShort();
+            boolean onMap = in.readBoolean();
+
+            Castle castle = unit.isPlayer() ? player : computer;
+            int index = castle.getUnits().indexOf(unit);
+            if (castleIndex < 0 && index >= 0) {
+                castle.getUnits().remove(index);
+            } else if (castleIndex >= 0 && index < 0) {
+                castle.getUnits().add(Math.min(castleIndex, castle.getUnits().size()), unit);
+            }
+            if (onMap && !map.containsUnit(unit)) {
+                map.addUnit(unit);
+            } else if (!onMap && map.containsUnit(unit)) {
+                map.removeUnit(unit);
+            }
+        }
+        CastleCache.apply(in, player);
+        CastleCache.apply(in, computer);
+    }
+
+    private static byte[] header(long session) {
+        return ByteBuffer.allocate(14).putInt(MAGIC).putShort(VERSION).putLong(session).array();
+    }
+
+    // Целые записи журнала сессии по порядку; на первой оборванной или испорченной чтение заканчивается
+    private static List<Frame> readFrames(Path file, long session) throws IOException {
+        List<Frame> frames = new ArrayList<>();
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.remaining() < 14 || in.getInt() != MAGIC) {
+            return frames;
+        }
+        if (in.getShort() != VERSION || in.getLong() != session) {
+            return frames; // Чужая версия или сессия: журнал не к этому снимку
+        }
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= 4) {
+            int start = in.position();
+            int length = in.getInt();
+            if (length < 8 || length > in.remaining() - 4) break;
+            crc.reset();
+            crc.update(in.array(), start + 4, length);
+            if (in.getInt(start + 4 + length) != (int) crc.getValue()) break;
+            byte[] bytes = new byte[length + 8];
+            in.get(start, bytes);
+            frames.add(new Frame(in.getLong(start + 4), bytes));
+            in.position(start + length + 8);
+        }
+        return frames;
+    }
+
+    // Запись целиком: длина, номер и содержимое, CRC
+    private record Frame(long sequence, byte[] bytes) {
+    }
+
+    // Счётчики и постройки замка на момент прошлой записи: в журнал идут только изменения
+    private static final class CastleCache {
+        int gold;
+        int points;
+        int steps;
+        boolean captureReduced;
+        List<String> buildings = List.of();
+
+        void reset(Castle castle) {
+            gold = castle.getGold();
+            points = castle.getPoints();
+            steps = castle.getSteps();
+            captureReduced = castle.isCaptureTimeReduced();
+            buildings = List.copyOf(castle.getBuildings());
+        }
+
+        int changes(Castle castle) {
+            int changes = 0;
+            if (gold != castle.getGold() || points != castle.getPoints() || steps != castle.getSteps()) {
+                changes |= CASTLE_COUNTERS;
+            }
+            if (!buildings.equals(castle.getBuildings())) {
+                changes |= CASTLE_BUILDINGS;
+            }
+            if (captureReduced != castle.isCaptureTimeReduced()) {
+                changes |= CASTLE_CAPTURE;
+            }
+            return changes;
+        }
+
+        void write(DataOutputStream out, Castle castle, int changes) throws IOException {
+            out.writeByte(changes);
+            if ((changes & CASTLE_COUNTERS) != 0) {
+                out.writeInt(castle.getGold());
+                out.writeInt(castle.getPoints());
+                out.writeInt(castle.getSteps());
+            }
+            if ((changes & CASTLE_BUILDINGS) != 0) {
+                out.writeByte(castle.getBuildings().size());
+                for (String building : castle.getBuildings()) {
+                    out.writeUTF(building);
+                }
+            }
+            if ((changes & CASTLE_CAPTURE) != 0) {
+                out.writeBoolean(castle.isCaptureTimeReduced());
+            }
+            reset(castle);
+        }
+
+        static void apply(DataInputStream in, Castle castle) throws IOException {
+            int changes = in.readUnsignedByte();
+            if ((changes & CASTLE_COUNTERS) != 0) {
+                castle.setGold(in.readInt());
+                castle.setPoints(in.readInt());
+                castle.setSteps(in.readInt());
+            }
+            if ((changes & CASTLE_BUILDINGS) != 0) {
+                for (String building : List.copyOf(castle.getBuildings())) {
+                    castle.removeBuilding(building);
+                }
+                int count = in.readUnsignedByte();
+                for (int i = 0; i < count; i++) {
+                    castle.addBuilding(in.readUTF());
+                }
+            }
+            if ((changes & CASTLE_CAPTURE) != 0) {
+                castle.setCaptureTimeReduction(in.readBoolean());
+            }
+        }
+    }
+}
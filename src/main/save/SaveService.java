@@ -0,0 +1,199 @@
+package main.save;
+
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.util.GameRandom;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Фоновая запись сохранений, чтобы диск не задерживал ход.
+// Запрос снимает копию партии на игровом потоке: GameState.copy делит карту с оригиналом до первой записи,
+// поэтому копия дешёвая, а игра может сразу менять своё состояние. Копию пишет отдельный поток.
+// Пока он занят, новые запросы в тот же файл не копятся, а заменяют ждущую копию —
+// несколько сохранений подряд превращаются в одну запись последнего состояния.
+// Атомарность (временный файл + переименование) обеспечивает кодек, по умолчанию BinarySave.
+public class SaveService implements AutoCloseable {
+    // Запись партии в файл
+    @FunctionalInterface
+    public interface Codec {
+        void write(GameState state, Path file) throws IOException;
+    }
+
+    private final Codec codec;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "save-writer");
+        thread.setDaemon(true); // Незаписанное сохранение не держит процесс: для этого есть flush()
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private final Map<Path, Request> pending = new LinkedHashMap<>(); // Последняя копия для каждого файла
+    private boolean draining;      // Поток записи запущен или ещё не закончил
+    private long requests;
+    private long coalesced;        // Запросы, вытесненные более свежими до записи
+    private long writes;
+    private int maxQueueDepth;
+    private long lastWriteNanos;
+    private long maxWriteNanos;
+    private long totalWriteNanos;
+    private IOException lastError;
+
+    public SaveService() {
+        this(BinarySave::write);
+    }
+
+    public SaveService(Codec codec) {
+        this.codec = codec;
+    }
+
+    // Ставит сохранение партии в очередь и сразу возвращается
+    public void save(GameState state, Path file) {
+        save(state, file, codec);
+    }
+
+    // То же со своим кодеком для этого запроса (например, снимок с меткой журнала)
+    public void save(GameState state, Path file, Codec codec) {
+        GameState snapshot = state.copy(GameOutput.SILENT, new GameRandom(state.getTurn()));
+        synchronized (lock) {
+            requests++;
+            if (pending.put(file, new Request(snapshot, codec)) != null) {
+                coalesced++;
+            }
+            maxQueueDepth = Math.max(maxQueueDepth, pending.size());
+            if (!draining) {
+                draining = true;
+                writer.execute(this::drain);
+            }
+        }
+    }
+
+    // Ждёт, пока все поставленные сохранения окажутся на диске (перед выходом и после победы)
+    public void flush() {
+        synchronized (lock) {
+            while (draining) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Цикл потока записи: забирает все ждущие копии, пишет их и повторяет, пока очередь не опустеет
+    private void drain() {
+        while (true) {
+            List<Map.Entry<Path, Request>> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    draining = false;
+                    lock.notifyAll();
+                    return;
+                }
+                batch = new ArrayList<>(pending.entrySet());
+                pending.clear();
+            }
+            for (Map.Entry<Path, Request> entry : batch) {
+                write(entry.getValue(), entry.getKey());
+            }
+        }
+    }
+
+    private void write(Request request, Path file) {
+        long start = System.nanoTime();
+        IOException error = null;
+        try {
+            request.codec.write(request.snapshot, file);
+        } catch (IOException e) {
+            error = e;
+            System.out.println("Ошибка сохранения: " + e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (lock) {
+            writes++;
+            lastWriteNanos = elapsed;
+            maxWriteNanos = Math.max(maxWriteNanos, elapsed);
+            totalWriteNanos += elapsed;
+            lastError = error;
+        }
+    }
+
+    // Сохранения, которые ждут записи (не считая той, что пишется сейчас)
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    public int getMaxQueueDepth() {
+        synchronized (lock) {
+            return maxQueueDepth;
+        }
+    }
+
+    public long getRequests() {
+        synchronized (lock) {
+            return requests;
+        }
+    }
+
+    public long getCoalesced() {
+        synchronized (lock) {
+            return coalesced;
+        }
+    }
+
+    public long getWrites() {
+        synchronized (lock) {
+            return writes;
+        }
+    }
+
+    public double getLastWriteMillis() {
+        synchronized (lock) {
+            return lastWriteNanos / 1e6;
+        }
+    }
+
+    public double getMaxWriteMillis() {
+        synchronized (lock) {
+            return maxWriteNanos / 1e6;
+        }
+    }
+
+    public double getAverageWriteMillis() {
+        synchronized (lock) {
+            return writes == 0 ? 0 : totalWriteNanos / 1e6 / writes;
+        }
+    }
+
+    // Ошибка последней записи или null, если она прошла успешно
+    public IOException getLastError() {
+        synchronized (lock) {
+            return lastError;
+        }
+    }
+
+    private record Request(GameState snapshot, Codec codec) {
+    }
+}
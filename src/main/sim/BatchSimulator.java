@@ -0,0 +1,94 @@
+package main.sim;
+
+import main.buildings.Castle;
+import main.engine.ComputerInput;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.map.GameMap;
+import main.units.Unit;
+import main.util.GameRandom;
+
+import java.util.*;
+import java.util.stream.LongStream;
+
+// Пакетная симуляция партий компьютер-компьютер для балансировки юнитов.
+// Каждая партия целиком определяется своим зерном, партии идут параллельно в общем пуле fork/join,
+// а сводка складывается из целочисленных сумм — при тех же зёрнах результат одинаков на любом числе ядер.
+public class BatchSimulator {
+    public static final int DEFAULT_MAX_TURNS = 200;
+
+    private final int mapSize;
+    private final int maxTurns;
+
+    public BatchSimulator(int mapSize, int maxTurns) {
+        this.mapSize = mapSize;
+        this.maxTurns = maxTurns;
+    }
+
+    // Партии с зёрнами firstSeed, firstSeed + 1, ... на всех ядрах
+    public SimulationReport run(long firstSeed, int games) {
+        return LongStream.range(firstSeed, firstSeed + games)
+                .parallel()
+                .collect(() -> new SimulationReport(maxTurns),
+                        (report, seed) -> report.add(playGame(seed)),
+                        SimulationReport::merge);
+    }
+
+    public GameResult playGame(long seed) {
+        GameRandom random = new GameRandom(seed);
+        GameMap map = new GameMap(mapSize, mapSize, false, random);
+        GameState state = GameState.newGame(map, "Игрок", GameOutput.SILENT);
+        ComputerInput player = new ComputerInput(random.split(GameRandom.Stream.AI));
+        ComputerInput computer = new ComputerInput(random.split(GameRandom.Stream.AI));
+
+        int[][] gold = new int[2][maxTurns + 1];
+        int[][] points = new int[2][maxTurns + 1];
+        Map<Unit, Integer> fielded = new IdentityHashMap<>(); // Все юниты, когда-либо стоявшие на карте, и их сторона
+        record(state, 0, gold, points, fielded);
+        while (!state.isOver() && state.getTurn() < maxTurns) {
+            state.playTurn(state.isPlayerTurn() ? player : computer);
+            record(state, state.getTurn(), gold, points, fielded);
+        }
+
+        int turns = state.getTurn();
+        Map<String, int[]> recruits = new HashMap<>();
+        fielded.forEach((unit, side) -> recruits.computeIfAbsent(unit.getType(), k -> new int[2])[side]++);
+        int winner = switch (state.getWinner()) {
+            case PLAYER -> GameResult.PLAYER;
+            case COMPUTER -> GameResult.COMPUTER;
+            case NONE -> GameResult.DRAW;
+        };
+        return new GameResult(seed, winner, turns,
+                new int[][]{Arrays.copyOf(gold[0], turns + 1), Arrays.copyOf(gold[1], turns + 1)},
+                new int[][]{Arrays.copyOf(points[0], turns + 1), Arrays.copyOf(points[1], turns + 1)},
+                recruits);
+    }
+
+    private static void record(GameState state, int turn, int[][] gold, int[][] points, Map<Unit, Integer> fielded) {
+        Castle[] castles = {state.getPlayerCastle(), state.getComputerCastle()};
+        for (int side = 0; side < 2; side++) {
+            gold[side][turn] = castles[side].getGold();
+            points[side][turn] = castles[side].getPoints();
+            for (Unit unit : castles[side].getUnits()) {
+                fielded.putIfAbsent(unit, side);
+            }
+        }
+    }
+
+    // Запуск: java main.sim.BatchSimulator [партий] [первое зерно] [размер карты] [ходов]
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : GameMap.WIDTH;
+        int turns = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_TURNS;
+
+        BatchSimulator simulator = new BatchSimulator(size, turns);
+        long start = System.nanoTime();
+        SimulationReport report = simulator.run(seed, games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        report.print(System.out);
+        System.out.printf("%d партий за %.2f с: %.0f партий в минуту на %d ядрах%n",
+                games, seconds, games / seconds * 60, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,174 @@
+package main.sim;
+
+import java.util.PriorityQueue;
+
+// Дискретно-событийная симуляция города: очередь событий с метками времени на модельных часах.
+// Визит в отель, кафе или парикмахерскую — не спящий поток, а два события (вход и выход),
+// поэтому часы жизни города просчитываются на одном потоке за миллисекунды и повторяются
+// при тех же зёрнах: события одного момента идут в порядке постановки.
+// В игре часы идут вровень с настоящими (startRealTime): отдельный поток спит до ближайшего события.
+public class EventScheduler implements AutoCloseable {
+    private final PriorityQueue<Event> queue = new PriorityQueue<>();
+    private long clock;            // Модельное время, мс
+    private long sequence;         // Порядок постановки для событий одного момента
+    private long processed;
+    private Thread realTime;       // Поток часов реального времени, если запущен
+    private long wallOrigin;       // System.nanoTime() и модельное время на момент запуска часов
+    private long simOrigin;
+
+    // Событие на модельных часах
+    private record Event(long time, long sequence, Runnable action) implements Comparable<Event> {
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // Текущее модельное время. Пока идут часы реального времени — настоящее время,
+    // но не дальше ближайшего события: до его обработки его момент не наступил
+    public synchronized long now() {
+        if (realTime == null) {
+            return clock;
+        }
+        Event next = queue.peek();
+        long wall = wallClock();
+        return Math.max(clock, next == null ? wall : Math.min(wall, next.time()));
+    }
+
+    // Действие через delay мс модельного времени
+    public synchronized void schedule(long delay, Runnable action) {
+        scheduleAt(now() + Math.max(0, delay), action);
+    }
+
+    public synchronized void scheduleAt(long time, Runnable action) {
+        queue.add(new Event(Math.max(time, clock), sequence++, action));
+        notifyAll(); // Часы реального времени могли уснуть до более позднего события
+    }
+
+    // Обрабатывает ближайшее событие; false, если очередь пуста
+    public boolean runNext() {
+        Event event = poll(Long.MAX_VALUE);
+        if (event == null) {
+            return false;
+        }
+        run(event);
+        return true;
+    }
+
+    // Обрабатывает все события до момента time включительно (и поставленные по ходу) и переводит часы на time
+    public long runUntil(long time) {
+        long count = 0;
+        for (Event event = poll(time); event != null; event = poll(time)) {
+            run(event);
+            count++;
+        }
+        return count;
+    }
+
+    // Обрабатывает события следующих duration мс
+    public long runFor(long duration) {
+        long time;
+        synchronized (this) {
+            time = clock + duration;
+        }
+        return runUntil(time);
+    }
+
+    public synchronized int getPendingEvents() {
+        return queue.size();
+    }
+
+    public synchronized long getProcessedEvents() {
+        return processed;
+    }
+
+    // Модельные часы начинают идти вровень с настоящими; события обрабатывает поток "town-clock"
+    public synchronized void startRealTime() {
+        if (realTime != null) {
+            return;
+        }
+        wallOrigin = System.nanoTime();
+        simOrigin = clock;
+        realTime = Thread.ofPlatform().name("town-clock").daemon().start(this::tick);
+    }
+
+    // Ближайшее событие не позже time, уже снятое с очереди; null — таких нет, и часы переведены на time
+    // (runNext зовёт с Long.MAX_VALUE — тогда часы остаются на месте)
+    private synchronized Event poll(long time) {
+        Event next = queue.peek();
+        if (next == null || next.time() > time) {
+            if (time != Long.MAX_VALUE) {
+                clock = Math.max(clock, time);
+            }
+            return null;
+        }
+        queue.poll();
+        clock = Math.max(clock, next.time());
+        processed++;
+        return next;
+    }
+
+    // Действие события выполняется без блокировки часов: оно может ставить события и звать другие объекты.
+    // Исключение одного события не останавливает часы
+    private void run(Event event) {
+        try {
+            event.action().run();
+        } catch (RuntimeException e) {
+            System.err.println("Ошибка события города в момент " + event.time() + ": " + e);
+        }
+    }
+
+    private long wallClock() {
+        return simOrigin + (System.nanoTime() - wallOrigin) / 1_000_000;
+    }
+
+    private void tick() {
+        Thread self = Thread.currentThread();
+        while (true) {
+            long wall;
+            synchronized (this) {
+                if (realTime != self) {
+                    return;
+                }
+                wall = wallClock();
+            }
+            runUntil(wall);
+            synchronized (this) {
+                if (realTime != self) {
+                    return;
+                }
+                Event next = queue.peek();
+                long delay = next == null ? 0 : next.time() - wallClock();
+                if (next != null && delay <= 0) {
+                    continue; // Следующее событие уже наступило, пока выполнялись прежние
+                }
+                try {
+                    wait(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Останавливает часы реального времени; необработанные события остаются в очереди
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            thread = realTime;
+            if (thread == null) {
+                return;
+            }
+            clock = now();
+            realTime = null;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package main.sim;
+
+import java.util.Map;
+
+// Итог одной симулированной партии.
+// gold/points[сторона][ход] — золото и очки замка после каждого хода (0 — игрок, 1 — компьютер),
+// recruits — сколько юнитов каждого типа выставила каждая сторона.
+public record GameResult(long seed, int winner, int turns, int[][] gold, int[][] points,
+                         Map<String, int[]> recruits) {
+    public static final int DRAW = -1;
+    public static final int PLAYER = 0;
+    public static final int COMPUTER = 1;
+}
@@ -0,0 +1,124 @@
+package main.sim;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Сводка по множеству партий. Все поля — целочисленные суммы, поэтому результат
+// не зависит от того, в каком порядке и на каких потоках партии сливались в сводку.
+public class SimulationReport {
+    private final int maxTurns;
+    private long games;
+    private final long[] wins = new long[2];
+    private long draws;
+    private long totalTurns;
+    private int longestGame;
+    private final long[][] goldSum;   // [сторона][ход]
+    private final long[][] pointsSum;
+    private final long[] samples;     // Сколько партий дошло до хода
+    private final Map<String, long[]> units = new TreeMap<>(); // Тип -> {нанято игроком, компьютером, побед нанявших}
+
+    public SimulationReport(int maxTurns) {
+        this.maxTurns = maxTurns;
+        goldSum = new long[2][maxTurns + 1];
+        pointsSum = new long[2][maxTurns + 1];
+        samples = new long[maxTurns + 1];
+    }
+
+    public void add(GameResult result) {
+        games++;
+        if (result.winner() == GameResult.DRAW) {
+            draws++;
+        } else {
+            wins[result.winner()]++;
+        }
+        totalTurns += result.turns();
+        longestGame = Math.max(longestGame, result.turns());
+        for (int turn = 0; turn < result.gold()[0].length; turn++) {
+            samples[turn]++;
+            for (int side = 0; side < 2; side++) {
+                goldSum[side][turn] += result.gold()[side][turn];
+                pointsSum[side][turn] += result.points()[side][turn];
+            }
+        }
+        for (Map.Entry<String, int[]> entry : result.recruits().entrySet()) {
+            long[] stats = units.computeIfAbsent(entry.getKey(), k -> new long[3]);
+            int[] bySide = entry.getValue();
+            stats[0] += bySide[0];
+            stats[1] += bySide[1];
+            if (result.winner() != GameResult.DRAW && bySide[result.winner()] > 0) {
+                stats[2]++;
+            }
+        }
+    }
+
+    public void merge(SimulationReport other) {
+        games += other.games;
+        wins[0] += other.wins[0];
+        wins[1] += other.wins[1];
+        draws += other.draws;
+        totalTurns += other.totalTurns;
+        longestGame = Math.max(longestGame, other.longestGame);
+        for (int turn = 0; turn <= maxTurns; turn++) {
+            samples[turn] += other.samples[turn];
+            for (int side = 0; side < 2; side++) {
+                goldSum[side][turn] += other.goldSum[side][turn];
+                pointsSum[side][turn] += other.pointsSum[side][turn];
+            }
+        }
+        other.units.forEach((type, stats) -> {
+            long[] mine = units.computeIfAbsent(type, k -> new long[3]);
+            for (int i = 0; i < 3; i++) {
+                mine[i] += stats[i];
+            }
+        });
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getPlayerWins() {
+        return wins[GameResult.PLAYER];
+    }
+
+    public long getComputerWins() {
+        return wins[GameResult.COMPUTER];
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public double getAverageTurns() {
+        return games == 0 ? 0 : (double) totalTurns / games;
+    }
+
+    // Среднее золото стороны после хода turn среди партий, которые до него дошли
+    public double getAverageGold(int side, int turn) {
+        return samples[turn] == 0 ? 0 : (double) goldSum[side][turn] / samples[turn];
+    }
+
+    public double getAveragePoints(int side, int turn) {
+        return samples[turn] == 0 ? 0 : (double) pointsSum[side][turn] / samples[turn];
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Партий: %d | победы игрока: %.1f%% | победы компьютера: %.1f%% | ничьи: %.1f%%%n",
+                games, percent(wins[0]), percent(wins[1]), percent(draws));
+        out.printf("Длина партии: в среднем %.1f ходов, самая длинная %d%n", getAverageTurns(), longestGame);
+        out.println("Ход | золото игрока | золото компьютера | очки игрока | очки компьютера");
+        int step = Math.max(1, maxTurns / 10);
+        for (int turn = 0; turn <= Math.min(maxTurns, longestGame); turn += step) {
+            out.printf("%3d | %13.1f | %17.1f | %11.1f | %15.1f%n", turn,
+                    getAverageGold(0, turn), getAverageGold(1, turn),
+                    getAveragePoints(0, turn), getAveragePoints(1, turn));
+        }
+        out.println("Юнит | нанято игроком | нанято компьютером | побед нанявшей стороны");
+        units.forEach((type, stats) -> out.printf("%s | %d | %d | %d%n", type, stats[0], stats[1], stats[2]));
+    }
+
+    private double percent(long count) {
+        return games == 0 ? 0 : 100.0 * count / games;
+    }
+}
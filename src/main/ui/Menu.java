@@ -14,6 +14,9 @@ public class Menu {
         System.out.println("9. Отель «У погибшего альпиниста»");
         System.out.println("10. Кафе «Сырники от тети Глаши»");
         System.out.println("11. Парикмахерская «Отрезанное ухо»");
+        System.out.println("12. Отменить прошлый ход");
+        System.out.println("13. Вернуть отменённый ход");
+        System.out.println("14. Экспорт сохранения в CSV");
     }
 
     static public void showUnitsMenu() {
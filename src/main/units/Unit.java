@@ -1,11 +1,15 @@
 package main.units;
 
 import main.buildings.Castle;
+import main.engine.GameOutput;
 import main.map.GameMap;
+import main.map.Path;
+import main.map.Pathfinder;
+import main.util.GameRandom;
 
 import java.util.*;
 
-public class Unit {
+public class Unit implements Cloneable {
     private final String type;      // Тип юнита (Копейщик, Арбалетчик и т. д.)
     public int hp;           // Здоровье
     private final int attack;       // Атака
@@ -16,6 +20,7 @@ public class Unit {
     private int y;
     private final boolean isPlayer;
     private Castle castle;
+    private GameMap map; // Карта, на которой стоит юнит: ей сообщается об изменении здоровья
 
     public Unit(String type, int hp, int attack, int movement, int range, int cost, int x, int y, boolean isPlayer, Castle castle) {
         this.type = type;
@@ -42,27 +47,28 @@ public class Unit {
         };
     }
 
-    public void attack(int targetX, int targetY, GameMap map) {
+    public boolean attack(int targetX, int targetY, GameMap map) {
         Unit target = map.getUnitAt(targetX, targetY);
 
         if (target == null) {
-            System.out.println("На этой клетке нет врага!");
-            return;
+            message("На этой клетке нет врага!");
+            return false;
         }
 
         int distance = Math.abs(this.x - targetX) + Math.abs(this.y - targetY);
 
         if (distance > this.range) {
-            System.out.println("Цель слишком далека для атаки!");
-            return;
+            message("Цель слишком далека для атаки!");
+            return false;
         }
 
-        System.out.println(this.type + " атакует " + target.getType() + " нанося " + this.attack + " урона!");
+        message(this.type + " атакует " + target.getType() + " нанося " + this.attack + " урона!");
         target.takeDamage(this.attack);
 
         if (!target.isAlive()) {
             target.castle.removeUnit(target);
-            System.out.println(target.getType() + " погиб!");
+            map.removeUnit(target);
+            message(target.getType() + " погиб!");
 
             // Add points for killing enemy units
             if (this.isPlayer && !target.isPlayer()) {
@@ -76,37 +82,42 @@ public class Unit {
                     case "Герой" -> pointsEarned = 20;
                 }
                 this.castle.addPoints(pointsEarned);
-                System.out.println("+ " + pointsEarned + " очков за убийство " + target.getType());
+                message("+ " + pointsEarned + " очков за убийство " + target.getType());
             }
         }
+        return true;
     }
 
-    public void move(int newX, int newY, GameMap map, Castle castle) {
-        if (!map.isWalkable(newX, newY)) {
-            System.out.println("Нельзя ходить в препятствие!");
-            return;
+    public boolean move(int newX, int newY, GameMap map, Castle castle) {
+        // Вражеский замок — цель похода: на него можно встать, даже если там стоит охрана
+        if (!map.isWalkable(newX, newY) && !isGuardedEnemyCastle(newX, newY, map)) {
+            message("Нельзя ходить в препятствие!");
+            return false;
         }
 
         int distance = Math.abs(this.x - newX) + Math.abs(this.y - newY);
 
         if (distance > movement) {
-            System.out.println("Слишком далеко! Максимальная длина хода: " + movement);
-            return;
+            message("Слишком далеко! Максимальная длина хода: " + movement);
+            return false;
         }
 
-        // Определяем стоимость перемещения в зависимости от зоны
-        int stepCost;
-        if (isPlayer) {
-            stepCost = map.getPlayerMoveStep(newX, newY); // Для игрока
-        } else {
-            stepCost = map.getCompMoveStep(newX, newY); // Для компьютера
+        // Юнит идёт по клеткам, а не перепрыгивает препятствия и чужие отряды
+        Path path = Pathfinder.findPath(map, this.x, this.y, newX, newY, isPlayer, movement);
+        if (path == null) {
+            message("Путь прегражден! Максимальная длина хода: " + movement);
+            return false;
         }
 
+        // Шаги списываются за каждую клетку пути по её зоне, а не только за клетку назначения
+        int stepCost = path.getStepCost();
+
         // Проверяем, достаточно ли шагов для перемещения
         if (castle.getSteps() >= stepCost) {
             // Перемещаем юнита
             this.x = newX;
             this.y = newY;
+            map.updateUnitPosition(this);
             castle.spendSteps(stepCost);// Снимаем шаги
 
             // Тратим золото за перемещение, если это платная дорога
@@ -114,43 +125,59 @@ public class Unit {
             if (goldCost > 0) {
                 if (castle.getGold() >= goldCost) {
                     castle.spendGold(goldCost);
-                    System.out.println("Платная дорога!");
+                    message("Платная дорога!");
                 } else {
                     // Если денег нет, забираем юнита
-                    System.out.println("Недостаточно золота для оплаты дороги!");
+                    message("Недостаточно золота для оплаты дороги!");
 //                    castle.removeUnit(this);
                     this.hp = 0;
-                    System.out.println("Юнит " + this.getType() + " удален из-за отсутствия золота.");
+                    map.removeUnit(this);
+                    message("Юнит " + this.getType() + " удален из-за отсутствия золота.");
 
                     // Если юнитов больше нет, забираем замок
                     if (castle.getUnits().isEmpty() || (castle.getUnits().size() == 1 && castle.getUnits().getFirst().hp == 0)) {
-                        System.out.println("У " + castle.getOwner() + " больше нет юнитов. Замок захвачен!");
+                        message("У " + castle.getOwner() + " больше нет юнитов. Замок захвачен!");
                     }
-                    return;
+                    return true; // Ход состоялся, хотя юнит и погиб
                 }
             }
 
-            System.out.println((isPlayer ? "Игрок" : "Компьютер") + " переместился на (" + newX + ", " + newY + "). Потрачено шагов: " + stepCost + ", золота: " + goldCost);
+            message((isPlayer ? "Игрок" : "Компьютер") + " переместился на (" + newX + ", " + newY + "). Потрачено шагов: " + stepCost + ", золота: " + goldCost);
 
             // Если это герой, случайно добавляем золото
             if (this.type.equals("Герой")) {
-                Random random = new Random();
-                int goldFound = random.nextInt(21); // Случайное число от 0 до 20
+                int goldFound = map.getRandom().stream(GameRandom.Stream.LOOT).nextInt(21); // Случайное число от 0 до 20
                 castle.addGold(goldFound);
                 int pointsEarned = goldFound / 2; // 1 очко за 2 найденных золотых
                 castle.addPoints(pointsEarned);
-                System.out.println("Герой нашел " + goldFound + " золота!");
-                System.out.println("+ " + pointsEarned + " очков за находку!");
+                message("Герой нашел " + goldFound + " золота!");
+                message("+ " + pointsEarned + " очков за находку!");
             }
+            return true;
         } else {
-            System.out.println("Недостаточно шагов для перемещения!");
+            message("Недостаточно шагов для перемещения!");
+            return false;
         }
     }
 
+    // Клетка вражеского замка, занятая его юнитом (нанятые юниты появляются прямо в замке)
+    private boolean isGuardedEnemyCastle(int x, int y, GameMap map) {
+        Unit guard = map.getUnitAt(x, y);
+        return guard != null && guard.isPlayer != isPlayer && guard.castle != null
+                && guard.castle.getX() == x && guard.castle.getY() == y;
+    }
+
     public int getX() {
         return x;
     }
 
+    // Перестановка юнита без правил хода (отмена действий); карта, на которой он стоит, узнаёт об этом
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+        if (map != null) map.updateUnitPosition(this);
+    }
+
     public int getY() {
         return y;
     }
@@ -167,6 +194,11 @@ public class Unit {
         return hp;
     }
 
+    public void setHp(int hp) {
+        this.hp = hp;
+        if (map != null) map.refreshUnit(this);
+    }
+
     public int getAttack() {
         return attack;
     }
@@ -187,6 +219,7 @@ public class Unit {
     public void takeDamage(int damage) {
         this.hp -= damage;
         if (hp < 0) hp = 0;
+        if (map != null) map.refreshUnit(this);
     }
 
     // Проверка, жив ли юнит
@@ -199,8 +232,31 @@ public class Unit {
         System.out.println(type + " | HP: " + hp + " | Атака: " + attack + " | Перемещение: " + movement + " | Дальность атаки: " + range);
     }
 
+    // Копия юнита для копии замка; класс юнита (Hero и т. д.) сохраняется
+    public Unit copyFor(Castle castle) {
+        try {
+            Unit copy = (Unit) super.clone();
+            copy.castle = castle;
+            copy.map = null; // Копию ставит на свою карту тот, кто копирует
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Сообщения юнита идут в порт вывода его замка
+    private void message(String text) {
+        (castle == null ? GameOutput.CONSOLE : castle.getOutput()).message(text);
+    }
+
     public void addHealth(int bonus) {
         this.hp += bonus;
+        if (map != null) map.refreshUnit(this);
+    }
+
+    // Вызывается картой при добавлении юнита и при его удалении (null)
+    public void setMap(GameMap map) {
+        this.map = map;
     }
 
     public void setMovement(int movement) {
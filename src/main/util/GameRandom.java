@@ -0,0 +1,51 @@
+package main.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Генератор случайных чисел одной партии. Из одного зерна выводятся независимые потоки
+// для каждой подсистемы, поэтому партию с тем же зерном можно воспроизвести,
+// а лишний запрос в одной подсистеме не сдвигает случайность в другой.
+// Потоки SplittableRandom не потокобезопасны: поток принадлежит одной подсистеме,
+// а для отдельных нитей (например, NPC) берётся собственная ветка через split.
+public class GameRandom {
+    public enum Stream {
+        MAP,        // Генерация карты
+        TOLLS,      // Плата за проход по дороге
+        LOOT,       // Находки героя
+        AI,         // Решения компьютера
+        NPC,        // Поведение NPC
+        FACILITIES, // Время обслуживания в зданиях
+        MINIGAME    // Колоды мини-игры в таверне
+    }
+
+    private final long seed;
+    private final Map<Stream, SplittableRandom> streams = new EnumMap<>(Stream.class);
+
+    public GameRandom() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    public GameRandom(long seed) {
+        this.seed = seed;
+        SplittableRandom root = new SplittableRandom(seed);
+        // Порядок ветвления фиксирован порядком перечисления — потоки зависят только от зерна
+        for (Stream stream : Stream.values()) {
+            streams.put(stream, root.split());
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public SplittableRandom stream(Stream stream) {
+        return streams.get(stream);
+    }
+
+    // Новая независимая ветка потока для отдельной нити; при том же зерне и порядке вызовов ветки совпадают
+    public SplittableRandom split(Stream stream) {
+        return streams.get(stream).split();
+    }
+}
@@ -0,0 +1,66 @@
+package test;
+
+import main.NpcPopulation;
+import main.buildings.Barbershop;
+import main.buildings.Cafe;
+import main.buildings.Hotel;
+import main.sim.EventScheduler;
+import main.util.GameRandom;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NpcPopulationTest {
+
+    private record Town(EventScheduler scheduler, Hotel hotel, Cafe cafe, Barbershop barbershop,
+                        NpcPopulation population) {
+    }
+
+    private static Town simulate(long seed, int npcs, long millis) {
+        GameRandom random = new GameRandom(seed);
+        EventScheduler scheduler = new EventScheduler();
+        Hotel hotel = new Hotel(scheduler::now);
+        Cafe cafe = new Cafe(random.split(GameRandom.Stream.FACILITIES), scheduler::now);
+        Barbershop barbershop = new Barbershop(random.split(GameRandom.Stream.FACILITIES), scheduler::now);
+        NpcPopulation population = new NpcPopulation(hotel, cafe, barbershop);
+        population.spawn(npcs, random, scheduler);
+        scheduler.runUntil(millis);
+        return new Town(scheduler, hotel, cafe, barbershop, population);
+    }
+
+    @Test
+    void hourOfTownLifeIsSimulatedWithoutWaiting() {
+        long start = System.nanoTime();
+        Town town = simulate(1, 1000, 3_600_000);
+        assertTrue(System.nanoTime() - start < 30_000_000_000L);
+
+        // Пауза 1–5 с: не меньше 720 попыток за час у каждого
+        assertTrue(town.population().getAttempts() >= 1000L * 720);
+        assertTrue(town.population().getVisits() > 0);
+        // Занятые места — ровно те визиты, что ещё не закончились
+        assertEquals(5 - town.hotel().getAvailableRooms(), town.hotel().getRemainingTimes().size());
+        assertEquals(12 - town.cafe().getAvailableSlots(), town.cafe().getActiveDurations().size());
+        assertEquals(2 - town.barbershop().getAvailableSeats(), town.barbershop().getActiveServices().size());
+    }
+
+    @Test
+    void sameSeedGivesSameTown() {
+        Town first = simulate(7, 200, 600_000);
+        Town second = simulate(7, 200, 600_000);
+        assertEquals(first.population().getAttempts(), second.population().getAttempts());
+        assertEquals(first.population().getVisits(), second.population().getVisits());
+        assertEquals(first.scheduler().getProcessedEvents(), second.scheduler().getProcessedEvents());
+        assertEquals(first.hotel().getRemainingTimes(), second.hotel().getRemainingTimes());
+    }
+
+    @Test
+    void stoppedTownFreesAllPlaces() {
+        Town town = simulate(3, 500, 60_000);
+        town.population().close();
+        town.scheduler().runFor(3_600_000);
+        assertEquals(5, town.hotel().getAvailableRooms());
+        assertEquals(12, town.cafe().getAvailableSlots());
+        assertEquals(2, town.barbershop().getAvailableSeats());
+        assertEquals(0, town.scheduler().getPendingEvents());
+    }
+}
@@ -0,0 +1,57 @@
+package test.benchmark;
+
+import main.map.FlowField;
+import main.map.GameMap;
+import main.map.Path;
+import main.map.Pathfinder;
+
+import java.util.Random;
+
+// Ход армии к замку на карте 512x512: поле потока (один расчёт на все юниты, потом чтение таблицы)
+// против отдельного поиска маршрута A* для каждого юнита.
+public class FlowFieldBenchmark {
+    private static final int SIZE = 512;
+    private static final int UNITS = 2_000;
+    private static final int MOVEMENT = 8;
+
+    public static void main(String[] args) {
+        GameMap map = new GameMap(SIZE, SIZE, false);
+        Random random = new Random(5);
+        int[] xs = new int[UNITS];
+        int[] ys = new int[UNITS];
+        for (int i = 0; i < UNITS; i++) {
+            do {
+                xs[i] = random.nextInt(SIZE);
+                ys[i] = random.nextInt(SIZE);
+            } while (!map.isWalkable(xs[i], ys[i]));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            map.setTile(SIZE / 2, SIZE / 2, map.getTileType(SIZE / 2, SIZE / 2)); // Сбрасываем поле
+            long start = System.nanoTime();
+            FlowField field = map.getFlowField(0, 0, false);
+            double buildMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            long moved = 0;
+            for (int i = 0; i < UNITS; i++) {
+                int cell = ys[i] * SIZE + xs[i];
+                for (int s = 0; s < MOVEMENT && cell >= 0; s++) {
+                    cell = field.nextCell(cell % SIZE, cell / SIZE);
+                    if (cell >= 0) moved++;
+                }
+            }
+            double flowMs = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            long found = 0;
+            for (int i = 0; i < UNITS / 100; i++) {
+                Path path = Pathfinder.findPath(map, xs[i], ys[i], 0, 0, false, Pathfinder.UNLIMITED);
+                if (path != null) found += Math.min(MOVEMENT, path.length());
+            }
+            double searchMs = (System.nanoTime() - start) / 1e6 * 100;
+
+            System.out.printf("%d юнитов: поле потока %.2f мс расчёт + %.3f мс ходы (%d), A* на каждого (по выборке 1%%) ~%.1f мс (%d)%n",
+                    UNITS, buildMs, flowMs, moved, searchMs, found * 100);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package test.benchmark;
+
+import main.rating.Leaderboard;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.SplittableRandom;
+
+// Запуск игры с длинной историей партий: прежний проход по всему rating.csv
+// против открытия таблицы рекордов по индексу, стоимость записи одной партии
+// и запросов места и процентиля результата на карте.
+public class LeaderboardBenchmark {
+    private static final int PLAYERS = 200_000;
+    private static final int MAPS = 20;
+    private static final int QUERIES = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("rating");
+        Path csv = dir.resolve("rating.csv");
+        Path index = dir.resolve("rating.idx");
+        try {
+            for (int games : new int[]{100_000, 1_000_000}) {
+                SplittableRandom random = new SplittableRandom(games);
+                try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+                    writer.write(Leaderboard.HEADER + "\n");
+                    for (int game = 0; game < games; game++) {
+                        writer.write("Игрок" + random.nextInt(PLAYERS) + ";" + random.nextInt(1000)
+                                + ";Карта" + random.nextInt(MAPS) + "\n");
+                    }
+                }
+                Files.deleteIfExists(index);
+
+                long start = System.nanoTime();
+                int scanned = scanAll(csv);
+                long scanNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Leaderboard.open(csv, index); // Первый запуск: индекс строится по истории
+                long buildNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Leaderboard leaderboard = Leaderboard.open(csv, index);
+                long openNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < 1000; i++) {
+                    leaderboard.record("Игрок" + random.nextInt(PLAYERS), random.nextInt(1000), "Карта0");
+                }
+                long recordNanos = (System.nanoTime() - start) / 1000;
+
+                start = System.nanoTime();
+                leaderboard.topPlayers(10);
+                long topNanos = System.nanoTime() - start;
+
+                long checksum = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < QUERIES; i++) {
+                    String map = "Карта" + (i % MAPS);
+                    int points = random.nextInt(1000);
+                    checksum += leaderboard.rank(map, points) + (long) leaderboard.percentile(map, points);
+                }
+                long queryNanos = (System.nanoTime() - start) / QUERIES;
+
+                System.out.printf("партий %d, игроков %d: проход по CSV %.0f мс; построение индекса %.0f мс; "
+                                + "открытие по индексу (%d КБ) %.0f мс; запись партии %.1f мкс; топ-10 %.1f мкс; "
+                                + "место и процентиль на карте %.2f мкс (%d)%n",
+                        games, scanned, scanNanos / 1e6, buildNanos / 1e6, Files.size(index) / 1024,
+                        openNanos / 1e6, recordNanos / 1e3, topNanos / 1e3, queryNanos / 1e3, checksum % 10);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(index);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // Так рекорды считались при каждом запуске до индекса
+    private static int scanAll(Path csv) throws IOException {
+        Map<String, Integer> bestScores = new HashMap<>();
+        try (Scanner fileScanner = new Scanner(csv.toFile())) {
+            if (fileScanner.hasNextLine()) {
+                fileScanner.nextLine();
+            }
+            while (fileScanner.hasNextLine()) {
+                String[] parts = fileScanner.nextLine().split(";");
+                bestScores.merge(parts[0], Integer.parseInt(parts[1]), Math::max);
+            }
+        }
+        bestScores.entrySet().stream().sorted(Map.Entry.<String, Integer>comparingByValue().reversed()).count();
+        return bestScores.size();
+    }
+}
@@ -0,0 +1,47 @@
+package test.benchmark;
+
+import main.engine.ComputerInput;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.MctsInput;
+import main.map.GameMap;
+import main.util.GameRandom;
+
+// Масштабирование поиска Монте-Карло по ядрам: одни и те же позиции из симулированных партий
+// на карте 10x10, бюджет 1 с на позицию, число потоков от 1 до числа ядер — доигрываний в секунду.
+public class MctsBenchmark {
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            runWith(threads);
+        }
+        if (Integer.bitCount(cores) != 1) {
+            runWith(cores);
+        }
+    }
+
+    private static void runWith(int threads) {
+        long playouts = 0;
+        long nanos = 0;
+        try (MctsInput mcts = new MctsInput(1000, threads)) {
+            for (long seed = 1; seed <= 5; seed++) {
+                GameRandom random = new GameRandom(seed);
+                GameState state = GameState.newGame(new GameMap(GameMap.WIDTH, GameMap.HEIGHT, false, random),
+                        "Игрок", GameOutput.SILENT);
+                ComputerInput player = new ComputerInput(random.split(GameRandom.Stream.AI));
+                ComputerInput computer = new ComputerInput(random.split(GameRandom.Stream.AI));
+                while (!state.isOver() && state.getTurn() < 10) {
+                    state.playTurn(state.isPlayerTurn() ? player : computer);
+                }
+                if (state.isOver()) continue;
+
+                long start = System.nanoTime();
+                mcts.search(state, start + 1_000_000_000L);
+                nanos += System.nanoTime() - start;
+                playouts += mcts.getPlayouts();
+            }
+        }
+        System.out.printf("потоков %d: %d доигрываний, %.0f доигрываний/с%n",
+                threads, playouts, nanos == 0 ? 0 : playouts * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,67 @@
+package test.benchmark;
+
+import main.map.GameMap;
+import main.map.Pathfinder;
+
+import java.util.Random;
+
+// Горячий цикл стоимости хода на карте 512x512: чтение таблиц шагов getPlayerMoveStep/getCompMoveStep
+// против прежней цепочки проверок зон (isRoad, isCompZone, isPlayerZone), затем ходы юнитов через Pathfinder.
+public class MoveCostBenchmark {
+    private static final int SIZE = 512;
+
+    public static void main(String[] args) {
+        GameMap map = new GameMap(SIZE, SIZE, false);
+
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            long tables = 0;
+            for (int y = 0; y < SIZE; y++) {
+                for (int x = 0; x < SIZE; x++) {
+                    tables += map.getPlayerMoveStep(x, y) + map.getCompMoveStep(x, y);
+                }
+            }
+            double tablesNs = (System.nanoTime() - start) / (2.0 * SIZE * SIZE);
+
+            start = System.nanoTime();
+            long zones = 0;
+            for (int y = 0; y < SIZE; y++) {
+                for (int x = 0; x < SIZE; x++) {
+                    zones += zoneStep(map, x, y, true) + zoneStep(map, x, y, false);
+                }
+            }
+            double zonesNs = (System.nanoTime() - start) / (2.0 * SIZE * SIZE);
+
+            System.out.printf("шаг клетки: таблица %.2f нс, проверки зон %.2f нс (%d/%d)%n",
+                    tablesNs, zonesNs, tables, zones);
+        }
+
+        Random random = new Random(3);
+        for (int round = 0; round < 3; round++) {
+            int moves = 200_000;
+            long start = System.nanoTime();
+            long found = 0;
+            for (int i = 0; i < moves; i++) {
+                int sx = random.nextInt(SIZE);
+                int sy = random.nextInt(SIZE);
+                int tx = Math.min(SIZE - 1, Math.max(0, sx + random.nextInt(9) - 4));
+                int ty = Math.min(SIZE - 1, Math.max(0, sy + random.nextInt(9) - 4));
+                if (Pathfinder.findPath(map, sx, sy, tx, ty, i % 2 == 0, 8) != null) found++;
+            }
+            System.out.printf("ход юнита (<= 8 клеток): %.2f мкс (%d)%n",
+                    (System.nanoTime() - start) / 1000.0 / moves, found);
+        }
+    }
+
+    // Прежний способ: ветвления по зонам на каждый запрос
+    private static int zoneStep(GameMap map, int x, int y, boolean isPlayer) {
+        if (map.isRoad(x, y)) {
+            return 0;
+        } else if (map.isCompZone(x, y)) {
+            return isPlayer ? 10 : 5;
+        } else if (map.isPlayerZone(x, y)) {
+            return isPlayer ? 5 : 10;
+        }
+        return 1;
+    }
+}
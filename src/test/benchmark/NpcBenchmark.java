@@ -0,0 +1,73 @@
+package test.benchmark;
+
+import main.NpcPopulation;
+import main.buildings.Barbershop;
+import main.buildings.Cafe;
+import main.buildings.Hotel;
+import main.sim.EventScheduler;
+import main.util.GameRandom;
+
+import java.util.SplittableRandom;
+
+// Город из N жителей в виртуальных потоках: память кучи на одного NPC (сам NPC,
+// его поток и стек спящего потока), время запуска, попытки визитов и завершённые визиты в секунду.
+// Завершённые визиты упираются в число мест (5 номеров, 12 столиков, 2 кресла), попытки растут с N.
+// Затем тот же город событиями на модельных часах: сколько длится расчёт десяти минут жизни города.
+public class NpcBenchmark {
+    private static final long MEASURE_MILLIS = 5000;
+    private static final long SIMULATED_MILLIS = 600_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int count : new int[]{1_000, 10_000, 100_000}) {
+            Cafe cafe = new Cafe(new SplittableRandom(count));
+            Barbershop barbershop = new Barbershop(new SplittableRandom(count));
+            long before = usedMemory();
+
+            long start = System.nanoTime();
+            try (NpcPopulation population = new NpcPopulation(new Hotel(), cafe, barbershop)) {
+                population.spawn(count, new GameRandom(count));
+                long spawnNanos = System.nanoTime() - start;
+
+                Thread.sleep(1000); // Все жители уснули перед первым визитом
+                long perNpc = (usedMemory() - before) / count;
+
+                long attempts = population.getAttempts();
+                long visits = population.getVisits();
+                Thread.sleep(MEASURE_MILLIS);
+                double seconds = MEASURE_MILLIS / 1000.0;
+                System.out.printf("NPC %d: запуск %.0f мс; память %d байт на NPC; попыток %.0f/с; "
+                                + "завершённых визитов %.0f/с%n",
+                        count, spawnNanos / 1e6, perNpc,
+                        (population.getAttempts() - attempts) / seconds,
+                        (population.getVisits() - visits) / seconds);
+            }
+        }
+
+        for (int count : new int[]{1_000, 10_000, 100_000}) {
+            EventScheduler scheduler = new EventScheduler();
+            Cafe cafe = new Cafe(new SplittableRandom(count), scheduler::now);
+            Barbershop barbershop = new Barbershop(new SplittableRandom(count), scheduler::now);
+            NpcPopulation population = new NpcPopulation(new Hotel(scheduler::now), cafe, barbershop);
+            long before = usedMemory();
+            population.spawn(count, new GameRandom(count), scheduler);
+            long perNpc = (usedMemory() - before) / count;
+
+            long start = System.nanoTime();
+            long events = scheduler.runUntil(SIMULATED_MILLIS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("NPC %d на модельных часах: память %d байт на NPC; 10 минут города за %.0f мс "
+                            + "(%d событий, %.1f млн событий/с); попыток %d, завершённых визитов %d%n",
+                    count, perNpc, seconds * 1000, events, events / seconds / 1e6,
+                    population.getAttempts(), population.getVisits());
+        }
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
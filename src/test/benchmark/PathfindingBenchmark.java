@@ -0,0 +1,65 @@
+package test.benchmark;
+
+import main.map.GameMap;
+import main.map.Path;
+import main.map.Pathfinder;
+
+import java.util.Random;
+
+// Задержка Pathfinder.findPath на карте 512x512: короткие ходы юнитов (до 8 клеток)
+// и длинные маршруты между случайными точками. Затем — маршрут между замками на карте 2048x2048
+// через HierarchicalPathfinder в сравнении с поиском по всей карте.
+public class PathfindingBenchmark {
+    private static final int SIZE = 512;
+
+    public static void main(String[] args) {
+        GameMap map = new GameMap(SIZE, SIZE, false);
+        Random random = new Random(11);
+
+        for (int round = 0; round < 3; round++) {
+            measure("ход юнита (<= 8 клеток)", map, random, 200_000, 8);
+            measure("маршрут через карту", map, random, 200, Pathfinder.UNLIMITED);
+        }
+
+        GameMap large = new GameMap(2048, 2048, false);
+        int last = large.getWidth() - 1;
+        long start = System.nanoTime();
+        large.getHierarchicalPathfinder().findPath(0, 0, last, last, true);
+        System.out.printf("HPA*: первый запрос с построением кластеров %.2f мс%n", (System.nanoTime() - start) / 1e6);
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            Path hierarchical = large.getHierarchicalPathfinder().findPath(0, 0, last, last, true);
+            double hierarchicalMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            Path full = Pathfinder.findPath(large, 0, 0, last, last, true, Pathfinder.UNLIMITED);
+            double fullMs = (System.nanoTime() - start) / 1e6;
+            System.out.printf("замок -> замок 2048x2048: HPA* %.2f мс (%d клеток), A* %.2f мс (%d клеток)%n",
+                    hierarchicalMs, hierarchical == null ? 0 : hierarchical.length(),
+                    fullMs, full == null ? 0 : full.length());
+        }
+    }
+
+    private static void measure(String name, GameMap map, Random random, int queries, int maxLength) {
+        long found = 0;
+        long worst = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            int sx = random.nextInt(SIZE);
+            int sy = random.nextInt(SIZE);
+            int tx, ty;
+            if (maxLength == Pathfinder.UNLIMITED) {
+                tx = random.nextInt(SIZE);
+                ty = random.nextInt(SIZE);
+            } else {
+                tx = Math.min(SIZE - 1, Math.max(0, sx + random.nextInt(9) - 4));
+                ty = Math.min(SIZE - 1, Math.max(0, sy + random.nextInt(9) - 4));
+            }
+            long queryStart = System.nanoTime();
+            Path path = Pathfinder.findPath(map, sx, sy, tx, ty, true, maxLength);
+            worst = Math.max(worst, System.nanoTime() - queryStart);
+            if (path != null) found += path.length();
+        }
+        double avgUs = (System.nanoTime() - start) / 1000.0 / queries;
+        System.out.printf("%-28s среднее %8.2f мкс, худшее %8.2f мкс (%d)%n", name, avgUs, worst / 1000.0, found);
+    }
+}
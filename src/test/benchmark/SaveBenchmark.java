@@ -0,0 +1,66 @@
+package test.benchmark;
+
+import main.engine.Action;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.map.GameMap;
+import main.save.BinarySave;
+import main.save.CsvSave;
+import main.util.GameRandom;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Сохранение и загрузка партии в CSV и в двоичном формате на картах разного размера:
+// время записи и чтения (лучшее из нескольких повторов) и размер файла.
+public class SaveBenchmark {
+    private static final int REPEATS = 3;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("saves");
+        Path csv = dir.resolve("game.csv");
+        Path binary = dir.resolve("game.sav");
+        try {
+            for (int size : new int[]{10, 256, 1024, 4096}) {
+                GameRandom random = new GameRandom(size);
+                GameState state = GameState.newGame(new GameMap(size, size, false, random), "Игрок", GameOutput.SILENT);
+                state.getPlayerCastle().setGold(10_000);
+                for (String building : GameState.BUILDINGS) {
+                    state.getPlayerCastle().build(building);
+                }
+                for (int choice = 1; choice <= GameState.UNIT_CHOICES; choice++) {
+                    state.applyAction(new Action.Recruit(choice));
+                    state.applyAction(new Action.EndTurn());
+                    state.applyAction(new Action.EndTurn());
+                }
+
+                long csvWrite = Long.MAX_VALUE, csvRead = Long.MAX_VALUE;
+                long binaryWrite = Long.MAX_VALUE, binaryRead = Long.MAX_VALUE;
+                for (int i = 0; i < REPEATS; i++) {
+                    long start = System.nanoTime();
+                    CsvSave.write(state, csv);
+                    csvWrite = Math.min(csvWrite, System.nanoTime() - start);
+                    start = System.nanoTime();
+                    CsvSave.read(csv, new GameRandom(1), GameOutput.SILENT);
+                    csvRead = Math.min(csvRead, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    BinarySave.write(state, binary);
+                    binaryWrite = Math.min(binaryWrite, System.nanoTime() - start);
+                    start = System.nanoTime();
+                    BinarySave.read(binary, new GameRandom(1), GameOutput.SILENT);
+                    binaryRead = Math.min(binaryRead, System.nanoTime() - start);
+                }
+                System.out.printf("карта %dx%d: CSV %d байт, запись %.1f мс, чтение %.1f мс; "
+                                + "двоичный %d байт, запись %.1f мс, чтение %.1f мс%n",
+                        size, size, Files.size(csv), csvWrite / 1e6, csvRead / 1e6,
+                        Files.size(binary), binaryWrite / 1e6, binaryRead / 1e6);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(binary);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package test.benchmark;
+
+import main.engine.ComputerInput;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.SearchInput;
+import main.map.GameMap;
+import main.util.GameRandom;
+
+// Пропускная способность ИИ с перебором: позиции из симулированных партий на карте 10x10,
+// поиск с бюджетом 1 с — достигнутая глубина, число узлов и узлов в секунду.
+public class SearchBenchmark {
+    public static void main(String[] args) {
+        SearchInput search = new SearchInput(1000, 64, 64);
+        for (long seed = 1; seed <= 5; seed++) {
+            GameRandom random = new GameRandom(seed);
+            GameState state = GameState.newGame(new GameMap(GameMap.WIDTH, GameMap.HEIGHT, false, random),
+                    "Игрок", GameOutput.SILENT);
+            ComputerInput player = new ComputerInput(random.split(GameRandom.Stream.AI));
+            ComputerInput computer = new ComputerInput(random.split(GameRandom.Stream.AI));
+            while (!state.isOver() && state.getTurn() < 10) {
+                state.playTurn(state.isPlayerTurn() ? player : computer);
+            }
+            if (state.isOver()) continue;
+
+            search.search(state, System.nanoTime() + 1_000_000_000L);
+            System.out.printf("позиция %d (ход %d, юнитов %d): глубина %d, узлов %d, %.0f узлов/с%n",
+                    seed, state.getTurn(), state.getMap().getUnitCount(),
+                    search.getDepthReached(), search.getNodes(), search.getNodesPerSecond());
+        }
+    }
+}
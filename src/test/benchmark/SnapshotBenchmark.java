@@ -0,0 +1,47 @@
+package test.benchmark;
+
+import main.engine.Action;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.map.GameMap;
+import main.util.GameRandom;
+
+// Циклы «копия позиции + действие + выброс», как в переборе ИИ: на картах разного размера
+// с армией в несколько юнитов — сколько циклов в секунду.
+public class SnapshotBenchmark {
+    private static final int WARMUP_CYCLES = 2_000;
+
+    public static void main(String[] args) {
+        for (int size : new int[]{10, 128, 512, 2048}) {
+            GameRandom random = new GameRandom(size);
+            GameState state = GameState.newGame(new GameMap(size, size, false, random), "Игрок", GameOutput.SILENT);
+            state.getPlayerCastle().setGold(10_000);
+            for (String building : GameState.BUILDINGS) {
+                state.getPlayerCastle().build(building);
+            }
+            for (int choice = 1; choice <= GameState.UNIT_CHOICES; choice++) {
+                state.applyAction(new Action.Recruit(choice));
+                state.applyAction(new Action.EndTurn());
+                state.applyAction(new Action.EndTurn());
+            }
+            Action move = new Action.Move(0, 1, 0);
+            GameRandom searchRandom = new GameRandom(1);
+
+            for (int i = 0; i < WARMUP_CYCLES; i++) {
+                state.copy(GameOutput.SILENT, searchRandom).applyAction(move);
+            }
+            long cycles = 0;
+            long start = System.nanoTime();
+            long deadline = start + 1_000_000_000L;
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < 100; i++) {
+                    state.copy(GameOutput.SILENT, searchRandom).applyAction(move);
+                }
+                cycles += 100;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("карта %dx%d, юнитов %d: %.0f циклов копия+действие в секунду%n",
+                    size, size, state.getMap().getUnitCount(), cycles / seconds);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package test.benchmark;
+
+import main.buildings.Castle;
+import main.map.GameMap;
+import main.units.Spearman;
+import main.units.Unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Замер GameMap.getUnitAt при росте числа юнитов.
+// Для сравнения рядом печатается время старого линейного поиска по списку юнитов.
+public class UnitLookupBenchmark {
+    private static final int QUERIES = 1_000_000;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        Castle castle = new Castle("Игрок", 0, 0);
+
+        for (int count : new int[]{10, 100, 1_000, 10_000, 100_000}) {
+            GameMap map = new GameMap(true);
+            List<Unit> units = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Unit unit = new Spearman(random.nextInt(GameMap.WIDTH), random.nextInt(GameMap.HEIGHT), true, castle);
+                map.addUnit(unit);
+                units.add(unit);
+            }
+
+            int[] xs = new int[QUERIES];
+            int[] ys = new int[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                xs[i] = random.nextInt(GameMap.WIDTH);
+                ys[i] = random.nextInt(GameMap.HEIGHT);
+            }
+
+            // Прогрев
+            lookupIndexed(map, xs, ys);
+            lookupLinear(units, xs, ys, 10_000);
+
+            long start = System.nanoTime();
+            int found = lookupIndexed(map, xs, ys);
+            double indexedNs = (System.nanoTime() - start) / (double) QUERIES;
+
+            int linearQueries = Math.max(1_000, QUERIES / Math.max(1, count / 10));
+            start = System.nanoTime();
+            found += lookupLinear(units, xs, ys, linearQueries);
+            double linearNs = (System.nanoTime() - start) / (double) linearQueries;
+
+            System.out.printf("units=%7d  index: %8.1f ns/запрос  линейный поиск: %10.1f ns/запрос  (%d)%n",
+                    count, indexedNs, linearNs, found);
+        }
+    }
+
+    private static int lookupIndexed(GameMap map, int[] xs, int[] ys) {
+        int found = 0;
+        for (int i = 0; i < xs.length; i++) {
+            if (map.getUnitAt(xs[i], ys[i]) != null) found++;
+        }
+        return found;
+    }
+
+    private static int lookupLinear(List<Unit> units, int[] xs, int[] ys, int queries) {
+        int found = 0;
+        for (int i = 0; i < queries; i++) {
+            for (Unit unit : units) {
+                if (unit.getX() == xs[i] && unit.getY() == ys[i]) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+}
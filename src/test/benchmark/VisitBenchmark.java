@@ -0,0 +1,56 @@
+package test.benchmark;
+
+import main.buildings.Cafe;
+import main.buildings.Visit;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Визиты в кафе (вход и выход по токену) из пула платформенных потоков и из виртуальных потоков:
+// визитов в секунду и проверка, что после всех закрытий свободных мест снова ровно столько, сколько их есть.
+public class VisitBenchmark {
+    private static final long MEASURE_MILLIS = 3000;
+    private static final int MAX_SLOTS = 12;
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        run("пул из " + cores + " потоков", Executors.newFixedThreadPool(cores), cores);
+        run("виртуальные потоки, 10000 задач", Executors.newVirtualThreadPerTaskExecutor(), 10_000);
+    }
+
+    private static void run(String name, ExecutorService executor, int tasks) throws InterruptedException {
+        Cafe cafe = new Cafe(new SplittableRandom(1));
+        LongAdder visits = new LongAdder();
+        LongAdder attempts = new LongAdder();
+        long stopAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MEASURE_MILLIS);
+        for (int task = 0; task < tasks; task++) {
+            executor.execute(() -> {
+                long done = 0;
+                long tried = 0;
+                while (System.nanoTime() < stopAt) {
+                    for (int i = 0; i < 256; i++) {
+                        Visit visit = cafe.tryEnter(60_000);
+                        tried++;
+                        if (visit != null) {
+                            visit.close();
+                            visit.close(); // Повторное закрытие ничего не меняет
+                            done++;
+                        }
+                    }
+                    Thread.yield();
+                }
+                visits.add(done);
+                attempts.add(tried);
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        double seconds = MEASURE_MILLIS / 1000.0;
+        System.out.printf("%s: визитов %.2f млн/с, попыток %.2f млн/с; свободных мест после %d из %d%n",
+                name, visits.sum() / seconds / 1e6, attempts.sum() / seconds / 1e6,
+                cafe.getAvailableSlots(), MAX_SLOTS);
+    }
+}
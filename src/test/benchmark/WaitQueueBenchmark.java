@@ -0,0 +1,84 @@
+package test.benchmark;
+
+import main.buildings.Barbershop;
+import main.buildings.Visit;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Задержка от освобождения кресла до пробуждения ждущего: очередь здания (ждущий поток
+// спит на CompletableFuture.join или ждущий — продолжение thenAccept) против прежнего опроса раз в 500 мс.
+// Кресло освобождается сразу после того, как ждущий уснул, поэтому для опроса это худший случай (в среднем вдвое меньше).
+public class WaitQueueBenchmark {
+    private static final int SAMPLES = 5000;
+    private static final int POLL_SAMPLES = 10;
+
+    public static void main(String[] args) throws Exception {
+        print("очередь, поток на join()", measure(SAMPLES, false, false));
+        print("очередь, продолжение thenAccept", measure(SAMPLES, true, false));
+        print("прежний опрос раз в 500 мс", measure(POLL_SAMPLES, false, true));
+    }
+
+    // Оба кресла заняты; ждущий встаёт в очередь, затем одно кресло освобождается
+    private static long[] measure(int samples, boolean callback, boolean polling) throws Exception {
+        Barbershop barbershop = new Barbershop(new SplittableRandom(1), () -> 0); // Часы стоят: стрижки не истекают
+        Visit held = barbershop.tryEnter(true);
+        barbershop.tryEnter(true);
+        long[] latencies = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            AtomicLong wokeAt = new AtomicLong();
+            CountDownLatch woke = new CountDownLatch(1);
+            Visit[] admitted = new Visit[1];
+            Thread waiter = null;
+            if (polling) {
+                waiter = Thread.ofVirtual().start(() -> {
+                    while (barbershop.getAvailableSeats() == 0) {
+                        try {
+                            Thread.sleep(500);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    wokeAt.set(System.nanoTime());
+                    admitted[0] = barbershop.tryEnter(true);
+                    woke.countDown();
+                });
+            } else {
+                CompletableFuture<Visit> seat = barbershop.enter(true, 0);
+                if (callback) {
+                    seat.thenAccept(visit -> {
+                        wokeAt.set(System.nanoTime());
+                        admitted[0] = visit;
+                        woke.countDown();
+                    });
+                } else {
+                    waiter = Thread.ofVirtual().start(() -> {
+                        admitted[0] = seat.join();
+                        wokeAt.set(System.nanoTime());
+                        woke.countDown();
+                    });
+                }
+            }
+            while (waiter != null && waiter.getState() != Thread.State.WAITING
+                    && waiter.getState() != Thread.State.TIMED_WAITING) {
+                Thread.onSpinWait(); // Ждущий должен успеть уснуть
+            }
+            long releasedAt = System.nanoTime();
+            held.close();
+            woke.await();
+            latencies[i] = wokeAt.get() - releasedAt;
+            held = admitted[0];
+        }
+        return latencies;
+    }
+
+    private static void print(String name, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%s: медиана %.1f мкс, 99%% %.1f мкс, максимум %.1f мкс (%d замеров)%n", name,
+                latencies[latencies.length / 2] / 1e3, latencies[latencies.length * 99 / 100] / 1e3,
+                latencies[latencies.length - 1] / 1e3, latencies.length);
+    }
+}
@@ -0,0 +1,63 @@
+package test.benchmark;
+
+import main.map.GameMap;
+import main.map.Tile;
+
+import java.util.Random;
+
+// Сравнение битовой проверки GameMap.isWalkable с прежней строковой проверкой
+// (toString() клетки + поиск в строке символов юнитов).
+public class WalkabilityBenchmark {
+    private static final int QUERIES = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        GameMap map = new GameMap(512, 512, false);
+        Random random = new Random(7);
+        int[] xs = new int[QUERIES];
+        int[] ys = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            // Часть запросов выходит за границы карты, как у случайных ходов компьютера
+            xs[i] = random.nextInt(map.getWidth() + 8) - 4;
+            ys[i] = random.nextInt(map.getHeight() + 8) - 4;
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int bitset = countBitset(map, xs, ys);
+            double bitsetNs = (System.nanoTime() - start) / (double) QUERIES;
+
+            start = System.nanoTime();
+            int legacy = countLegacy(map, xs, ys);
+            double legacyNs = (System.nanoTime() - start) / (double) QUERIES;
+
+            System.out.printf("раунд %d: битовая маска %.2f ns/запрос, строковая проверка %.2f ns/запрос (%d / %d)%n",
+                    round + 1, bitsetNs, legacyNs, bitset, legacy);
+        }
+    }
+
+    private static int countBitset(GameMap map, int[] xs, int[] ys) {
+        int walkable = 0;
+        for (int i = 0; i < xs.length; i++) {
+            if (map.isWalkable(xs[i], ys[i])) walkable++;
+        }
+        return walkable;
+    }
+
+    // Прежняя реализация isWalkable
+    private static int countLegacy(GameMap map, int[] xs, int[] ys) {
+        int walkable = 0;
+        for (int i = 0; i < xs.length; i++) {
+            int x = xs[i];
+            int y = ys[i];
+            if (x >= 0 && x < map.getWidth() && y >= 0 && y < map.getHeight()) {
+                Tile tile = map.getTile(x, y);
+                String tileSymbol = tile.toString();
+                if (tile.getType() != Tile.Type.OBSTACLE && !"КкАаМмВвПпГг".contains(tileSymbol)) {
+                    walkable++;
+                }
+            }
+        }
+        return walkable;
+    }
+}
@@ -1,54 +1,71 @@
 package test.buildings;
 
 import main.buildings.Barbershop;
+import main.buildings.Visit;
 import org.junit.jupiter.api.Test;
 
-import java.lang.reflect.Field;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class BarbershopTest {
     private static final int MAX_HAIRDRESSERS = 2;
-    private final Barbershop barbershop = new Barbershop();
+    private final long[] now = {1000};
+    private final Barbershop barbershop = new Barbershop(new SplittableRandom(), () -> now[0]);
 
     @Test
     void testTryEnterWhenSeatsAvailable() {
-        assertTrue(barbershop.tryEnter());
+        assertNotNull(barbershop.tryEnter(false));
         assertEquals(MAX_HAIRDRESSERS - 1, barbershop.getAvailableSeats());
     }
 
     @Test
     void testTryEnterWhenFull() {
         occupyAllSeats();
-        assertFalse(barbershop.tryEnter());
+        assertNull(barbershop.tryEnter(true));
     }
 
     @Test
     void testStartServiceAddsEntry() throws Exception {
-        barbershop.tryEnter();
-        barbershop.startService(true);
+        barbershop.tryEnter(true);
 
-        ConcurrentHashMap<Long, Boolean> services = getActiveServices();
+        List<String> services = barbershop.getActiveServices();
         assertFalse(services.isEmpty());
-        assertTrue(services.containsValue(true));
+        assertTrue(services.contains("Модная стрижка"));
     }
 
     @Test
     void testEndServiceRemovesEntryAndReleasesSeat() throws Exception {
-        barbershop.tryEnter();
-        barbershop.startService(false);
+        Visit visit = barbershop.tryEnter(false);
 
-        barbershop.endService();
+        visit.close();
 
         assertEquals(MAX_HAIRDRESSERS, barbershop.getAvailableSeats());
-        assertTrue(getActiveServices().isEmpty());
+        assertTrue(barbershop.getActiveServices().isEmpty());
+    }
+
+    @Test
+    void testOverdueServiceFreesSeatOnce() {
+        Visit simple = barbershop.tryEnter(false);
+        Visit fashion = barbershop.tryEnter(true);
+        now[0] += 1000;
+
+        assertEquals(List.of("Модная стрижка"), barbershop.getActiveServices());
+        assertEquals(1, barbershop.getAvailableSeats());
+        simple.close();
+        assertEquals(1, barbershop.getAvailableSeats(), "Кресло простой стрижки уже вернулось");
+        fashion.close();
+        assertEquals(MAX_HAIRDRESSERS, barbershop.getAvailableSeats());
     }
 
     @Test
     void testGetAvailableSeats() {
         assertEquals(MAX_HAIRDRESSERS, barbershop.getAvailableSeats());
-        barbershop.tryEnter();
+        barbershop.tryEnter(false);
         assertEquals(MAX_HAIRDRESSERS - 1, barbershop.getAvailableSeats());
     }
 
@@ -60,21 +77,75 @@ class BarbershopTest {
         }
     }
 
-    // Helper methods
-    private void occupyAllSeats() {
-        for (int i = 0; i < MAX_HAIRDRESSERS; i++) {
-            barbershop.tryEnter();
-        }
+    @Test
+    void testWaitersGetSeatsInArrivalOrder() {
+        Visit first = barbershop.tryEnter(false);
+        barbershop.tryEnter(false);
+        CompletableFuture<Visit> early = barbershop.enter(true, 0);
+        CompletableFuture<Visit> late = barbershop.enter(false, 0);
+        assertFalse(early.isDone());
+        assertEquals(2, barbershop.getWaiting());
+
+        first.close();
+        assertTrue(early.isDone(), "Освободившееся кресло — первому в очереди");
+        assertFalse(late.isDone());
+        assertEquals(0, barbershop.getAvailableSeats(), "Кресло передано, а не возвращено");
+        assertNull(barbershop.tryEnter(false), "Мимо очереди не пройти");
+
+        early.join().close();
+        assertTrue(late.isDone());
+        assertEquals(0, barbershop.getWaiting());
+    }
+
+    @Test
+    void testExpiredServiceHandsSeatToWaiter() {
+        barbershop.tryEnter(false);
+        barbershop.tryEnter(true);
+        CompletableFuture<Visit> waiter = barbershop.enter(true, 0);
+        now[0] += 1000;
+
+        assertEquals(0, barbershop.getAvailableSeats());
+        assertTrue(waiter.isDone(), "Простая стрижка кончилась — кресло ждущему");
+        assertEquals(List.of("Модная стрижка", "Модная стрижка"), barbershop.getActiveServices());
+    }
+
+    @Test
+    void testCancelledWaiterLeavesQueue() {
+        Visit visit = barbershop.tryEnter(false);
+        barbershop.tryEnter(false);
+        CompletableFuture<Visit> cancelled = barbershop.enter(false, 0);
+        CompletableFuture<Visit> next = barbershop.enter(false, 0);
+
+        assertTrue(cancelled.cancel(false));
+        assertEquals(1, barbershop.getWaiting());
+        visit.close();
+        assertTrue(next.isDone(), "Кресло досталось следующему, а не отменённому");
+        assertEquals(0, barbershop.getWaiting());
     }
 
-    private ConcurrentHashMap<Long, Boolean> getActiveServices() throws Exception {
-        Field field = Barbershop.class.getDeclaredField("activeServices");
-        field.setAccessible(true);
-        return (ConcurrentHashMap<Long, Boolean>) field.get(barbershop);
+    @Test
+    void testWaitTimesOut() throws InterruptedException {
+        occupyAllSeats();
+        CompletableFuture<Visit> waiter = barbershop.enter(false, 20);
+
+        ExecutionException error = assertThrows(ExecutionException.class, waiter::get);
+        assertTrue(error.getCause() instanceof TimeoutException);
+        assertEquals(0, barbershop.getWaiting());
+        assertEquals(0, barbershop.getAvailableSeats());
     }
 
-    private void addTestService(boolean isFashion) throws Exception {
-        ConcurrentHashMap<Long, Boolean> services = getActiveServices();
-        services.put(Thread.currentThread().getId(), isFashion);
+    @Test
+    void testFreeSeatIsTakenWithoutWaiting() {
+        CompletableFuture<Visit> visit = barbershop.enter(false, 0);
+        assertTrue(visit.isDone());
+        visit.join().close();
+        assertEquals(MAX_HAIRDRESSERS, barbershop.getAvailableSeats());
+    }
+
+    // Helper methods
+    private void occupyAllSeats() {
+        for (int i = 0; i < MAX_HAIRDRESSERS; i++) {
+            barbershop.tryEnter(false);
+        }
     }
 }
@@ -1,38 +1,40 @@
 package test.buildings;
 
 import main.buildings.Cafe;
+import main.buildings.Visit;
 import org.junit.jupiter.api.Test;
 
-import java.lang.reflect.Field;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.SplittableRandom;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CafeTest {
     private static final int MAX_SLOTS = 12;
-    private final Cafe cafe = new Cafe();
+    private final long[] now = {1000};
+    private final Cafe cafe = new Cafe(new SplittableRandom(), () -> now[0]);
 
     @Test
     void testTryEnterWhenSlotsAvailable() {
-        assertTrue(cafe.tryEnter());
+        assertNotNull(cafe.tryEnter(1000));
         assertEquals(MAX_SLOTS - 1, cafe.getAvailableSlots());
     }
 
     @Test
     void testTryEnterWhenFull() {
         consumeAllSlots();
-        assertFalse(cafe.tryEnter());
+        assertNull(cafe.tryEnter(1000));
     }
 
     @Test
-    void testStartVisitAddsActiveEntry() throws Exception {
-        cafe.tryEnter();
+    void testStartVisitAddsActiveEntry() {
         long duration = 1000;
 
-        cafe.startVisit(duration);
+        cafe.tryEnter(duration);
         List<Long> durations = cafe.getActiveDurations();
 
         assertEquals(1, durations.size());
@@ -40,30 +42,31 @@ class CafeTest {
     }
 
     @Test
-    void testEndVisitReleasesSlotAndRemovesEntry() throws Exception {
-        cafe.tryEnter();
-        cafe.startVisit(1000);
-
-        cafe.endVisit();
+    void testEndVisitReleasesSlotAndRemovesEntry() {
+        cafe.tryEnter(1000).close();
 
         assertEquals(MAX_SLOTS, cafe.getAvailableSlots());
-        assertTrue(getActiveVisits().isEmpty());
+        assertTrue(cafe.getActiveDurations().isEmpty());
     }
 
     @Test
-    void testGetActiveDurationsFiltersExpired() throws Exception {
-        cafe.tryEnter();
-        addExpiredVisit();
+    void testGetActiveDurationsFiltersExpired() {
+        Visit visit = cafe.tryEnter(1000);
+        now[0] += 1000;
 
         List<Long> durations = cafe.getActiveDurations();
 
         assertTrue(durations.isEmpty());
+        assertEquals(MAX_SLOTS, cafe.getAvailableSlots(), "Просроченный визит вернул место");
+        assertFalse(visit.isActive());
+        visit.close();
+        assertEquals(MAX_SLOTS, cafe.getAvailableSlots(), "close() просроченного визита не вернул место второй раз");
     }
 
     @Test
     void testGetAvailableSlots() {
         assertEquals(MAX_SLOTS, cafe.getAvailableSlots());
-        cafe.tryEnter();
+        cafe.tryEnter(1000);
         assertEquals(MAX_SLOTS - 1, cafe.getAvailableSlots());
     }
 
@@ -77,19 +80,7 @@ class CafeTest {
 
     private void consumeAllSlots() {
         for (int i = 0; i < MAX_SLOTS; i++) {
-            cafe.tryEnter();
+            cafe.tryEnter(1000);
         }
     }
-
-    private ConcurrentHashMap<Long, Long> getActiveVisits() throws Exception {
-        Field field = Cafe.class.getDeclaredField("activeVisits");
-        field.setAccessible(true);
-        return (ConcurrentHashMap<Long, Long>) field.get(cafe);
-    }
-
-    private void addExpiredVisit() throws Exception {
-        ConcurrentHashMap<Long, Long> visits = getActiveVisits();
-        long threadId = Thread.currentThread().getId();
-        visits.put(threadId, System.currentTimeMillis() - 1000);
-    }
 }
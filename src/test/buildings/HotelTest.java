@@ -1,22 +1,25 @@
 package test.buildings;
 
 import main.buildings.Hotel;
+import main.buildings.Visit;
 import org.junit.jupiter.api.Test;
 
-import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class HotelTest {
     private static final int MAX_ROOMS = 5;
-    private final Hotel hotel = new Hotel();
+    private final long[] now = {1000};
+    private final Hotel hotel = new Hotel(() -> now[0]);
 
     @Test
     void testTryEnterWhenRoomsAvailable() {
-        assertTrue(hotel.tryEnter());
+        assertNotNull(hotel.tryEnter(100));
         assertEquals(MAX_ROOMS - 1, hotel.getAvailableRooms());
     }
 
@@ -24,23 +27,22 @@ class HotelTest {
     void testTryEnterWhenFull() throws InterruptedException {
         // Occupy all rooms
         for (int i = 0; i < MAX_ROOMS; i++) {
-            assertTrue(hotel.tryEnter());
+            assertNotNull(hotel.tryEnter(100));
         }
-        assertFalse(hotel.tryEnter());
+        assertNull(hotel.tryEnter(100));
     }
 
     @Test
     void testLeaveReleasesRoom() {
-        hotel.tryEnter();
-        hotel.leave();
+        hotel.tryEnter(100).close();
         assertEquals(MAX_ROOMS, hotel.getAvailableRooms());
     }
 
     @Test
-    void testGetRemainingTimesRemovesExpiredAndReleasesPermits() throws Exception {
-        // Acquire room and add expired visit
-        hotel.tryEnter();
-        addExpiredVisit();
+    void testGetRemainingTimesRemovesExpiredAndReleasesPermits() {
+        // Acquire room and let the visit expire
+        hotel.tryEnter(1000);
+        now[0] += 1000;
 
         List<Long> times = hotel.getRemainingTimes();
 
@@ -50,9 +52,8 @@ class HotelTest {
 
     @Test
     void testGetRemainingTimesReturnsCorrectDurations() {
-        hotel.tryEnter();
         long duration = 1000;
-        hotel.addVisitDuration(duration);
+        hotel.tryEnter(duration);
 
         List<Long> times = hotel.getRemainingTimes();
 
@@ -62,22 +63,58 @@ class HotelTest {
     }
 
     @Test
-    void testGetAvailableRooms() {
+    void testLeaveAfterExpiryDoesNotReleaseTwice() {
+        Visit visit = hotel.tryEnter(100);
+        now[0] += 100;
+
+        assertEquals(MAX_ROOMS, hotel.getAvailableRooms(), "Просроченный визит вернул номер");
+        assertFalse(visit.isActive());
+        visit.close();
+        visit.close();
         assertEquals(MAX_ROOMS, hotel.getAvailableRooms());
-        hotel.tryEnter();
-        assertEquals(MAX_ROOMS - 1, hotel.getAvailableRooms());
+        assertTrue(hotel.getRemainingTimes().isEmpty());
+    }
+
+    @Test
+    void testRemainingTimesFollowClock() {
+        for (long duration : new long[]{100, 300, 5000}) {
+            hotel.tryEnter(duration);
+        }
+        now[0] += 200;
+        assertEquals(List.of(100L, 4800L), hotel.getRemainingTimes().stream().sorted().toList());
+        assertEquals(MAX_ROOMS - 2, hotel.getAvailableRooms());
     }
 
-    // Helper methods
-    private Map<Long, Long> getActiveVisits() throws Exception {
-        Field field = Hotel.class.getDeclaredField("activeVisits");
-        field.setAccessible(true);
-        return (ConcurrentHashMap<Long, Long>) field.get(hotel);
+    @Test
+    void testVisitsClosedFromOtherThreadsNeverInflateRooms() throws Exception {
+        Hotel realHotel = new Hotel();
+        try (ExecutorService pool = Executors.newFixedThreadPool(4)) {
+            for (int round = 0; round < 2000; round++) {
+                List<Visit> visits = new ArrayList<>();
+                for (int i = 0; i < MAX_ROOMS; i++) {
+                    Visit visit = realHotel.tryEnter(1 + round % 3);
+                    assertNotNull(visit);
+                    visits.add(visit);
+                }
+                // Каждый визит закрывают дважды из разных потоков, пока колесо может его же и просрочить
+                List<Future<?>> closes = new ArrayList<>();
+                for (Visit visit : visits) {
+                    closes.add(pool.submit(visit::close));
+                    closes.add(pool.submit(visit::close));
+                }
+                realHotel.getRemainingTimes();
+                for (Future<?> close : closes) {
+                    close.get();
+                }
+                assertEquals(MAX_ROOMS, realHotel.getAvailableRooms());
+            }
+        }
     }
 
-    private void addExpiredVisit() throws Exception {
-        Map<Long, Long> visits = getActiveVisits();
-        long threadId = Thread.currentThread().getId();
-        visits.put(threadId, System.currentTimeMillis() - 1000);
+    @Test
+    void testGetAvailableRooms() {
+        assertEquals(MAX_ROOMS, hotel.getAvailableRooms());
+        hotel.tryEnter(100);
+        assertEquals(MAX_ROOMS - 1, hotel.getAvailableRooms());
     }
 }
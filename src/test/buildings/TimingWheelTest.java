@@ -0,0 +1,99 @@
+package test.buildings;
+
+import main.buildings.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void timersExpireExactlyOnceWhenTheirTimeComes() {
+        List<String> expired = new ArrayList<>();
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        wheel.schedule("отель", 300);
+        wheel.schedule("стрижка", 3000);
+        wheel.schedule("кафе", 180_000);
+
+        expired.addAll(wheel.advance(299));
+        assertTrue(expired.isEmpty());
+        expired.addAll(wheel.advance(300));
+        assertEquals(List.of("отель"), expired);
+        expired.addAll(wheel.advance(179_999));
+        assertEquals(List.of("отель", "стрижка"), expired);
+        expired.addAll(wheel.advance(10_000_000));
+        assertEquals(List.of("отель", "стрижка", "кафе"), expired);
+        expired.addAll(wheel.advance(20_000_000));
+        assertEquals(3, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimerNeverExpires() {
+        List<Integer> expired = new ArrayList<>();
+        TimingWheel<Integer> wheel = new TimingWheel<>(1000);
+        TimingWheel.Timer<Integer> timer = wheel.schedule(1, 5000);
+
+        assertTrue(wheel.cancel(timer));
+        assertFalse(wheel.cancel(timer), "Второй раз снять нельзя");
+        expired.addAll(wheel.advance(10_000));
+        assertTrue(expired.isEmpty());
+
+        TimingWheel.Timer<Integer> late = wheel.schedule(2, 10_001);
+        expired.addAll(wheel.advance(10_001));
+        assertEquals(List.of(2), expired);
+        assertFalse(wheel.cancel(late), "Истёкший таймер уже не снять");
+    }
+
+    @Test
+    void pastDeadlineIsNotScheduled() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(500);
+        TimingWheel.Timer<Integer> timer = wheel.schedule(1, 500);
+        assertFalse(timer.isActive());
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advance(1000).isEmpty());
+    }
+
+    @Test
+    void matchesNaiveScanOnRandomWorkload() {
+        SplittableRandom random = new SplittableRandom(5);
+        long start = System.currentTimeMillis();
+        Map<Integer, Long> expected = new HashMap<>(); // Живые таймеры и их сроки
+        List<Integer> expired = new ArrayList<>();
+        TimingWheel<Integer> wheel = new TimingWheel<>(start);
+        Map<Integer, TimingWheel.Timer<Integer>> timers = new HashMap<>();
+        long now = start;
+
+        for (int id = 0; id < 20_000; id++) {
+            long deadline = now + 1 + random.nextLong(random.nextBoolean() ? 400 : 400_000);
+            timers.put(id, wheel.schedule(id, deadline));
+            expected.put(id, deadline);
+            if (random.nextInt(4) == 0) {
+                int victim = random.nextInt(id + 1);
+                boolean live = expected.remove(victim) != null;
+                assertEquals(live, wheel.cancel(timers.get(victim)));
+            }
+            if (random.nextInt(3) == 0) {
+                now += random.nextInt(random.nextInt(50) == 0 ? 1_000_000 : 200);
+                expired.addAll(wheel.advance(now));
+                for (int done : expired) {
+                    assertTrue(expected.get(done) <= now, "Истёк раньше срока");
+                    expected.remove(done);
+                }
+                expired.clear();
+                long limit = now;
+                assertTrue(expected.values().stream().allMatch(due -> due > limit), "Просрочен и не истёк");
+                assertEquals(expected.size(), wheel.size());
+            }
+        }
+        List<Long> live = new ArrayList<>();
+        wheel.forEach(timer -> live.add(timer.getDeadline()));
+        assertEquals(expected.values().stream().sorted().toList(), live.stream().sorted().toList());
+    }
+}
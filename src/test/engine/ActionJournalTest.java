@@ -0,0 +1,220 @@
+package test.engine;
+
+import main.buildings.Castle;
+import main.engine.Action;
+import main.engine.ActionJournal;
+import main.engine.ComputerInput;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.Zobrist;
+import main.map.GameMap;
+import main.units.Hero;
+import main.units.Spearman;
+import main.units.Unit;
+import main.util.GameRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionJournalTest {
+
+    private GameMap map;
+    private Castle player;
+    private Castle computer;
+    private GameState state;
+    private ActionJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        map = new GameMap(GameMap.WIDTH, GameMap.HEIGHT, true, new GameRandom(1));
+        player = new Castle("Игрок", 0, 0);
+        computer = new Castle("Компьютер", 9, 9);
+        state = new GameState(map, player, computer, GameOutput.SILENT);
+        journal = ActionJournal.attach(state, 100);
+    }
+
+    private Unit place(Castle castle, Unit unit) {
+        castle.getUnits().add(unit);
+        map.addUnit(unit);
+        return unit;
+    }
+
+    @Test
+    void undoMoveRestoresPositionStepsAndGoldAndRedoKeepsLoot() {
+        Unit hero = place(player, new Hero(3, 3, true, player));
+        long hash = state.getHash();
+        int gold = player.getGold();
+
+        assertTrue(state.applyAction(new Action.Move(0, 3, 5)));
+        int goldAfter = player.getGold();
+        int stepsAfter = player.getSteps();
+        assertTrue(journal.undo());
+
+        assertEquals(3, hero.getY());
+        assertEquals(gold, player.getGold());
+        assertEquals(10, player.getSteps());
+        assertFalse(state.hasMoved(hero));
+        assertTrue(map.isWalkable(3, 5));
+        assertSame(hero, map.getUnitAt(3, 3));
+        assertEquals(hash, state.getHash());
+
+        assertTrue(journal.redo());
+        assertEquals(5, hero.getY());
+        assertEquals(goldAfter, player.getGold()); // Найденное героем золото то же, кости не бросаются заново
+        assertEquals(stepsAfter, player.getSteps());
+        assertTrue(state.hasMoved(hero));
+        assertEquals(Zobrist.hash(state), state.getHash());
+    }
+
+    @Test
+    void undoKillingBlowRevivesTargetInItsPlace() {
+        place(player, new Hero(3, 3, true, player));
+        place(computer, new Spearman(5, 5, false, computer));
+        Unit target = place(computer, new Spearman(4, 3, false, computer));
+        target.setHp(10);
+        long hash = state.getHash();
+        int points = player.getPoints();
+
+        assertTrue(state.applyAction(new Action.Attack(0, 4, 3)));
+        assertFalse(computer.getUnits().contains(target));
+        journal.undo();
+
+        assertEquals(1, computer.getUnits().indexOf(target));
+        assertSame(target, map.getUnitAt(4, 3));
+        assertEquals(10, target.getHp());
+        assertEquals(points, player.getPoints());
+        assertEquals(hash, state.getHash());
+        assertEquals(Zobrist.hash(state), state.getHash());
+    }
+
+    @Test
+    void undoRecruitAndBuildRemovesThem() {
+        place(player, new Spearman(3, 3, true, player));
+        long hash = state.getHash();
+
+        assertTrue(state.applyAction(new Action.Build("Таверна")));
+        assertTrue(state.applyAction(new Action.Recruit(6)));
+        Unit recruit = player.getUnits().getLast();
+        journal.undo();
+        journal.undo();
+
+        assertEquals(1, player.getUnits().size());
+        assertFalse(map.containsUnit(recruit));
+        assertFalse(player.getBuildings().contains("Таверна"));
+        assertEquals(100, player.getGold());
+        assertFalse(state.hasRecruited());
+        assertFalse(state.hasBuilt());
+        assertEquals(hash, state.getHash());
+
+        journal.redo();
+        journal.redo();
+        assertTrue(player.getBuildings().contains("Таверна"));
+        assertSame(recruit, player.getUnits().getLast());
+        assertTrue(map.containsUnit(recruit));
+        assertEquals(Zobrist.hash(state), state.getHash());
+    }
+
+    @Test
+    void undoAndRedoKeepTavernGold() {
+        int gold = player.getGold();
+
+        assertTrue(state.applyAction(new Action.AddGold(40)));
+        assertFalse(state.applyAction(new Action.AddGold(-(gold + 41)))); // В долг не играют
+        assertTrue(state.applyAction(new Action.AddGold(-15)));
+        assertEquals(gold + 25, player.getGold());
+
+        journal.undo();
+        assertEquals(gold + 40, player.getGold());
+        journal.undo();
+        assertEquals(gold, player.getGold());
+        journal.redo();
+        journal.redo();
+        assertEquals(gold + 25, player.getGold());
+    }
+
+    @Test
+    void undoTownBonusesRestoresHealthMovementAndCaptureReduction() {
+        Unit hero = place(player, new Hero(3, 3, true, player));
+        Unit spearman = place(player, new Spearman(4, 4, true, player));
+        int heroHp = hero.getHp();
+        int movement = spearman.getMovement();
+        long hash = state.getHash();
+
+        assertTrue(state.applyAction(new Action.Heal(2)));
+        assertTrue(state.applyAction(new Action.AddMovement(3)));
+        assertTrue(state.applyAction(new Action.CaptureReduction(true)));
+        assertEquals(heroHp + 2, hero.getHp());
+        assertEquals(movement + 3, spearman.getMovement());
+        assertTrue(player.isCaptureTimeReduced());
+        assertEquals(Zobrist.hash(state), state.getHash());
+
+        journal.undo();
+        journal.undo();
+        journal.undo();
+        assertEquals(heroHp, hero.getHp());
+        assertEquals(movement, spearman.getMovement());
+        assertFalse(player.isCaptureTimeReduced());
+        assertEquals(hash, state.getHash());
+
+        journal.redo();
+        journal.redo();
+        journal.redo();
+        assertEquals(heroHp + 2, hero.getHp());
+        assertEquals(movement + 3, spearman.getMovement());
+        assertTrue(player.isCaptureTimeReduced());
+    }
+
+    @Test
+    void newActionDiscardsRedo() {
+        place(player, new Spearman(3, 3, true, player));
+        state.applyAction(new Action.Move(0, 3, 4));
+        journal.undo();
+
+        state.applyAction(new Action.Move(0, 4, 3));
+
+        assertFalse(journal.canRedo());
+        assertEquals(4, player.getUnits().getFirst().getX());
+    }
+
+    @Test
+    void rewindAndReplayWholeGame() {
+        GameRandom random = new GameRandom(5);
+        GameState game = GameState.newGame(new GameMap(GameMap.WIDTH, GameMap.HEIGHT, false, random),
+                "Игрок", GameOutput.SILENT);
+        ActionJournal gameJournal = ActionJournal.attach(game, 100_000);
+        long startHash = game.getHash();
+        game.play(new ComputerInput(random.split(GameRandom.Stream.AI)),
+                new ComputerInput(random.split(GameRandom.Stream.AI)), 60);
+        long endHash = game.getHash();
+        int endTurn = game.getTurn();
+
+        assertTrue(gameJournal.rewindTo(0));
+        assertEquals(startHash, game.getHash());
+        assertEquals(0, game.getTurn());
+        assertTrue(game.isPlayerTurn());
+        assertEquals(Zobrist.hash(game), game.getHash());
+
+        gameJournal.replayTo(endTurn + 1);
+        assertEquals(endHash, game.getHash());
+        assertEquals(endTurn, game.getTurn());
+        assertEquals(Zobrist.hash(game), game.getHash());
+    }
+
+    @Test
+    void depthBoundsHistory() {
+        ActionJournal small = ActionJournal.attach(state, 3);
+        place(player, new Spearman(3, 3, true, player));
+        place(computer, new Spearman(6, 6, false, computer));
+        for (int i = 0; i < 5; i++) {
+            state.applyAction(new Action.EndTurn());
+        }
+
+        assertEquals(3, small.size());
+        assertFalse(small.canRewindTo(1));
+        assertTrue(small.canRewindTo(2));
+        assertTrue(small.rewindTo(2));
+        assertEquals(2, state.getTurn());
+        assertFalse(small.undo());
+    }
+}
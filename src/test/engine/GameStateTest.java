@@ -0,0 +1,139 @@
+package test.engine;
+
+import main.buildings.Castle;
+import main.engine.Action;
+import main.engine.ComputerInput;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.map.GameMap;
+import main.units.Hero;
+import main.units.Spearman;
+import main.units.Unit;
+import main.util.GameRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStateTest {
+
+    private GameMap map;
+    private GameState state;
+    private final List<String> messages = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        map = new GameMap(GameMap.WIDTH, GameMap.HEIGHT, true, new GameRandom(1));
+        state = GameState.newGame(map, "Игрок", messages::add);
+    }
+
+    @Test
+    void newGameStartsWithSpearmanOnEachSide() {
+        assertTrue(state.isPlayerTurn());
+        assertEquals(1, state.getPlayerCastle().getUnits().size());
+        assertEquals(1, state.getComputerCastle().getUnits().size());
+        assertEquals(GameMap.WIDTH - 1, state.getComputerCastle().getX());
+        assertEquals(2, map.getUnitCount());
+    }
+
+    @Test
+    void messagesGoToOutputPort() {
+        messages.clear();
+        state.applyAction(new Action.Move(0, 5, 5)); // Слишком далеко для копейщика
+
+        assertFalse(messages.isEmpty());
+        assertTrue(messages.getFirst().startsWith("Слишком далеко"));
+    }
+
+    @Test
+    void unitMovesOncePerTurn() {
+        assertTrue(state.applyAction(new Action.Move(0, 1, 0)));
+        assertFalse(state.applyAction(new Action.Move(0, 2, 0)));
+
+        Unit spearman = state.getPlayerCastle().getUnits().getFirst();
+        assertEquals(1, spearman.getX());
+        assertTrue(state.hasMoved(spearman));
+    }
+
+    @Test
+    void endTurnPassesMoveAndResetsSteps() {
+        state.applyAction(new Action.EndTurn());
+
+        assertFalse(state.isPlayerTurn());
+        assertEquals(1, state.getTurn());
+        assertSame(state.getComputerCastle(), state.getCurrentCastle());
+        assertEquals(10, state.getComputerCastle().getSteps());
+        // Действия теперь относятся к юнитам компьютера
+        assertTrue(state.applyAction(new Action.Move(0, GameMap.WIDTH - 2, GameMap.HEIGHT - 1)));
+    }
+
+    @Test
+    void recruitAndBuildOncePerTurn() {
+        assertTrue(state.applyAction(new Action.Recruit(1)));
+        assertFalse(state.applyAction(new Action.Recruit(1)));
+        assertEquals(2, state.getPlayerCastle().getUnits().size());
+
+        assertTrue(state.applyAction(new Action.Build("Таверна")));
+        assertFalse(state.applyAction(new Action.Build("Конюшня")));
+        assertTrue(state.getPlayerCastle().getBuildings().contains("Таверна"));
+    }
+
+    @Test
+    void invalidActionsAreRejected() {
+        assertFalse(state.applyAction(new Action.Move(5, 1, 0)));
+        assertFalse(state.applyAction(new Action.Recruit(7)));
+        assertFalse(state.applyAction(new Action.Build("Замок")));
+    }
+
+    @Test
+    void heroAtEnemyCastleWinsAfterTurn() {
+        Castle player = state.getPlayerCastle();
+        Castle computer = state.getComputerCastle();
+        computer.getUnits().clear(); // Замок свободен
+        Hero hero = new Hero(computer.getX(), computer.getY(), true, player);
+        player.getUnits().add(hero);
+
+        state.applyAction(new Action.EndTurn());
+
+        assertTrue(state.isOver());
+        assertEquals(GameState.Winner.PLAYER, state.getWinner());
+        assertFalse(state.applyAction(new Action.EndTurn()));
+    }
+
+    @Test
+    void heroStepsOntoGuardedEnemyCastle() {
+        Castle player = state.getPlayerCastle();
+        Castle computer = state.getComputerCastle();
+        Unit guard = computer.getUnits().getFirst(); // Копейщик нанят прямо в замке
+        Hero hero = new Hero(computer.getX() - 1, computer.getY(), true, player);
+        player.getUnits().add(hero);
+        map.addUnit(hero);
+        Unit sentry = new Spearman(computer.getX() - 1, computer.getY() - 1, false, computer);
+        computer.getUnits().add(sentry);
+        map.addUnit(sentry);
+
+        // Клетка с вражеским юнитом вне замка по-прежнему закрыта
+        assertFalse(state.applyAction(new Action.Move(1, sentry.getX(), sentry.getY())));
+        assertTrue(state.applyAction(new Action.Move(1, computer.getX(), computer.getY())));
+        assertEquals(computer.getX(), hero.getX());
+        assertSame(guard, map.getUnitAt(computer.getX(), computer.getY()));
+
+        state.applyAction(new Action.EndTurn());
+        assertEquals(GameState.Winner.PLAYER, state.getWinner());
+    }
+
+    @Test
+    void computerVsComputerGameRunsHeadless() {
+        GameRandom random = new GameRandom(5);
+        GameState game = GameState.newGame(new GameMap(GameMap.WIDTH, GameMap.HEIGHT, false, random),
+                "Компьютер 1", GameOutput.SILENT);
+
+        game.play(new ComputerInput(random.split(GameRandom.Stream.AI)),
+                new ComputerInput(random.split(GameRandom.Stream.AI)), 200);
+
+        assertTrue(game.isOver() || game.getTurn() == 200);
+    }
+}
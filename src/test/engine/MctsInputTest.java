@@ -0,0 +1,96 @@
+package test.engine;
+
+import main.buildings.Castle;
+import main.engine.Action;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.MctsInput;
+import main.engine.Zobrist;
+import main.map.GameMap;
+import main.units.Hero;
+import main.units.Spearman;
+import main.units.Unit;
+import main.util.GameRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MctsInputTest {
+
+    private GameMap map;
+    private Castle player;
+    private Castle computer;
+    private GameState state;
+
+    @BeforeEach
+    void setUp() {
+        map = new GameMap(GameMap.WIDTH, GameMap.HEIGHT, true, new GameRandom(1));
+        player = new Castle("Игрок", 0, 0);
+        computer = new Castle("Компьютер", 9, 9);
+        state = new GameState(map, player, computer, GameOutput.SILENT);
+    }
+
+    private void place(Castle castle, Unit unit) {
+        castle.getUnits().add(unit);
+        map.addUnit(unit);
+    }
+
+    @Test
+    void heroWalksIntoEnemyCastle() {
+        place(player, new Hero(9, 8, true, player)); // Клетка зоны компьютера стоит игроку все 10 шагов
+        place(computer, new Spearman(5, 5, false, computer));
+
+        try (MctsInput input = new MctsInput(1000, 2)) {
+            Action action = input.search(state, System.nanoTime() + 1_000_000_000L);
+
+            assertEquals(new Action.Move(0, 9, 9), action);
+        }
+    }
+
+    @Test
+    void endsTurnWithoutPlayoutsWhenNothingElseIsPossible() {
+        place(player, new Hero(3, 3, true, player));
+        place(computer, new Spearman(6, 6, false, computer));
+        state.applyAction(new Action.Move(0, 3, 4));
+        player.setGold(0); // Герой мог найти золото по дороге
+        try (MctsInput input = new MctsInput(100, 2)) {
+            Action action = input.search(state, System.nanoTime() + 100_000_000L);
+
+            assertEquals(new Action.EndTurn(), action);
+            assertEquals(0, input.getPlayouts());
+        }
+    }
+
+    @Test
+    void reportsPlayoutsPerTurn() {
+        GameState game = GameState.newGame(new GameMap(GameMap.WIDTH, GameMap.HEIGHT, false, new GameRandom(3)),
+                "Игрок", GameOutput.SILENT);
+        List<String> messages = new ArrayList<>();
+        GameState reported = game.copy(messages::add, new GameRandom(4));
+        try (MctsInput input = new MctsInput(100, 2)) {
+            reported.playTurn(input);
+        }
+
+        assertTrue(messages.stream().anyMatch(m -> m.startsWith("ИИ: за ход ") && m.endsWith("потоков 2")));
+    }
+
+    @Test
+    void searchLeavesRealStateUntouched() {
+        place(player, new Hero(3, 3, true, player));
+        place(computer, new Spearman(6, 6, false, computer));
+        long before = Zobrist.hash(state);
+
+        try (MctsInput input = new MctsInput(100, 2)) {
+            input.nextAction(state);
+
+            assertEquals(before, Zobrist.hash(state));
+            assertEquals(3, player.getUnits().getFirst().getX());
+            assertTrue(input.getPlayouts() > 0);
+            assertTrue(input.getPlayoutsPerSecond() > 0);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package test.engine;
+
+import main.buildings.Castle;
+import main.engine.Action;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.SearchInput;
+import main.engine.Zobrist;
+import main.map.GameMap;
+import main.units.Hero;
+import main.units.Spearman;
+import main.util.GameRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchInputTest {
+
+    private GameMap map;
+    private Castle player;
+    private Castle computer;
+    private GameState state;
+
+    @BeforeEach
+    void setUp() {
+        map = new GameMap(GameMap.WIDTH, GameMap.HEIGHT, true, new GameRandom(1));
+        player = new Castle("Игрок", 0, 0);
+        computer = new Castle("Компьютер", 9, 9);
+        state = new GameState(map, player, computer, GameOutput.SILENT);
+    }
+
+    private void place(Castle castle, main.units.Unit unit) {
+        castle.getUnits().add(unit);
+        map.addUnit(unit);
+    }
+
+    @Test
+    void heroWalksIntoEnemyCastle() {
+        place(player, new Hero(9, 8, true, player)); // Клетка зоны компьютера стоит игроку все 10 шагов
+        place(computer, new Spearman(5, 5, false, computer));
+
+        Action action = new SearchInput(2000, 4, 1).search(state, System.nanoTime() + 2_000_000_000L);
+
+        assertEquals(new Action.Move(0, 9, 9), action);
+    }
+
+    @Test
+    void finishesLastEnemyUnit() {
+        place(player, new Hero(3, 3, true, player));
+        Spearman enemy = new Spearman(4, 3, false, computer);
+        place(computer, enemy);
+        enemy.hp = 10; // Герой добивает одним ударом
+
+        Action action = new SearchInput(2000, 4, 1).search(state, System.nanoTime() + 2_000_000_000L);
+
+        assertEquals(new Action.Attack(0, 4, 3), action);
+    }
+
+    @Test
+    void reportsDepthAndNodes() {
+        GameState game = GameState.newGame(new GameMap(GameMap.WIDTH, GameMap.HEIGHT, false, new GameRandom(3)),
+                "Игрок", GameOutput.SILENT);
+        SearchInput input = new SearchInput(50, 64, 1);
+
+        Action action = input.nextAction(game);
+
+        assertNotNull(action);
+        assertTrue(input.getDepthReached() >= 1);
+        assertTrue(input.getNodes() > 0);
+        assertTrue(input.getNodesPerSecond() > 0);
+    }
+
+    @Test
+    void searchLeavesRealStateUntouched() {
+        place(player, new Hero(3, 3, true, player));
+        place(computer, new Spearman(6, 6, false, computer));
+        long before = Zobrist.hash(state);
+
+        new SearchInput(100, 64, 1).nextAction(state);
+
+        assertEquals(before, Zobrist.hash(state));
+        assertEquals(3, player.getUnits().getFirst().getX());
+    }
+
+    @Test
+    void copiedStateHasSameHash() {
+        place(player, new Hero(3, 3, true, player));
+        place(computer, new Spearman(6, 6, false, computer));
+        GameState copy = state.copy(GameOutput.SILENT, new GameRandom(2));
+
+        assertEquals(Zobrist.hash(state), Zobrist.hash(copy));
+        copy.applyAction(new Action.Move(0, 4, 3));
+        assertNotEquals(Zobrist.hash(state), Zobrist.hash(copy));
+        assertEquals(3, player.getUnits().getFirst().getX());
+    }
+}
@@ -0,0 +1,116 @@
+package test.engine;
+
+import main.buildings.Castle;
+import main.engine.Action;
+import main.engine.ComputerInput;
+import main.engine.GameInput;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.Zobrist;
+import main.map.GameMap;
+import main.map.Tile;
+import main.units.Spearman;
+import main.units.Swordsman;
+import main.util.GameRandom;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZobristTest {
+
+    private static GameState emptyGame() {
+        GameMap map = new GameMap(GameMap.WIDTH, GameMap.HEIGHT, true, new GameRandom(1));
+        GameState state = new GameState(map, new Castle("Игрок", 0, 0), new Castle("Компьютер", 9, 9),
+                GameOutput.SILENT);
+        Spearman first = new Spearman(2, 2, true, state.getPlayerCastle());
+        Swordsman second = new Swordsman(3, 5, true, state.getPlayerCastle());
+        Spearman enemy = new Spearman(7, 7, false, state.getComputerCastle());
+        state.getPlayerCastle().getUnits().add(first);
+        state.getPlayerCastle().getUnits().add(second);
+        state.getComputerCastle().getUnits().add(enemy);
+        map.addUnit(first);
+        map.addUnit(second);
+        map.addUnit(enemy);
+        return state;
+    }
+
+    @Test
+    void incrementalHashMatchesRecomputationThroughWholeGames() {
+        for (long seed = 1; seed <= 30; seed++) {
+            GameRandom random = new GameRandom(seed);
+            GameState state = GameState.newGame(new GameMap(GameMap.WIDTH, GameMap.HEIGHT, false, random),
+                    "Игрок", GameOutput.SILENT);
+            ComputerInput player = new ComputerInput(random.split(GameRandom.Stream.AI));
+            ComputerInput computer = new ComputerInput(random.split(GameRandom.Stream.AI));
+            // Проверка перед каждым действием, включая случайные атаки по своим и пустым клеткам
+            GameInput checkedPlayer = s -> {
+                assertEquals(Zobrist.hash(s), s.getHash());
+                return player.nextAction(s);
+            };
+            GameInput checkedComputer = s -> {
+                assertEquals(Zobrist.hash(s), s.getHash());
+                return computer.nextAction(s);
+            };
+            state.play(checkedPlayer, checkedComputer, 100);
+            assertEquals(Zobrist.hash(state), state.getHash());
+        }
+    }
+
+    @Test
+    void sameUnitsInSamePlacesGiveSameHashWhateverTheMoveOrder() {
+        GameState first = emptyGame();
+        GameState second = emptyGame();
+
+        first.applyAction(new Action.Move(0, 2, 3));
+        first.applyAction(new Action.Move(1, 4, 5));
+        second.applyAction(new Action.Move(1, 4, 5));
+        second.applyAction(new Action.Move(0, 2, 3));
+
+        assertEquals(first.getHash(), second.getHash());
+        assertNotEquals(emptyGame().getHash(), first.getHash());
+    }
+
+    @Test
+    void tileChangeAndRevertRestoresHash() {
+        GameState state = emptyGame();
+        long before = state.getHash();
+
+        state.getMap().setTile(5, 5, Tile.Type.OBSTACLE);
+        assertNotEquals(before, state.getHash());
+        assertEquals(Zobrist.hash(state), state.getHash());
+
+        state.getMap().setTile(5, 5, Tile.Type.GRASS);
+        assertEquals(before, state.getHash());
+    }
+
+    @Test
+    void damageGoldAndBuildingsChangeHash() {
+        GameState state = emptyGame();
+        Castle castle = state.getPlayerCastle();
+        long before = state.getHash();
+
+        castle.getUnits().getFirst().takeDamage(3);
+        long damaged = state.getHash();
+        assertNotEquals(before, damaged);
+        assertEquals(Zobrist.hash(state), damaged);
+
+        castle.addGold(5);
+        castle.spendGold(5);
+        assertEquals(damaged, state.getHash());
+
+        castle.build("Таверна");
+        assertNotEquals(damaged, state.getHash());
+        assertEquals(Zobrist.hash(state), state.getHash());
+    }
+
+    @Test
+    void copyKeepsHash() {
+        GameState state = emptyGame();
+        state.applyAction(new Action.Move(0, 2, 3));
+
+        GameState copy = state.copy(GameOutput.SILENT, new GameRandom(2));
+
+        assertEquals(state.getHash(), copy.getHash());
+        assertEquals(Zobrist.hash(copy), copy.getHash());
+    }
+}
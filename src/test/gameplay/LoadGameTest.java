@@ -18,7 +18,7 @@ class LoadGameTest {
 
     @BeforeEach
     void setUp() throws Exception {
-        String simulatedInput = "TestUser\n1\n1\n";
+        String simulatedInput = "TestUser\n2\n1\n1\n";
         System.setIn(new ByteArrayInputStream(simulatedInput.getBytes()));
 
         Files.deleteIfExists(new File(TEST_SAVE_FILE).toPath());
@@ -33,7 +33,7 @@ class LoadGameTest {
         game.saveGameState();
 
         // Reset input mocking for new instance
-        System.setIn(new ByteArrayInputStream("TestUser\n1\n1\n".getBytes()));
+        System.setIn(new ByteArrayInputStream("TestUser\n2\n1\n1\n".getBytes()));
         Game loadedGame = new Game();
         loadedGame.loadGame();
 
@@ -47,7 +47,7 @@ class LoadGameTest {
         game.saveGameState();
 
         // Reset input mocking for new instance
-        System.setIn(new ByteArrayInputStream("TestUser\n1\n1\n".getBytes()));
+        System.setIn(new ByteArrayInputStream("TestUser\n2\n1\n1\n".getBytes()));
         Game loadedGame = new Game();
         loadedGame.loadGame();
 
@@ -57,7 +57,7 @@ class LoadGameTest {
     @Test
     void testLoadMissingFileHandling() {
         // Reset input mocking for new instance
-        System.setIn(new ByteArrayInputStream("TestUser\n1\n1\n".getBytes()));
+        System.setIn(new ByteArrayInputStream("TestUser\n2\n1\n1\n".getBytes()));
         Game loadedGame = new Game();
         loadedGame.loadGame();
         
@@ -69,7 +69,7 @@ class LoadGameTest {
         Files.writeString(new File(TEST_SAVE_FILE).toPath(), "Invalid\n[Castles]\nBadData");
 
         // Reset input mocking for new instance
-        System.setIn(new ByteArrayInputStream("TestUser\n1\n1\n".getBytes()));
+        System.setIn(new ByteArrayInputStream("TestUser\n2\n1\n1\n".getBytes()));
         Game loadedGame = new Game();
         loadedGame.loadGame();
 
@@ -17,7 +17,7 @@ class RatingTest {
     @BeforeEach
     void setUp() throws Exception {
         // Mock user input for username and map selection
-        String simulatedInput = "TestUser\n1\n1\n";  // Username + map menu choices
+        String simulatedInput = "TestUser\n2\n1\n1\n";  // Username + opponent + map menu choices
         System.setIn(new ByteArrayInputStream(simulatedInput.getBytes()));
 
         // Cleanup test file before each test
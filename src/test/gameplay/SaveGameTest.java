@@ -20,7 +20,7 @@ class SaveGameTest {
     @BeforeEach
     void setUp() throws Exception {
         // Mock user input for username and map selection
-        String simulatedInput = "TestUser\n1\n1\n";
+        String simulatedInput = "TestUser\n2\n1\n1\n";
         System.setIn(new ByteArrayInputStream(simulatedInput.getBytes()));
         
         // Clear previous test saves
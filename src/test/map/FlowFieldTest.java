@@ -0,0 +1,94 @@
+package test.map;
+
+import main.map.FlowField;
+import main.map.GameMap;
+import main.map.Path;
+import main.map.Pathfinder;
+import main.map.Tile;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowFieldTest {
+
+    @Test
+    void distanceMatchesCheapestPath() {
+        GameMap map = new GameMap(false);
+        FlowField field = map.getFlowField(0, 0, false);
+
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                if (map.getTileType(x, y) == Tile.Type.OBSTACLE || (x == 0 && y == 0)) continue;
+                // Ограниченный поиск A* точен: стоимость маршрута = шаги зон + число клеток
+                Path path = Pathfinder.findPath(map, x, y, 0, 0, false, 1000);
+                if (path == null) {
+                    assertEquals(FlowField.UNREACHABLE, field.getDistance(x, y));
+                } else {
+                    assertEquals(path.getStepCost() + path.length(), field.getDistance(x, y), "клетка " + x + "," + y);
+                }
+            }
+        }
+        assertEquals(0, field.getDistance(0, 0));
+        assertEquals(-1, field.nextCell(0, 0));
+    }
+
+    @Test
+    void followingDirectionsReachesTarget() {
+        GameMap map = new GameMap(64, 64, true);
+        for (int y = 0; y < 60; y++) {
+            map.setTile(30, y, Tile.Type.OBSTACLE); // Стена с проходом внизу
+        }
+        FlowField field = map.getFlowField(0, 0, true);
+
+        int x = 63;
+        int y = 0;
+        int steps = 0;
+        while (x != 0 || y != 0) {
+            int next = field.nextCell(x, y);
+            assertTrue(next >= 0);
+            int nx = next % map.getWidth();
+            int ny = next / map.getWidth();
+            assertEquals(1, Math.abs(nx - x) + Math.abs(ny - y));
+            assertNotEquals(Tile.Type.OBSTACLE, map.getTileType(nx, ny));
+            x = nx;
+            y = ny;
+            steps++;
+        }
+        assertEquals(63 + 2 * 60, steps);
+    }
+
+    @Test
+    void fieldIsReusedUntilTilesChange() {
+        GameMap map = new GameMap(16, 16, true);
+        FlowField field = map.getFlowField(0, 0, true);
+        // 15 клеток нейтральной зоны по 1 + 1 и 5 клеток зоны игрока по 5 + 1
+        assertEquals(15 * 2 + 5 * 6, field.getDistance(15, 5));
+
+        assertSame(field, map.getFlowField(0, 0, true));
+        int before = field.getDistance(5, 0);
+
+        map.setTile(3, 0, Tile.Type.OBSTACLE);
+        assertSame(field, map.getFlowField(0, 0, true));
+        assertTrue(field.getDistance(5, 0) > before);
+    }
+
+    @Test
+    void enclosedCellsAreUnreachable() {
+        GameMap map = new GameMap(true);
+        map.setTile(4, 3, Tile.Type.OBSTACLE);
+        map.setTile(4, 5, Tile.Type.OBSTACLE);
+        map.setTile(3, 4, Tile.Type.OBSTACLE);
+        map.setTile(5, 4, Tile.Type.OBSTACLE);
+
+        FlowField field = map.getFlowField(0, 0, true);
+
+        assertEquals(FlowField.UNREACHABLE, field.getDistance(4, 4));
+        assertEquals(-1, field.nextCell(4, 4));
+    }
+
+    @Test
+    void targetOutsideMapIsRejected() {
+        GameMap map = new GameMap(true);
+        assertThrows(IllegalArgumentException.class, () -> map.getFlowField(GameMap.WIDTH, 0, true));
+    }
+}
@@ -2,12 +2,14 @@ package test.map;
 
 import main.buildings.Castle;
 import main.map.GameMap;
+import main.map.Tile;
 import main.units.Spearman;
 import main.units.Unit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.logging.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -252,4 +254,243 @@ class GameMapTest {
 
         assertFalse(result, "Expected addUnit to handle invalid coordinates safely.");
     }
+
+    @Test
+    void getUnitAtFollowsMovedUnit() {
+        logger.info("Testing that the unit index follows unit movement...");
+        Castle castle = new Castle("Игрок", 0, 0);
+        Unit unit = new Spearman(0, 0, true, castle);
+        castle.buyUnit(unit);
+        gameMap.addUnit(unit);
+
+        unit.move(1, 0, gameMap, castle);
+
+        assertNull(gameMap.getUnitAt(0, 0));
+        assertEquals(unit, gameMap.getUnitAt(1, 0));
+    }
+
+    @Test
+    void getUnitAtReturnsFirstAddedUnitInStack() {
+        logger.info("Testing stacked units on one tile...");
+        Castle castle = new Castle("Игрок", 0, 0);
+        Unit first = new Spearman(0, 0, true, castle);
+        Unit second = new Spearman(0, 0, true, castle);
+        gameMap.addUnit(first);
+        gameMap.addUnit(second);
+
+        assertEquals(first, gameMap.getUnitAt(0, 0));
+        gameMap.removeUnit(first);
+        assertEquals(second, gameMap.getUnitAt(0, 0));
+        assertEquals(1, gameMap.getUnitCount());
+    }
+
+    @Test
+    void removeUnitClearsTile() {
+        logger.info("Testing unit removal from the map...");
+        Castle castle = new Castle("Игрок", 0, 0);
+        Unit unit = new Spearman(3, 3, true, castle);
+        gameMap.addUnit(unit);
+
+        gameMap.removeUnit(unit);
+
+        assertNull(gameMap.getUnitAt(3, 3));
+        assertEquals(0, gameMap.getUnitCount());
+    }
+
+    @Test
+    void killedUnitIsRemovedFromMap() {
+        logger.info("Testing that a killed unit disappears from the map...");
+        Castle playerCastle = new Castle("Игрок", 0, 0);
+        Castle computerCastle = new Castle("Компьютер", 9, 9);
+        Unit attacker = new Spearman(0, 0, true, playerCastle);
+        Unit target = new Spearman(1, 0, false, computerCastle);
+        computerCastle.buyUnit(target);
+        gameMap.addUnit(attacker);
+        gameMap.addUnit(target);
+        target.takeDamage(target.getHp() - 1);
+
+        attacker.attack(1, 0, gameMap);
+
+        assertNull(gameMap.getUnitAt(1, 0));
+    }
+
+    @Test
+    void getUnitsInAreaAndRadius() {
+        logger.info("Testing area and radius queries...");
+        Castle castle = new Castle("Игрок", 0, 0);
+        Unit near = new Spearman(2, 2, true, castle);
+        Unit diagonal = new Spearman(3, 3, true, castle);
+        Unit far = new Spearman(8, 8, true, castle);
+        gameMap.addUnit(near);
+        gameMap.addUnit(diagonal);
+        gameMap.addUnit(far);
+
+        List<Unit> area = gameMap.getUnitsInArea(1, 1, 3, 3);
+        assertEquals(2, area.size());
+        assertTrue(area.contains(near) && area.contains(diagonal));
+
+        List<Unit> radius = gameMap.getUnitsInRadius(2, 2, 1);
+        assertEquals(List.of(near), radius);
+
+        assertEquals(3, gameMap.getUnitsInArea(-5, -5, 20, 20).size());
+    }
+
+    @Test
+    void customSizeMapPlacesCastlesAndZonesInCorners() {
+        logger.info("Testing a custom 64x32 map...");
+        GameMap map = new GameMap(64, 32, false);
+
+        assertEquals(64, map.getWidth());
+        assertEquals(32, map.getHeight());
+        assertEquals(Tile.Type.CASTLE_PLAYER, map.getTileType(0, 0));
+        assertEquals(Tile.Type.CASTLE_COMP, map.getTileType(63, 31));
+        assertTrue(map.isCompZone(60, 28));
+        assertFalse(map.isCompZone(8, 8));
+        assertTrue(map.isRoad(20, 20));
+        assertFalse(map.isWalkable(64, 0));
+    }
+
+    @Test
+    void emptyMapIsAllGrass() {
+        GameMap map = new GameMap(7, 3, true);
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                assertEquals(Tile.Type.GRASS, map.getTileType(x, y));
+            }
+        }
+    }
+
+    @Test
+    void tileViewWritesThroughToMap() {
+        logger.info("Testing that getTile returns a live view of the packed grid...");
+        GameMap map = new GameMap(true);
+        Tile tile = map.getTile(3, 4);
+
+        tile.setType(Tile.Type.OBSTACLE);
+
+        assertEquals(Tile.Type.OBSTACLE, map.getTileType(3, 4));
+        assertEquals("#", map.getTile(3, 4).toString());
+        map.setTile(3, 4, Tile.Type.ROAD);
+        assertEquals(Tile.Type.ROAD, tile.getType());
+    }
+
+    @Test
+    void largestMapCanBeCreated() {
+        GameMap map = new GameMap(GameMap.MAX_SIZE, GameMap.MAX_SIZE, true);
+        map.setTile(GameMap.MAX_SIZE - 1, GameMap.MAX_SIZE - 1, Tile.Type.CASTLE_COMP);
+        assertEquals(Tile.Type.CASTLE_COMP, map.getTileType(GameMap.MAX_SIZE - 1, GameMap.MAX_SIZE - 1));
+    }
+
+    @Test
+    void invalidMapSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new GameMap(0, 10, true));
+        assertThrows(IllegalArgumentException.class, () -> new GameMap(10, GameMap.MAX_SIZE + 1, true));
+    }
+
+    @Test
+    void isWalkableFollowsSetTile() {
+        logger.info("Testing that setTile updates walkability...");
+        GameMap map = new GameMap(true);
+        assertTrue(map.isWalkable(4, 4));
+
+        map.setTile(4, 4, Tile.Type.OBSTACLE);
+        assertFalse(map.isWalkable(4, 4));
+
+        map.setTile(4, 4, Tile.Type.ROAD);
+        assertTrue(map.isWalkable(4, 4));
+    }
+
+    @Test
+    void occupiedTileIsNotWalkableUntilUnitLeaves() {
+        logger.info("Testing that unit occupancy updates walkability...");
+        GameMap map = new GameMap(true);
+        Castle castle = new Castle("Игрок", 0, 0);
+        Unit unit = new Spearman(2, 2, true, castle);
+        map.addUnit(unit);
+        assertFalse(map.isWalkable(2, 2));
+
+        unit.move(3, 2, map, castle);
+        assertTrue(map.isWalkable(2, 2));
+        assertFalse(map.isWalkable(3, 2));
+
+        map.removeUnit(unit);
+        assertTrue(map.isWalkable(3, 2));
+    }
+
+    @Test
+    void stackedTileStaysOccupiedWhileAnyUnitRemains() {
+        GameMap map = new GameMap(true);
+        Castle castle = new Castle("Игрок", 0, 0);
+        Unit first = new Spearman(0, 0, true, castle);
+        Unit second = new Spearman(0, 0, true, castle);
+        map.addUnit(first);
+        map.addUnit(second);
+
+        map.removeUnit(first);
+        assertFalse(map.isWalkable(0, 0));
+        map.removeUnit(second);
+        assertTrue(map.isWalkable(0, 0));
+    }
+
+    @Test
+    void moveStepsFollowTileChanges() {
+        logger.info("Testing that move step tables follow setTile...");
+        GameMap map = new GameMap(20, 20, true);
+
+        assertEquals(5, map.getPlayerMoveStep(2, 2));
+        assertEquals(10, map.getCompMoveStep(2, 2));
+        assertEquals(10, map.getPlayerMoveStep(17, 17));
+        assertEquals(5, map.getCompMoveStep(17, 17));
+        assertEquals(1, map.getPlayerMoveStep(10, 10));
+        assertEquals(1, map.getCompMoveStep(10, 10));
+
+        map.setTile(2, 2, Tile.Type.ROAD);
+        map.setTile(10, 10, Tile.Type.ROAD);
+        assertEquals(0, map.getPlayerMoveStep(2, 2));
+        assertEquals(0, map.getCompMoveStep(10, 10));
+
+        map.setTile(2, 2, Tile.Type.GRASS);
+        assertEquals(5, map.getPlayerMoveStep(2, 2));
+        assertEquals(10, map.getCompMoveStep(2, 2));
+    }
+
+    @Test
+    void copyIsIsolatedFromLaterChangesOnBothSides() {
+        logger.info("Testing copy-on-write map copies...");
+        GameMap map = new GameMap(2048, 2048, true);
+        Castle castle = new Castle("Игрок", 0, 0);
+        Unit unit = new Spearman(1000, 1000, true, castle);
+        map.addUnit(unit);
+        Unit unitCopy = unit.copyFor(castle);
+
+        GameMap copy = map.copy(map.getRandom(), u -> u == unit ? unitCopy : null);
+        map.setTile(5, 5, Tile.Type.OBSTACLE);
+        copy.setTile(6, 6, Tile.Type.ROAD);
+        unit.move(1001, 1000, map, castle);
+
+        assertEquals(Tile.Type.GRASS, copy.getTileType(5, 5));
+        assertTrue(copy.isWalkable(5, 5));
+        assertEquals(Tile.Type.GRASS, map.getTileType(6, 6));
+        assertEquals(0, copy.getPlayerMoveStep(6, 6));
+        assertNotEquals(0, map.getPlayerMoveStep(6, 6));
+        assertFalse(copy.isWalkable(1000, 1000));
+        assertTrue(copy.isWalkable(1001, 1000));
+        assertSame(unitCopy, copy.getUnitAt(1000, 1000));
+        assertSame(unit, map.getUnitAt(1001, 1000));
+        assertTrue(map.isWalkable(1000, 1000));
+    }
+
+    @Test
+    void copyWithoutUnitsFreesTheirCells() {
+        GameMap map = new GameMap(true);
+        Castle castle = new Castle("Игрок", 0, 0);
+        map.addUnit(new Spearman(3, 3, true, castle));
+
+        GameMap copy = map.copyTiles(map.getRandom());
+
+        assertTrue(copy.isWalkable(3, 3));
+        assertNull(copy.getUnitAt(3, 3));
+        assertEquals(0, copy.getUnitCount());
+        assertFalse(map.isWalkable(3, 3));
+    }
 }
@@ -0,0 +1,92 @@
+package test.map;
+
+import main.map.GameMap;
+import main.map.HierarchicalPathfinder;
+import main.map.Path;
+import main.map.Pathfinder;
+import main.map.Tile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalPathfinderTest {
+    private static final int SIZE = 64;
+
+    private GameMap map;
+
+    @BeforeEach
+    void setUp() {
+        map = new GameMap(SIZE, SIZE, true);
+        // Стена по x = 40 с единственным проходом в y = 50
+        for (int y = 0; y < SIZE; y++) {
+            if (y != 50) map.setTile(40, y, Tile.Type.OBSTACLE);
+        }
+    }
+
+    @Test
+    void longRouteIsContinuousAndAvoidsObstacles() {
+        Path path = map.getHierarchicalPathfinder().findPath(2, 2, 60, 5, true);
+
+        assertNotNull(path);
+        assertValid(map, path, 2, 2, 60, 5);
+        boolean throughGap = false;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.getX(i) == 40 && path.getY(i) == 50) throughGap = true;
+        }
+        assertTrue(throughGap);
+    }
+
+    @Test
+    void routeCostIsCloseToFullSearch() {
+        GameMap zoned = new GameMap(SIZE, SIZE, false);
+        Path hierarchical = zoned.getHierarchicalPathfinder().findPath(1, 0, SIZE - 2, SIZE - 1, true);
+        Path full = Pathfinder.findPath(zoned, 1, 0, SIZE - 2, SIZE - 1, true, Pathfinder.UNLIMITED);
+
+        assertNotNull(hierarchical);
+        assertNotNull(full);
+        assertValid(zoned, hierarchical, 1, 0, SIZE - 2, SIZE - 1);
+        assertTrue(hierarchical.getStepCost() + hierarchical.length()
+                <= 2 * (full.getStepCost() + full.length()));
+    }
+
+    @Test
+    void closingTheGapIsRepairedIncrementally() {
+        HierarchicalPathfinder hierarchy = map.getHierarchicalPathfinder();
+        assertNotNull(hierarchy.findPath(2, 2, 60, 5, true));
+
+        map.setTile(40, 50, Tile.Type.OBSTACLE);
+        assertNull(hierarchy.findPath(2, 2, 60, 5, true));
+
+        map.setTile(40, 20, Tile.Type.ROAD);
+        Path path = hierarchy.findPath(2, 2, 60, 5, true);
+        assertNotNull(path);
+        assertValid(map, path, 2, 2, 60, 5);
+    }
+
+    @Test
+    void nearbyTargetsUseDirectSearch() {
+        Path path = map.getHierarchicalPathfinder().findPath(2, 2, 5, 2, false);
+
+        assertNotNull(path);
+        assertEquals(3, path.length());
+    }
+
+    @Test
+    void obstacleTargetHasNoRoute() {
+        assertNull(map.getHierarchicalPathfinder().findPath(2, 2, 40, 10, true));
+    }
+
+    private void assertValid(GameMap map, Path path, int startX, int startY, int targetX, int targetY) {
+        int x = startX;
+        int y = startY;
+        for (int i = 0; i < path.length(); i++) {
+            assertEquals(1, Math.abs(path.getX(i) - x) + Math.abs(path.getY(i) - y), "Клетки маршрута должны быть соседними");
+            x = path.getX(i);
+            y = path.getY(i);
+            assertNotEquals(Tile.Type.OBSTACLE, map.getTileType(x, y));
+        }
+        assertEquals(targetX, x);
+        assertEquals(targetY, y);
+    }
+}
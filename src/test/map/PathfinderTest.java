@@ -0,0 +1,132 @@
+package test.map;
+
+import main.buildings.Castle;
+import main.map.GameMap;
+import main.map.Path;
+import main.map.Pathfinder;
+import main.map.Tile;
+import main.units.Spearman;
+import main.units.Unit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathfinderTest {
+
+    private GameMap map;
+
+    @BeforeEach
+    void setUp() {
+        map = new GameMap(true);
+    }
+
+    @Test
+    void straightPathOnOpenGrass() {
+        Path path = Pathfinder.findPath(map, 0, 5, 3, 5, true, Pathfinder.UNLIMITED);
+
+        assertNotNull(path);
+        assertEquals(3, path.length());
+        assertEquals(3, path.getX(2));
+        assertEquals(5, path.getY(2));
+        assertEquals(3, path.getStepCost()); // Нейтральная зона стоит 1 шаг на клетку
+    }
+
+    @Test
+    void pathGoesAroundObstacles() {
+        // Стена по x = 5 с проходом внизу
+        for (int y = 0; y < GameMap.HEIGHT - 1; y++) {
+            map.setTile(5, y, Tile.Type.OBSTACLE);
+        }
+
+        Path path = Pathfinder.findPath(map, 4, 0, 6, 0, true, Pathfinder.UNLIMITED);
+
+        assertNotNull(path);
+        for (int i = 0; i < path.length(); i++) {
+            assertNotEquals(Tile.Type.OBSTACLE, map.getTileType(path.getX(i), path.getY(i)));
+        }
+        assertEquals(2 + 2 * (GameMap.HEIGHT - 1), path.length());
+    }
+
+    @Test
+    void noPathWhenTargetIsEnclosed() {
+        map.setTile(4, 3, Tile.Type.OBSTACLE);
+        map.setTile(4, 5, Tile.Type.OBSTACLE);
+        map.setTile(3, 4, Tile.Type.OBSTACLE);
+        map.setTile(5, 4, Tile.Type.OBSTACLE);
+
+        assertNull(Pathfinder.findPath(map, 0, 0, 4, 4, true, Pathfinder.UNLIMITED));
+    }
+
+    @Test
+    void maxLengthLimitsDetours() {
+        map.setTile(1, 0, Tile.Type.OBSTACLE);
+        map.setTile(1, 1, Tile.Type.OBSTACLE);
+
+        assertNull(Pathfinder.findPath(map, 0, 0, 2, 0, true, 2));
+        assertNotNull(Pathfinder.findPath(map, 0, 0, 2, 0, true, 6));
+    }
+
+    @Test
+    void cheaperRouteIsPreferred() {
+        // Обход по дороге длиннее прямого пути по нейтральной зоне, но стоит меньше шагов
+        for (int x = 0; x <= 4; x++) {
+            map.setTile(x, 6, Tile.Type.ROAD);
+        }
+
+        Path path = Pathfinder.findPath(map, 0, 5, 4, 5, true, 8);
+
+        assertNotNull(path);
+        assertEquals(6, path.length());
+        assertEquals(1, path.getStepCost());
+    }
+
+    @Test
+    void shortestRouteIsUsedWhenCheapOneIsTooLong() {
+        for (int x = 0; x <= 4; x++) {
+            map.setTile(x, 6, Tile.Type.ROAD);
+        }
+
+        Path path = Pathfinder.findPath(map, 0, 5, 4, 5, true, 4);
+
+        assertNotNull(path);
+        assertEquals(4, path.length());
+        assertEquals(4, path.getStepCost());
+    }
+
+    @Test
+    void occupiedCellsBlockThePath() {
+        Castle castle = new Castle("Игрок", 0, 0);
+        for (int y = 0; y < GameMap.HEIGHT; y++) {
+            map.addUnit(new Spearman(5, y, true, castle));
+        }
+
+        assertNull(Pathfinder.findPath(map, 0, 0, 9, 0, true, Pathfinder.UNLIMITED));
+    }
+
+    @Test
+    void occupiedTargetCanBeReached() {
+        Castle castle = new Castle("Компьютер", 9, 9);
+        map.addUnit(new Spearman(9, 9, false, castle));
+
+        Path path = Pathfinder.findPath(map, 0, 0, 9, 9, true, Pathfinder.UNLIMITED);
+
+        assertNotNull(path);
+        assertEquals(18, path.length());
+    }
+
+    @Test
+    void unitCannotJumpOverWall() {
+        Castle castle = new Castle("Игрок", 0, 0);
+        for (int y = 0; y < GameMap.HEIGHT; y++) {
+            map.setTile(1, y, Tile.Type.OBSTACLE);
+        }
+        Unit unit = new Spearman(0, 0, true, castle);
+        map.addUnit(unit);
+
+        unit.move(2, 0, map, castle);
+
+        assertEquals(0, unit.getX());
+        assertEquals(10, castle.getSteps());
+    }
+}
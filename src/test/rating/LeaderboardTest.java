@@ -0,0 +1,128 @@
+package test.rating;
+
+import main.rating.Leaderboard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+    private Path dir;
+    private Path csv;
+    private Path index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("rating");
+        csv = dir.resolve("rating.csv");
+        index = dir.resolve("rating.idx");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Path file : List.of(csv, index, dir.resolve("rating.idx.tmp"))) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private static List<String> names(List<Leaderboard.Score> scores) {
+        return scores.stream().map(score -> score.user() + ":" + score.points()).toList();
+    }
+
+    @Test
+    void keepsBestScorePerPlayerAndTopPerMap() throws IOException {
+        Leaderboard leaderboard = Leaderboard.open(csv, index);
+        leaderboard.record("Аня", 50, "Долина");
+        leaderboard.record("Боря", 70, "Долина");
+        leaderboard.record("Аня", 30, "Горы");
+        leaderboard.record("Аня", 90, "Горы");
+
+        assertEquals(OptionalInt.of(90), leaderboard.bestScore("Аня"));
+        assertEquals(List.of("Аня:90", "Боря:70"), names(leaderboard.topPlayers(10)));
+        assertEquals(List.of("Боря:70", "Аня:50"), names(leaderboard.topForMap("Долина", 10)));
+        assertEquals(List.of("Аня:90", "Аня:30"), names(leaderboard.topForMap("Горы", 10)));
+        assertTrue(Files.readString(csv).startsWith(Leaderboard.HEADER + "\n"), "История с заголовком");
+        assertEquals(5, Files.readAllLines(csv).size(), "Каждая партия — строка истории");
+    }
+
+    @Test
+    void mapTopKeepsOnlyBestGames() throws IOException {
+        Leaderboard leaderboard = Leaderboard.open(csv, index);
+        for (int points = 1; points <= 3 * Leaderboard.MAP_TOP; points++) {
+            leaderboard.record("Игрок" + points % 4, points, "Долина");
+        }
+        List<Leaderboard.Score> top = leaderboard.topForMap("Долина", 100);
+        assertEquals(Leaderboard.MAP_TOP, top.size());
+        assertEquals(3 * Leaderboard.MAP_TOP, top.getFirst().points());
+        assertEquals(2 * Leaderboard.MAP_TOP + 1, top.getLast().points());
+    }
+
+    @Test
+    void reopenReadsIndexNotHistory() throws IOException {
+        Leaderboard leaderboard = Leaderboard.open(csv, index);
+        for (int game = 0; game < 200; game++) {
+            leaderboard.record("Игрок" + game % 7, (game * 37) % 101, "Карта" + game % 3);
+        }
+
+        // История той же длины, но без рекордов: если бы таблица читала её, рекорды пропали бы
+        Files.write(csv, "#".repeat((int) Files.size(csv)).getBytes());
+
+        Leaderboard reopened = Leaderboard.open(csv, index);
+        assertEquals(names(leaderboard.topPlayers(10)), names(reopened.topPlayers(10)));
+        assertEquals(names(leaderboard.topForMap("Карта1", 10)), names(reopened.topForMap("Карта1", 10)));
+        assertEquals(leaderboard.rank("Карта2", 50), reopened.rank("Карта2", 50));
+    }
+
+    @Test
+    void historyChangedOutsideIsReindexed() throws IOException {
+        Leaderboard.open(csv, index).record("Аня", 10, "Долина");
+        Files.writeString(csv, "Боря;500;Долина\n", StandardOpenOption.APPEND);
+
+        Leaderboard reopened = Leaderboard.open(csv, index);
+        assertEquals(OptionalInt.of(500), reopened.bestScore("Боря"));
+
+        Files.delete(csv);
+        assertEquals(0, Leaderboard.open(csv, index).getPlayerCount());
+    }
+
+    @Test
+    void indexIsCompactedWhenItGrows() throws IOException {
+        Leaderboard leaderboard = Leaderboard.open(csv, index);
+        for (int game = 0; game < 5000; game++) {
+            leaderboard.record("Игрок", game % 20, "Долина"); // Живых записей немного, каждая партия дописывает свою
+        }
+        assertTrue(leaderboard.getIndexRecords() < 2500, "Записей в индексе: " + leaderboard.getIndexRecords());
+        Leaderboard reopened = Leaderboard.open(csv, index);
+        assertEquals(OptionalInt.of(19), reopened.bestScore("Игрок"));
+        assertEquals(5000, reopened.getGameCount("Долина"));
+    }
+
+    @Test
+    void rankAndPercentileCountAllGamesOfTheMap() throws IOException {
+        Leaderboard leaderboard = Leaderboard.open(csv, index);
+        for (int points : new int[]{10, 40, 40, 70, 100}) {
+            leaderboard.record("Аня", points, "Долина");
+        }
+        leaderboard.record("Боря", 1000, "Горы");
+
+        assertEquals(5, leaderboard.getGameCount("Долина"));
+        assertEquals(1, leaderboard.rank("Долина", 100));
+        assertEquals(3, leaderboard.rank("Долина", 40), "Выше только 70 и 100");
+        assertEquals(6, leaderboard.rank("Долина", 0));
+        assertEquals(60.0, leaderboard.percentile("Долина", 40), 1e-9);
+        assertEquals(1, leaderboard.rank("Пустыня", 5));
+
+        Leaderboard reopened = Leaderboard.open(csv, index);
+        assertEquals(3, reopened.rank("Долина", 40));
+        assertEquals(60.0, reopened.percentile("Долина", 40), 1e-9);
+    }
+}
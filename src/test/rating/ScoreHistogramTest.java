@@ -0,0 +1,46 @@
+package test.rating;
+
+import main.rating.ScoreHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreHistogramTest {
+
+    @Test
+    void countsMatchBruteForceAcrossGrowth() {
+        SplittableRandom random = new SplittableRandom(1);
+        ScoreHistogram histogram = new ScoreHistogram();
+        List<Integer> scores = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            // Сначала мелкие очки, потом крупные: дерево несколько раз растёт
+            int points = random.nextInt(i < 1000 ? 500 : 100_000);
+            histogram.add(points, 1);
+            scores.add(points);
+            if (i % 97 == 0) {
+                int query = random.nextInt(120_000);
+                long atMost = scores.stream().filter(score -> score <= query).count();
+                assertEquals(atMost, histogram.countAtMost(query));
+                assertEquals(scores.size() - atMost + 1, histogram.rank(query));
+            }
+        }
+        assertEquals(3000, histogram.getTotal());
+    }
+
+    @Test
+    void negativeAndHugeScoresAreClamped() {
+        ScoreHistogram histogram = new ScoreHistogram();
+        histogram.add(-5, 1);
+        histogram.add(Integer.MAX_VALUE, 2);
+
+        assertEquals(1, histogram.getCount(0));
+        assertEquals(2, histogram.getCount(ScoreHistogram.MAX_POINTS - 1));
+        assertEquals(3, histogram.rank(0));
+        assertEquals(1, histogram.rank(Integer.MAX_VALUE));
+        assertEquals(2, histogram.getBucketCount());
+    }
+}
@@ -0,0 +1,170 @@
+package test.save;
+
+import main.buildings.Castle;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.Zobrist;
+import main.map.GameMap;
+import main.map.Tile;
+import main.save.BinarySave;
+import main.save.CsvSave;
+import main.units.Hero;
+import main.units.Paladin;
+import main.units.Unit;
+import main.util.GameRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySaveTest {
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("game", ".sav");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static GameState sampleGame(int size) {
+        GameMap map = new GameMap(size, size, false, new GameRandom(size));
+        GameState state = GameState.newGame(map, "Игрок", GameOutput.SILENT);
+        Castle player = state.getPlayerCastle();
+        player.setGold(321);
+        player.setPoints(45);
+        player.setSteps(7);
+        player.addBuilding("Собор");
+        player.setCaptureTimeReduction(true);
+        Paladin paladin = new Paladin(size - 3, 1, true, player);
+        paladin.setHp(5);
+        paladin.setMovement(6);
+        player.getUnits().add(paladin);
+        map.addUnit(paladin);
+        Hero hero = new Hero(1, size - 2, false, state.getComputerCastle());
+        state.getComputerCastle().getUnits().add(hero);
+        map.addUnit(hero);
+        return state;
+    }
+
+    private static void assertSameGame(GameState expected, GameState actual) {
+        assertEquals(Zobrist.hash(expected), Zobrist.hash(actual), "Карта, юниты и замки должны совпасть");
+        assertEquals(actual.getHash(), Zobrist.hash(actual), "Загруженная партия должна вести свой хеш");
+        assertEquals(expected.getPlayerCastle().getOwner(), actual.getPlayerCastle().getOwner());
+        assertEquals(expected.getPlayerCastle().getBuildings(), actual.getPlayerCastle().getBuildings());
+        assertEquals(expected.getPlayerCastle().isCaptureTimeReduced(), actual.getPlayerCastle().isCaptureTimeReduced());
+        assertEquals(expected.getComputerCastle().getUnits().size(), actual.getComputerCastle().getUnits().size());
+        for (int i = 0; i < expected.getPlayerCastle().getUnits().size(); i++) {
+            Unit before = expected.getPlayerCastle().getUnits().get(i);
+            Unit after = actual.getPlayerCastle().getUnits().get(i);
+            assertEquals(before.getClass(), after.getClass());
+            assertEquals(before.getMovement(), after.getMovement());
+            assertSame(after, actual.getMap().getUnitAt(after.getX(), after.getY()));
+        }
+    }
+
+    @Test
+    void roundTripRestoresWholeGame() throws IOException {
+        for (int size : new int[]{GameMap.WIDTH, 300}) {
+            GameState state = sampleGame(size);
+            BinarySave.write(state, file);
+            assertSameGame(state, BinarySave.read(file, new GameRandom(1), GameOutput.SILENT));
+        }
+    }
+
+    @Test
+    void largeStatsAndStackOrderSurviveRoundTrip() throws IOException {
+        GameState state = sampleGame(GameMap.WIDTH);
+        Castle player = state.getPlayerCastle();
+        Unit guard = player.getUnits().getFirst(); // Копейщик, нанятый в замке
+        guard.setHp(40_000);
+        guard.setMovement(70_000);
+        // Герой встал в замок, пока копейщик отходил: в стопке герой первый, хотя в армии последний
+        guard.setPosition(1, 0);
+        Hero hero = new Hero(player.getX(), player.getY(), true, player);
+        player.getUnits().add(hero);
+        state.getMap().addUnit(hero);
+        guard.setPosition(player.getX(), player.getY());
+
+        BinarySave.write(state, file);
+        GameState loaded = BinarySave.read(file, new GameRandom(1), GameOutput.SILENT);
+
+        Unit loadedGuard = loaded.getPlayerCastle().getUnits().getFirst();
+        assertEquals(40_000, loadedGuard.getHp());
+        assertEquals(70_000, loadedGuard.getMovement());
+        assertSame(loaded.getPlayerCastle().getUnits().getLast(),
+                loaded.getMap().getUnitAt(player.getX(), player.getY()));
+        assertEquals(Zobrist.hash(state), Zobrist.hash(loaded));
+    }
+
+    @Test
+    void largeMapIsMuchSmallerThanCsv() throws IOException {
+        GameState state = sampleGame(1000);
+        Path csv = Files.createTempFile("game", ".csv");
+        try {
+            CsvSave.write(state, csv);
+            BinarySave.write(state, file);
+            assertTrue(Files.size(file) * 10 < Files.size(csv),
+                    "Двоичное сохранение " + Files.size(file) + " байт, CSV " + Files.size(csv));
+            GameState imported = CsvSave.read(csv, new GameRandom(1), GameOutput.SILENT);
+            assertEquals(Zobrist.hashTiles(state.getMap()), Zobrist.hashTiles(imported.getMap()));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Test
+    void unknownSectionsAreSkipped() throws IOException {
+        GameState state = sampleGame(GameMap.WIDTH);
+        state.getMap().setTile(4, 4, Tile.Type.OBSTACLE);
+        BinarySave.write(state, file);
+
+        // Секция из будущей версии между заголовком и замками
+        byte[] data = Files.readAllBytes(file);
+        ByteBuffer patched = ByteBuffer.allocate(data.length + 8);
+        patched.put(data, 0, 6).put((byte) 99).putInt(3).put(new byte[]{1, 2, 3}).put(data, 6, data.length - 6);
+        Files.write(file, patched.array());
+
+        assertSameGame(state, BinarySave.read(file, new GameRandom(1), GameOutput.SILENT));
+    }
+
+    @Test
+    void rejectsForeignNewerAndTruncatedFiles() throws IOException {
+        Files.writeString(file, "[Castles]\nИгрок;100;0;0;0;;10;1\n");
+        assertThrows(IOException.class, () -> BinarySave.read(file, new GameRandom(1), GameOutput.SILENT));
+
+        BinarySave.write(sampleGame(GameMap.WIDTH), file);
+        byte[] data = Files.readAllBytes(file);
+
+        byte[] newer = data.clone();
+        newer[5] = (byte) (BinarySave.VERSION + 1);
+        Files.write(file, newer);
+        assertThrows(IOException.class, () -> BinarySave.read(file, new GameRandom(1), GameOutput.SILENT));
+
+        byte[] older = data.clone();
+        older[5] = (byte) (BinarySave.VERSION - 1);
+        Files.write(file, older);
+        assertThrows(IOException.class, () -> BinarySave.read(file, new GameRandom(1), GameOutput.SILENT));
+
+        byte[] truncated = new byte[data.length / 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        Files.write(file, truncated);
+        assertThrows(IOException.class, () -> BinarySave.read(file, new GameRandom(1), GameOutput.SILENT));
+    }
+
+    @Test
+    void missingSectionsGiveNoGame() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(7).putInt(BinarySave.MAGIC).putShort(BinarySave.VERSION).put((byte) 0);
+        Files.write(file, header.array());
+        assertNull(BinarySave.read(file, new GameRandom(1), GameOutput.SILENT));
+    }
+}
@@ -0,0 +1,219 @@
+package test.save;
+
+import main.buildings.Castle;
+import main.engine.Action;
+import main.engine.ActionJournal;
+import main.engine.ComputerInput;
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.engine.Zobrist;
+import main.map.GameMap;
+import main.save.SaveJournal;
+import main.save.SaveService;
+import main.units.Unit;
+import main.util.GameRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveJournalTest {
+    private Path dir;
+    private Path snapshot;
+    private Path journalFile;
+    private SaveService saves;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("saves");
+        snapshot = dir.resolve("game.sav");
+        journalFile = dir.resolve("game.journal");
+        saves = new SaveService();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        saves.close();
+        for (Path file : List.of(snapshot, journalFile)) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private static GameState newGame(int size, long seed) {
+        GameState state = GameState.newGame(new GameMap(size, size, false, new GameRandom(seed)),
+                "Игрок", GameOutput.SILENT);
+        ActionJournal.attach(state, 100);
+        return state;
+    }
+
+    private static void assertSameArmies(GameState expected, GameState actual) {
+        assertEquals(Zobrist.hashUnits(expected.getMap()), Zobrist.hashUnits(actual.getMap()));
+        for (boolean player : new boolean[]{true, false}) {
+            Castle before = player ? expected.getPlayerCastle() : expected.getComputerCastle();
+            Castle after = player ? actual.getPlayerCastle() : actual.getComputerCastle();
+            assertEquals(Zobrist.hashCastle(before), Zobrist.hashCastle(after));
+            assertEquals(before.getUnits().stream().map(Unit::getSymbol).toList(),
+                    after.getUnits().stream().map(Unit::getSymbol).toList());
+        }
+    }
+
+    private GameState load() throws IOException {
+        saves.flush();
+        return SaveJournal.load(snapshot, journalFile, new GameRandom(1), GameOutput.SILENT);
+    }
+
+    @Test
+    void snapshotPlusJournalTailRestoresGameAfterEverySync() throws IOException {
+        for (long seed = 1; seed <= 5; seed++) {
+            GameState state = newGame(GameMap.WIDTH, seed);
+            SaveJournal journal = SaveJournal.attach(state, snapshot, journalFile, saves);
+            GameRandom random = new GameRandom(seed);
+            ComputerInput player = new ComputerInput(random.split(GameRandom.Stream.AI));
+            ComputerInput computer = new ComputerInput(random.split(GameRandom.Stream.AI));
+            for (int turn = 0; turn < 40 && !state.isOver(); turn++) {
+                state.playTurn(state.isPlayerTurn() ? player : computer);
+                if (turn % 3 == 0) {
+                    state.getJournal().undo(); // Отмены тоже попадают в журнал
+                }
+                journal.sync();
+                assertSameArmies(state, load());
+            }
+            journal.close();
+        }
+    }
+
+    @Test
+    void autosaveAppendsOnlyTheChange() throws IOException {
+        GameState state = newGame(512, 1);
+        state.getPlayerCastle().setGold(1000);
+        SaveJournal journal = SaveJournal.attach(state, snapshot, journalFile, saves);
+        journal.sync(); // Первый снимок сессии
+        saves.flush();
+        long snapshotSize = Files.size(snapshot);
+
+        state.applyAction(new Action.Recruit(1));
+        journal.sync();
+        state.applyAction(new Action.Move(0, state.getPlayerCastle().getX() + 1, state.getPlayerCastle().getY()));
+        journal.sync();
+        saves.flush();
+
+        assertTrue(journal.getAppendedBytes() > 0 && journal.getAppendedBytes() < 120,
+                "Дописано " + journal.getAppendedBytes() + " байт");
+        assertEquals(snapshotSize, Files.size(snapshot), "Снимок не переписывался");
+        assertSameArmies(state, load());
+        journal.close();
+    }
+
+    @Test
+    void checkpointCompactsJournal() throws IOException {
+        GameState state = newGame(GameMap.WIDTH, 2);
+        state.getPlayerCastle().setGold(1000);
+        SaveJournal journal = SaveJournal.attach(state, snapshot, journalFile, saves);
+        journal.sync();
+        state.applyAction(new Action.Recruit(1));
+        journal.sync();
+        saves.flush();
+        long withRecord = Files.size(journalFile);
+
+        journal.checkpoint();
+        saves.flush();
+        assertTrue(Files.size(journalFile) < withRecord, "Учтённые снимком записи выброшены");
+        assertSameArmies(state, load());
+        journal.close();
+    }
+
+    @Test
+    void townBonusesReachTheJournal() throws IOException {
+        GameState state = newGame(GameMap.WIDTH, 4);
+        SaveJournal journal = SaveJournal.attach(state, snapshot, journalFile, saves);
+        journal.sync();
+        state.applyAction(new Action.Heal(3));
+        state.applyAction(new Action.AddMovement(2));
+        state.applyAction(new Action.CaptureReduction(true));
+        journal.sync();
+
+        GameState loaded = load();
+        assertSameArmies(state, loaded);
+        assertEquals(state.getPlayerCastle().getUnits().stream().map(Unit::getMovement).toList(),
+                loaded.getPlayerCastle().getUnits().stream().map(Unit::getMovement).toList());
+        assertTrue(loaded.getPlayerCastle().isCaptureTimeReduced());
+        journal.close();
+    }
+
+    @Test
+    void journalKeepsStatsBeyondShortRange() throws IOException {
+        GameState state = newGame(GameMap.WIDTH, 5);
+        SaveJournal journal = SaveJournal.attach(state, snapshot, journalFile, saves);
+        journal.sync();
+        state.applyAction(new Action.Heal(40_000));
+        state.applyAction(new Action.AddMovement(70_000));
+        journal.sync();
+
+        Unit loaded = load().getPlayerCastle().getUnits().getFirst();
+        Unit unit = state.getPlayerCastle().getUnits().getFirst();
+        assertEquals(unit.getHp(), loaded.getHp());
+        assertEquals(unit.getMovement(), loaded.getMovement());
+        journal.close();
+    }
+
+    @Test
+    void checkpointForgetsUnitsThatLeftTheGame() throws IOException {
+        GameState state = newGame(GameMap.WIDTH, 6);
+        state.getPlayerCastle().setGold(1000);
+        SaveJournal journal = SaveJournal.attach(state, snapshot, journalFile, saves);
+        journal.sync();
+        for (int i = 0; i < 5; i++) {
+            state.applyAction(new Action.Recruit(1));
+            journal.sync();
+            state.getJournal().undo(); // Нанятый юнит уходит и из армии, и с карты
+            journal.sync();
+        }
+        assertEquals(7, journal.getTrackedUnits());
+
+        journal.checkpoint();
+        assertEquals(2, journal.getTrackedUnits());
+        assertSameArmies(state, load());
+
+        state.getJournal().redo(); // Вернувшийся юнит получает новый номер
+        journal.sync();
+        assertSameArmies(state, load());
+        journal.close();
+    }
+
+    @Test
+    void tavernGoldReachesTheJournalOnSync() throws IOException {
+        GameState state = newGame(GameMap.WIDTH, 7);
+        SaveJournal journal = SaveJournal.attach(state, snapshot, journalFile, saves);
+        journal.sync();
+        state.applyAction(new Action.Build("Таверна"));
+        state.applyAction(new Action.AddGold(30));
+        journal.sync(); // Автосохранение сразу после мини-игры
+
+        assertEquals(state.getPlayerCastle().getGold(), load().getPlayerCastle().getGold());
+        journal.close();
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        GameState state = newGame(GameMap.WIDTH, 3);
+        state.getPlayerCastle().setGold(1000);
+        SaveJournal journal = SaveJournal.attach(state, snapshot, journalFile, saves);
+        journal.sync();
+        state.applyAction(new Action.Recruit(2));
+        journal.sync();
+        saves.flush();
+        journal.close();
+
+        // Запись, оборванная на середине
+        Files.write(journalFile, new byte[]{0, 0, 0, 40, 0, 0, 0, 0, 0, 0, 0, 9, 1}, StandardOpenOption.APPEND);
+        assertSameArmies(state, load());
+    }
+}
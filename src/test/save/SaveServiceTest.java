@@ -0,0 +1,89 @@
+package test.save;
+
+import main.engine.GameOutput;
+import main.engine.GameState;
+import main.map.GameMap;
+import main.save.BinarySave;
+import main.save.SaveService;
+import main.util.GameRandom;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveServiceTest {
+
+    private static GameState newGame() {
+        return GameState.newGame(new GameMap(GameMap.WIDTH, GameMap.HEIGHT, true, new GameRandom(1)),
+                "Игрок", GameOutput.SILENT);
+    }
+
+    @Test
+    void savesDuringSlowWriteAreCoalescedIntoLatestState() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        SaveService saves = new SaveService((state, file) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            written.add(state.getPlayerCastle().getGold());
+        });
+
+        GameState state = newGame();
+        Path file = Path.of("game.sav");
+        state.getPlayerCastle().setGold(1);
+        saves.save(state, file);
+        started.await();
+        for (int gold = 2; gold <= 6; gold++) {
+            state.getPlayerCastle().setGold(gold);
+            saves.save(state, file);
+        }
+        assertEquals(1, saves.getQueueDepth(), "Ждёт одна копия на файл");
+        release.countDown();
+        saves.flush();
+
+        assertEquals(List.of(1, 6), written, "Записаны первое и последнее состояние");
+        assertEquals(6, saves.getRequests());
+        assertEquals(4, saves.getCoalesced());
+        assertEquals(2, saves.getWrites());
+        assertEquals(0, saves.getQueueDepth());
+        saves.close();
+    }
+
+    @Test
+    void snapshotIsTakenAtRequestTime() throws IOException {
+        Path file = Files.createTempFile("game", ".sav");
+        try (SaveService saves = new SaveService()) {
+            GameState state = newGame();
+            state.getPlayerCastle().setGold(123);
+            saves.save(state, file);
+            state.getPlayerCastle().setGold(0); // Изменение после запроса в сохранение не попадает
+            saves.flush();
+
+            assertNull(saves.getLastError());
+            assertEquals(123, BinarySave.read(file, new GameRandom(1), GameOutput.SILENT).getPlayerCastle().getGold());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void writeErrorsAreReported() {
+        try (SaveService saves = new SaveService()) {
+            saves.save(newGame(), Path.of("missing-dir", "game.sav"));
+            saves.flush();
+            assertNotNull(saves.getLastError());
+            assertEquals(1, saves.getWrites());
+        }
+    }
+}
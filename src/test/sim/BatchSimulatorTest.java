@@ -0,0 +1,57 @@
+package test.sim;
+
+import main.sim.BatchSimulator;
+import main.sim.GameResult;
+import main.sim.SimulationReport;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSimulatorTest {
+
+    private final BatchSimulator simulator = new BatchSimulator(10, 100);
+
+    @Test
+    void gameIsDeterministicPerSeed() {
+        GameResult first = simulator.playGame(42);
+        GameResult second = simulator.playGame(42);
+
+        assertEquals(first.winner(), second.winner());
+        assertEquals(first.turns(), second.turns());
+        assertArrayEquals(first.gold()[0], second.gold()[0]);
+        assertArrayEquals(first.points()[1], second.points()[1]);
+        assertEquals(first.recruits().keySet(), second.recruits().keySet());
+    }
+
+    @Test
+    void curvesCoverEveryPlayedTurn() {
+        GameResult result = simulator.playGame(7);
+
+        assertTrue(result.turns() <= 100);
+        assertEquals(result.turns() + 1, result.gold()[0].length);
+        assertEquals(95, result.gold()[0][0]); // Стартовые 100 золота минус копейщик
+        assertTrue(result.recruits().get("Копейщик")[0] >= 1);
+    }
+
+    @Test
+    void parallelRunMatchesSequentialRun() {
+        SimulationReport parallel = simulator.run(1000, 64);
+        SimulationReport sequential = new SimulationReport(100);
+        for (long seed = 1000; seed < 1064; seed++) {
+            sequential.add(simulator.playGame(seed));
+        }
+
+        assertEquals(64, parallel.getGames());
+        assertEquals(64, parallel.getPlayerWins() + parallel.getComputerWins() + parallel.getDraws());
+        assertEquals(print(sequential), print(parallel));
+    }
+
+    private String print(SimulationReport report) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        report.print(new PrintStream(bytes));
+        return bytes.toString();
+    }
+}
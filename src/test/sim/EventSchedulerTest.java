@@ -0,0 +1,99 @@
+package test.sim;
+
+import main.sim.EventScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventSchedulerTest {
+
+    private final EventScheduler scheduler = new EventScheduler();
+
+    @Test
+    void eventsRunInTimeOrderAndTiesInSchedulingOrder() {
+        List<String> log = new ArrayList<>();
+        scheduler.schedule(300, () -> log.add("c@" + scheduler.now()));
+        scheduler.schedule(100, () -> log.add("a@" + scheduler.now()));
+        scheduler.schedule(100, () -> log.add("b@" + scheduler.now()));
+
+        assertEquals(3, scheduler.runUntil(1000));
+        assertEquals(List.of("a@100", "b@100", "c@300"), log);
+        assertEquals(1000, scheduler.now());
+    }
+
+    @Test
+    void runUntilStopsAtTimeAndRunsEventsScheduledOnTheWay() {
+        List<Long> times = new ArrayList<>();
+        Runnable[] tick = new Runnable[1];
+        tick[0] = () -> {
+            times.add(scheduler.now());
+            scheduler.schedule(250, tick[0]);
+        };
+        scheduler.schedule(0, tick[0]);
+
+        scheduler.runUntil(1000);
+        assertEquals(List.of(0L, 250L, 500L, 750L, 1000L), times);
+        assertEquals(1, scheduler.getPendingEvents());
+
+        scheduler.runFor(500);
+        assertEquals(1500, (long) times.getLast());
+    }
+
+    @Test
+    void eventInThePastRunsNow() {
+        scheduler.runUntil(100);
+        List<Long> times = new ArrayList<>();
+        scheduler.scheduleAt(50, () -> times.add(scheduler.now()));
+        assertTrue(scheduler.runNext());
+        assertEquals(List.of(100L), times);
+        assertFalse(scheduler.runNext());
+    }
+
+    @Test
+    void realTimeClockRunsDueEvents() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.startRealTime();
+        scheduler.schedule(20, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.now() >= 20);
+        scheduler.close();
+        assertEquals(1, scheduler.getProcessedEvents());
+    }
+
+    @Test
+    void failingEventDoesNotStopTheRealTimeClock() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.startRealTime();
+        scheduler.schedule(10, () -> {
+            throw new IllegalStateException("сбой события");
+        });
+        scheduler.schedule(20, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        scheduler.close();
+        assertEquals(2, scheduler.getProcessedEvents());
+    }
+
+    @Test
+    void actionRunsWithoutHoldingTheScheduler() {
+        boolean[] otherThreadScheduled = new boolean[1];
+        scheduler.schedule(10, () -> {
+            Thread other = new Thread(() -> scheduler.schedule(10, () -> { }));
+            other.start();
+            try {
+                other.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            otherThreadScheduled[0] = !other.isAlive();
+        });
+
+        scheduler.runNext();
+        assertTrue(otherThreadScheduled[0], "Другой поток не смог поставить событие, пока шло действие");
+        assertEquals(1, scheduler.getPendingEvents());
+    }
+}
@@ -200,6 +200,6 @@ class CavalrymanTest {
         cavalryman.move(2, 0, map, castle);
         assertEquals(2, cavalryman.getX());
         assertEquals(0, cavalryman.getY());
-        assertEquals(5, castle.getSteps());
+        assertEquals(0, castle.getSteps()); // Две клетки пути по 5 шагов
     }
 }
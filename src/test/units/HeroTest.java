@@ -199,6 +199,6 @@ class HeroTest {
         hero.move(2, 0, map, castle);
         assertEquals(2, hero.getX());
         assertEquals(0, hero.getY());
-        assertEquals(5, castle.getSteps());
+        assertEquals(0, castle.getSteps()); // Две клетки пути по 5 шагов
     }
 }
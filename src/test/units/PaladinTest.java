@@ -200,6 +200,6 @@ class PaladinTest {
         paladin.move(2, 0, map, castle);
         assertEquals(2, paladin.getX());
         assertEquals(0, paladin.getY());
-        assertEquals(5, castle.getSteps());
+        assertEquals(0, castle.getSteps()); // Две клетки пути по 5 шагов
     }
 }
@@ -146,6 +146,6 @@ class SwordsmanTest {
         swordsman.move(2, 0, map, castle);
         assertEquals(2, swordsman.getX());
         assertEquals(0, swordsman.getY());
-        assertEquals(5, castle.getSteps());
+        assertEquals(0, castle.getSteps()); // Две клетки пути по 5 шагов
     }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package test.util;
+
+import main.map.GameMap;
+import main.util.GameRandom;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRandomTest {
+
+    @Test
+    void sameSeedGivesSameStreams() {
+        GameRandom first = new GameRandom(42);
+        GameRandom second = new GameRandom(42);
+
+        for (GameRandom.Stream stream : GameRandom.Stream.values()) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(first.stream(stream).nextLong(), second.stream(stream).nextLong(), stream.name());
+            }
+        }
+        assertEquals(42, first.getSeed());
+    }
+
+    @Test
+    void streamsDoNotAffectEachOther() {
+        GameRandom quiet = new GameRandom(7);
+        GameRandom busy = new GameRandom(7);
+
+        for (int i = 0; i < 1000; i++) {
+            busy.stream(GameRandom.Stream.AI).nextInt(10);
+        }
+
+        assertEquals(quiet.stream(GameRandom.Stream.TOLLS).nextLong(), busy.stream(GameRandom.Stream.TOLLS).nextLong());
+        assertNotEquals(quiet.stream(GameRandom.Stream.AI).nextLong(), busy.stream(GameRandom.Stream.AI).nextLong());
+    }
+
+    @Test
+    void splitsAreReproducibleAndIndependent() {
+        GameRandom first = new GameRandom(3);
+        GameRandom second = new GameRandom(3);
+
+        SplittableRandom a1 = first.split(GameRandom.Stream.NPC);
+        SplittableRandom a2 = first.split(GameRandom.Stream.NPC);
+        SplittableRandom b1 = second.split(GameRandom.Stream.NPC);
+
+        long value = a1.nextLong();
+        assertEquals(value, b1.nextLong());
+        assertNotEquals(value, a2.nextLong());
+    }
+
+    @Test
+    void seededMapsAreIdentical() {
+        GameMap first = new GameMap(32, 32, false, new GameRandom(11));
+        GameMap second = new GameMap(32, 32, false, new GameRandom(11));
+
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                assertEquals(first.getTileType(x, y), second.getTileType(x, y));
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(first.getMoveCost(1, 1), second.getMoveCost(1, 1)); // (1, 1) — дорога
+        }
+    }
+}